@@ -1,41 +1,73 @@
 package student_player;
 
+import java.io.IOException;
+
+import boardgame.BoardState;
+import boardgame.Move;
 import bohnenspiel.BohnenspielBoardState;
 import bohnenspiel.BohnenspielMove;
 import bohnenspiel.BohnenspielPlayer;
 import student_player.mytools.AlphaBetaMinimax;
-import student_player.mytools.Minimax;
+import student_player.mytools.EndgameTablebase;
+import student_player.mytools.Evaluator;
+import student_player.mytools.LazySmpMinimax;
+import student_player.mytools.LinearEvaluator;
 import student_player.mytools.MinimaxResponse;
-import student_player.mytools.OptiMinimax;
+import student_player.mytools.MoveOrdering;
+import student_player.mytools.OpeningBook;
+import student_player.mytools.ParallelAlphaBetaMinimax;
+import student_player.mytools.PlayerConfig;
+import student_player.mytools.PlayerConfig.Parameter;
+import student_player.mytools.Ponderer;
+import student_player.mytools.SearchLog;
+import student_player.mytools.TimeManager;
+import student_player.mytools.TranspositionTable;
 
 /** A Hus player submitted by a student. */
 public class StudentPlayer extends BohnenspielPlayer {
 
-	// the maximum amount of time in milliseconds that we have to make a move
-	private static final int MAX_TIME = 700;
-	// the maximum amount of time in milliseconds that we have to make the first
-	// move
-	private static final int BUFFER_TIME = 100;
-	// cap on the maximum number of moves allowed
-	private static final int MAX_MOVES = 10;
-	// 11 moves is sometimes too many early in the game
-	private static final int EARLY_MAX_MOVES = 9;
-	// we make EARLY_MAX_MOVES the maximum number of allowable moves up to
-	// NUM_EARLY_MOVES moves into the game
-	private static final int NUM_EARLY_MOVES = 6;
-	// the number of moves to take in the initial move
-	private static final int INITIAL_MOVES = 10;
+	// the SEARCH_MODE that splits the root moves between the search threads
+	private static final int ROOT_SPLIT = 1;
 
 	// the number of moves we've made so far
 	private int numMovesMade = 0;
-	// number of moves to begin with (a good number determined experimentally)
-	private int numMovesToSimulate = 9;
 
 	// the player that we are (0 or 1)
 	private int player;
+	// search and time management parameters; read on the first move unless
+	// given to the constructor
+	private PlayerConfig config;
+	// scores positions for every search we make; created on the first move
+	private Evaluator evaluator;
 
-	// store the OptiMinimax object
-	private final OptiMinimax omm = new OptiMinimax();
+	// transposition table kept across moves, so positions searched on earlier
+	// turns do not need to be searched again; created on the first move
+	private TranspositionTable table;
+	// killer and history tables, kept across moves like the transposition
+	// table; created on the first move
+	private MoveOrdering ordering;
+	// Lazy SMP search sharing the transposition table, created once we know
+	// which player we are
+	private LazySmpMinimax smp;
+	// root-split search sharing the transposition table, created instead of
+	// smp when SEARCH_MODE asks for it
+	private ParallelAlphaBetaMinimax rootSplit;
+	// exact results for positions with few beans left, or null if there is no
+	// tablebase file
+	private EndgameTablebase tablebase;
+	// moves for positions early in the game, or null if there is no book file
+	private OpeningBook book;
+	// searches on the opponent's time, sharing the transposition table;
+	// created on our first move, and null if PONDER is off
+	private Ponderer ponderer;
+	// budgets the time of every move; created on our first move
+	private TimeManager timeManager;
+	// where the statistics of every search are written, or null if
+	// SEARCH_LOG is off
+	private SearchLog searchLog;
+	// System.nanoTime() at which we returned our last move, or 0 once the
+	// server has played it
+	private long moveReturned;
 
 	/**
 	 * You must modify this constructor to return your student number. This is
@@ -46,6 +78,17 @@ public class StudentPlayer extends BohnenspielPlayer {
 		super("260674699");
 	}
 
+	/**
+	 * Creates a player with the given parameters instead of those read from
+	 * PlayerConfig.DEFAULT_PATH, for tuning and matches between settings
+	 * 
+	 * @param config
+	 */
+	public StudentPlayer(PlayerConfig config) {
+		super("260674699");
+		this.config = config;
+	}
+
 	/**
 	 * Get a move to play. If this is the first move, then we have a bit more
 	 * time and so we use a slightly different approach than if it is a
@@ -53,31 +96,117 @@ public class StudentPlayer extends BohnenspielPlayer {
 	 */
 	@Override
 	public BohnenspielMove chooseMove(BohnenspielBoardState boardState) {
+		// the server's clock is already running, loading included
+		long start = System.nanoTime();
+		if (this.timeManager == null) {
+			this.player = boardState.getTurnPlayer();
+			if (this.config == null) {
+				this.config = PlayerConfig.load();
+			}
+			this.timeManager = createTimeManager();
+			this.evaluator = loadEvaluator();
+			this.table = new TranspositionTable();
+			this.ordering = new MoveOrdering();
+			this.tablebase = loadTablebase();
+			this.book = loadOpeningBook();
+			this.searchLog = openSearchLog();
+			if (this.config.isOn(Parameter.PONDER)) {
+				this.ponderer = new Ponderer(this.player, this.evaluator, this.table, this.tablebase);
+				this.ponderer.setPvs(this.config.isOn(Parameter.PVS));
+				this.ponderer.setQuiescence(this.config.get(Parameter.QUIESCENCE));
+				this.ponderer.setSelectiveSearch(this.config.isOn(Parameter.LATE_MOVE_REDUCTIONS),
+						this.config.isOn(Parameter.FUTILITY_PRUNING), this.config.isOn(Parameter.NULL_MOVE_PRUNING));
+			}
+		}
+
+		this.timeManager.startMove(boardState.getTurnNumber() == 0, start);
+		BohnenspielMove move = chooseTimedMove(boardState);
+		this.timeManager.endMove();
+		this.moveReturned = System.nanoTime();
+		return move;
+	}
+
+	/**
+	 * Gets a move to play once the time manager has started timing it
+	 * 
+	 * @param boardState
+	 * @return
+	 */
+	private BohnenspielMove chooseTimedMove(BohnenspielBoardState boardState) {
+		// play from the opening book for as long as we are in it
+		BohnenspielMove bookMove = this.book == null ? null : this.book.probe(boardState);
+		if (bookMove != null) {
+			this.numMovesMade++;
+			return bookMove;
+		}
+
 		if (this.numMovesMade == 0) {
 			// get the first move as determined by minimax with alpha-beta
 			// pruning
-			this.player = boardState.getTurnPlayer();
 			return getFirstMoveAB(boardState);
 		}
 
+		// if pondering saw every line to the end of the game, there is no
+		// point searching again
+		MinimaxResponse pondered = this.ponderer == null ? null : this.ponderer.getResult(boardState);
+		if (pondered != null && pondered.getFullSimulation() && pondered.getMove() != null) {
+			this.numMovesMade++;
+			return pondered.getMove();
+		}
+
 		// get subsequent moves as determined by minimax with alph-beta pruning
 		return getMoveAB(boardState);
 	}
 
+	/**
+	 * Starts pondering once our move has been played, and stops once the
+	 * opponent's has. Called for every move, ours included.
+	 */
+	@Override
+	public void movePlayed(BoardState boardState, Move move) {
+		if (this.moveReturned != 0 && move.getPlayerID() == this.player) {
+			// the server has our move back, after a round trip
+			this.timeManager.observeLatency(System.nanoTime() - this.moveReturned);
+			this.moveReturned = 0;
+		}
+		if (this.ponderer == null) {
+			return;
+		}
+		BohnenspielBoardState state = (BohnenspielBoardState) boardState;
+		if (!state.gameOver() && state.getTurnPlayer() != this.player) {
+			this.ponderer.start(state);
+		} else {
+			// the search for our next move picks up what was found in the
+			// table
+			this.ponderer.stop();
+		}
+	}
+
+	@Override
+	public void gameOver(String msg, BoardState boardState) {
+		if (this.ponderer != null) {
+			this.ponderer.shutdown();
+		}
+		if (this.searchLog != null) {
+			this.searchLog.close();
+		}
+	}
+
 	// =================================================================================
 	// Minimax with alpha-beta pruning
 	// =================================================================================
 
 	/**
 	 * Returns the first move to play, determined by minimax with alpha-beta
-	 * pruning
+	 * pruning. The time manager gives it the first move's longer budget.
 	 * 
 	 * @param boardState
 	 * @return
 	 */
 	private BohnenspielMove getFirstMoveAB(BohnenspielBoardState boardState) {
-		AlphaBetaMinimax abmm = new AlphaBetaMinimax(this.player, 5);
-		MinimaxResponse mresp = abmm.minimaxDecision(boardState, INITIAL_MOVES);
+		MinimaxResponse mresp = createSearch().iterativeDeepeningDecision(boardState,
+				this.timeManager.getDeadline());
+		logSearch(boardState, mresp);
 		this.numMovesMade++;
 		return mresp.getMove();
 	}
@@ -90,12 +219,39 @@ public class StudentPlayer extends BohnenspielPlayer {
 	 */
 	private BohnenspielMove getMoveAB(BohnenspielBoardState boardState) {
 		// Use heuristic 4
-		AlphaBetaMinimax abmm = new AlphaBetaMinimax(this.player, 5);
-		long start = System.currentTimeMillis();
-		MinimaxResponse mresp = abmm.minimaxDecision(boardState, this.numMovesToSimulate);
-		long end = System.currentTimeMillis();
-
-		updateMovesToSimulate(end - start);
+		MinimaxResponse mresp;
+		int searchThreads = this.config.get(Parameter.SEARCH_THREADS);
+		if (this.config.get(Parameter.SEARCH_MODE) == ROOT_SPLIT) {
+			if (this.rootSplit == null) {
+				this.rootSplit = new ParallelAlphaBetaMinimax(this.player, this.evaluator, searchThreads, this.table);
+				this.rootSplit.setTablebase(this.tablebase);
+				this.rootSplit.setTimeManager(this.timeManager);
+				this.rootSplit.setPvs(this.config.isOn(Parameter.PVS));
+				this.rootSplit.setAspirationWindow(this.config.get(Parameter.ASPIRATION_WINDOW));
+				this.rootSplit.setQuiescence(this.config.get(Parameter.QUIESCENCE));
+				this.rootSplit.setLateMoveReductions(this.config.isOn(Parameter.LATE_MOVE_REDUCTIONS));
+				this.rootSplit.setFutilityPruning(this.config.isOn(Parameter.FUTILITY_PRUNING));
+				this.rootSplit.setNullMovePruning(this.config.isOn(Parameter.NULL_MOVE_PRUNING));
+			}
+			mresp = this.rootSplit.iterativeDeepeningDecision(boardState, this.timeManager.getDeadline());
+		} else if (searchThreads > 1) {
+			if (this.smp == null) {
+				this.smp = new LazySmpMinimax(this.player, this.evaluator, searchThreads, this.table);
+				this.smp.setTablebase(this.tablebase);
+				this.smp.setTimeManager(this.timeManager);
+				this.smp.setPvs(this.config.isOn(Parameter.PVS));
+				this.smp.setAspirationWindow(this.config.get(Parameter.ASPIRATION_WINDOW));
+				this.smp.setQuiescence(this.config.get(Parameter.QUIESCENCE));
+				this.smp.setMtdf(this.config.isOn(Parameter.MTDF));
+				this.smp.setLateMoveReductions(this.config.isOn(Parameter.LATE_MOVE_REDUCTIONS));
+				this.smp.setFutilityPruning(this.config.isOn(Parameter.FUTILITY_PRUNING));
+				this.smp.setNullMovePruning(this.config.isOn(Parameter.NULL_MOVE_PRUNING));
+			}
+			mresp = this.smp.iterativeDeepeningDecision(boardState, this.timeManager.getDeadline());
+		} else {
+			mresp = createSearch().iterativeDeepeningDecision(boardState, this.timeManager.getDeadline());
+		}
+		logSearch(boardState, mresp);
 
 		// if Minimax says we should skip, then try to skip
 		if (mresp.getShouldSkip()) {
@@ -111,121 +267,107 @@ public class StudentPlayer extends BohnenspielPlayer {
 		return mresp.getMove();
 	}
 
-	private void updateMovesToSimulate(long time) {
-		if ((time) >= MAX_TIME) {
-			// exponential back-off
-			this.numMovesToSimulate = Math.max(1, this.numMovesToSimulate / 2);
-		} else if (this.numMovesMade < NUM_EARLY_MOVES) {
-			if (this.numMovesToSimulate < EARLY_MAX_MOVES && (time + BUFFER_TIME) < MAX_TIME) {
-				this.numMovesToSimulate++;
-			}
-		} else if (this.numMovesToSimulate < MAX_MOVES && (time + BUFFER_TIME) < MAX_TIME) {
-			this.numMovesToSimulate++;
-		}
-	}
-
-	// =================================================================================
-	// Minimax with no pruning
-	// =================================================================================
-
 	/**
-	 * Returns the first move to play, determined by minimax
+	 * Creates a single-threaded search set up from the configuration, sharing
+	 * the table, ordering, tablebase and time manager kept across moves
 	 * 
-	 * @param boardState
 	 * @return
 	 */
-	private BohnenspielMove getFirstMove(BohnenspielBoardState boardState) {
-		Minimax mm = new Minimax(boardState.getTurnPlayer());
-		MinimaxResponse mresp = mm.minimaxDecision(boardState, INITIAL_MOVES);
-		return mresp.getMove();
+	private AlphaBetaMinimax createSearch() {
+		AlphaBetaMinimax abmm = new AlphaBetaMinimax(this.player, this.evaluator, this.table);
+		abmm.setMoveOrdering(this.ordering);
+		abmm.setTablebase(this.tablebase);
+		abmm.setTimeManager(this.timeManager);
+		abmm.setPvs(this.config.isOn(Parameter.PVS));
+		abmm.setAspirationWindow(this.config.get(Parameter.ASPIRATION_WINDOW));
+		abmm.setQuiescence(this.config.get(Parameter.QUIESCENCE));
+		abmm.setMtdf(this.config.isOn(Parameter.MTDF));
+		abmm.setLateMoveReductions(this.config.isOn(Parameter.LATE_MOVE_REDUCTIONS));
+		abmm.setFutilityPruning(this.config.isOn(Parameter.FUTILITY_PRUNING));
+		abmm.setNullMovePruning(this.config.isOn(Parameter.NULL_MOVE_PRUNING));
+		return abmm;
 	}
 
 	/**
-	 * Returns a move to play, determined by minimax
+	 * Returns the evaluator to search with
 	 * 
-	 * @param boardState
 	 * @return
 	 */
-	private BohnenspielMove getMove(BohnenspielBoardState boardState) {
-		Minimax mm = new Minimax(boardState.getTurnPlayer());
-		long start = System.currentTimeMillis();
-		MinimaxResponse mresp = mm.minimaxDecision(boardState, this.numMovesToSimulate);
-		long end = System.currentTimeMillis();
-
-		// update the number of moves to simulate
-		if ((end - start) >= MAX_TIME) {
-			// back-off
-			this.numMovesToSimulate = Math.max(1, this.numMovesToSimulate - 2);
-		} else if (this.numMovesToSimulate < MAX_MOVES && mresp.getFullSimulation()) {
-			// potentially increase the number of moves to simulate
-			if ((end - start + BUFFER_TIME) < MAX_TIME) {
-				this.numMovesToSimulate++;
+	private Evaluator loadEvaluator() {
+		if (this.config.isOn(Parameter.USE_WEIGHTS_FILE)) {
+			try {
+				return LinearEvaluator.open(LinearEvaluator.DEFAULT_PATH);
+			} catch (IOException e) {
+				// fall through to the utility function
 			}
 		}
+		return Evaluator.forUtilityFunction(this.config.get(Parameter.UTILITY_FUNCTION));
+	}
 
-		// if Minimax says we should skip, then try to skip
-		if (mresp.getShouldSkip()) {
-			if (boardState.getCredit(boardState.getTurnPlayer()) > 0) {
-				return new BohnenspielMove("skip", boardState.getTurnPlayer());
-			} else {
-				// try a random move and hope for the best
-				return (BohnenspielMove) boardState.getRandomMove();
-			}
+	/**
+	 * Opens the endgame tablebase written by TablebaseGenerator, if there is
+	 * one
+	 * 
+	 * @return the tablebase, or null if it could not be opened
+	 */
+	private EndgameTablebase loadTablebase() {
+		try {
+			return EndgameTablebase.open(EndgameTablebase.DEFAULT_PATH);
+		} catch (IOException e) {
+			return null;
 		}
-
-		return mresp.getMove();
 	}
 
-	// =================================================================================
-	// Minimax using memory to store the game tree
-	// =================================================================================
-
 	/**
-	 * Returns the first move to play, determined by minimax. Saves the game
-	 * tree to memory.
+	 * Reads the opening book written by OpeningBookBuilder, if there is one
 	 * 
-	 * @param boardState
-	 * @return
+	 * @return the book, or null if it could not be read
 	 */
-	private BohnenspielMove getFirstMoveOpti(BohnenspielBoardState boardState) {
-		// finish initialization of OptiMinimax
-		this.omm.setRootState(boardState);
-		this.omm.setPlayer(boardState.getTurnPlayer());
-		MinimaxResponse mresp = this.omm.optiMinimaxDecision(boardState, INITIAL_MOVES);
-		return mresp.getMove();
+	private OpeningBook loadOpeningBook() {
+		try {
+			return OpeningBook.open(OpeningBook.DEFAULT_PATH);
+		} catch (IOException e) {
+			return null;
+		}
 	}
 
 	/**
-	 * Returns a move to play, determined by minimax. Traverses through the game
-	 * tree in memory and adds to it as needed.
+	 * Opens the search log if SEARCH_LOG is on
 	 * 
-	 * @param boardState
-	 * @return
+	 * @return the log, or null if it is off or could not be opened
 	 */
-	private BohnenspielMove getMoveOpti(BohnenspielBoardState boardState) {
-		long start = System.currentTimeMillis();
-		MinimaxResponse mresp = this.omm.optiMinimaxDecision(boardState, this.numMovesToSimulate);
-		long end = System.currentTimeMillis();
-
-		// update the number of moves to simulate
-		if ((end - start) >= MAX_TIME) {
-			// exponential back-off
-			this.numMovesToSimulate = Math.max(1, this.numMovesToSimulate / 2);
-		} else if (this.numMovesToSimulate < MAX_MOVES && (end - start + BUFFER_TIME) < MAX_TIME) {
-			this.numMovesToSimulate++;
+	private SearchLog openSearchLog() {
+		if (!this.config.isOn(Parameter.SEARCH_LOG)) {
+			return null;
+		}
+		try {
+			return SearchLog.open(SearchLog.DEFAULT_PATH);
+		} catch (IOException e) {
+			return null;
 		}
+	}
 
-		// if Minimax says we should skip, then try to skip
-		if (mresp.getShouldSkip()) {
-			if (boardState.getCredit(boardState.getTurnPlayer()) > 0) {
-				return new BohnenspielMove("skip", boardState.getTurnPlayer());
-			} else {
-				// try a random move and hope for the best
-				System.out.println("says should skip");
-				return (BohnenspielMove) boardState.getRandomMove();
-			}
+	/**
+	 * Writes the statistics of a search to the search log, if there is one
+	 * 
+	 * @param boardState
+	 * @param mresp
+	 */
+	private void logSearch(BohnenspielBoardState boardState, MinimaxResponse mresp) {
+		if (this.searchLog != null) {
+			this.searchLog.write(boardState.getTurnNumber(), this.player, mresp.getMove(), mresp.getStats());
 		}
+	}
 
-		return mresp.getMove();
+	/**
+	 * Creates the time manager from the configuration. Without pondering, time
+	 * a move leaves unused is wasted, so every move may use all of its budget.
+	 * 
+	 * @return
+	 */
+	private TimeManager createTimeManager() {
+		int stablePercent = this.config.isOn(Parameter.PONDER) ? this.config.get(Parameter.STABLE_MOVE_PERCENT) : 100;
+		return new TimeManager(this.config.get(Parameter.MAX_TIME), this.config.get(Parameter.FIRST_MOVE_TIME),
+				this.config.get(Parameter.BUFFER_TIME), stablePercent);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,70 @@
+package student_player;
+
+import bohnenspiel.BohnenspielBoardState;
+import bohnenspiel.BohnenspielMove;
+import bohnenspiel.BohnenspielPlayer;
+import student_player.mytools.MinimaxResponse;
+import student_player.mytools.MonteCarloTreeSearch;
+import student_player.mytools.ParallelMonteCarloTreeSearch;
+import student_player.mytools.PlayerConfig;
+import student_player.mytools.PlayerConfig.Parameter;
+
+/** A Hus player submitted by a student. */
+public class StudentPlayer10 extends BohnenspielPlayer {
+
+	// the maximum amount of time in milliseconds that we have to make a move
+	private static final int MAX_TIME = 700;
+	// the amount of time in milliseconds to leave to spare on every move
+	private static final int BUFFER_TIME = 100;
+	// search parameters, read on the first move. When SEARCH_THREADS is more
+	// than one, the threads share one tree.
+	private PlayerConfig config;
+	// created on the first move, and reused for every move after that
+	private MonteCarloTreeSearch mcts;
+	private ParallelMonteCarloTreeSearch parallelMcts;
+
+	/**
+	 * You must modify this constructor to return your student number. This is
+	 * important, because this is what the code that runs the competition uses
+	 * to associate you with your agent. The constructor should do nothing else.
+	 */
+	public StudentPlayer10() {
+		super("260674699_10");
+	}
+
+	/**
+	 * Get a move to play, determined by Monte Carlo tree search
+	 */
+	@Override
+	public BohnenspielMove chooseMove(BohnenspielBoardState boardState) {
+		long deadline = System.nanoTime() + (MAX_TIME - BUFFER_TIME) * 1000000L;
+
+		long start = System.currentTimeMillis();
+		if (this.config == null) {
+			this.config = PlayerConfig.load();
+		}
+		int searchThreads = this.config.get(Parameter.SEARCH_THREADS);
+		MinimaxResponse mresp;
+		if (searchThreads > 1) {
+			if (this.parallelMcts == null) {
+				this.parallelMcts = new ParallelMonteCarloTreeSearch(searchThreads,
+						MonteCarloTreeSearch.DEFAULT_CAPACITY, MonteCarloTreeSearch.DEFAULT_EXPLORATION,
+						System.nanoTime());
+			}
+			mresp = this.parallelMcts.search(boardState, deadline);
+		} else {
+			if (this.mcts == null) {
+				this.mcts = new MonteCarloTreeSearch();
+			}
+			mresp = this.mcts.search(boardState, deadline);
+		}
+		long end = System.currentTimeMillis();
+		System.out.println(mresp.getNodes() + " playouts in " + (end - start) + " milliseconds");
+
+		if (mresp.getMove() == null) {
+			// no legal move; the server will treat whatever we send as a loss
+			return (BohnenspielMove) boardState.getRandomMove();
+		}
+		return mresp.getMove();
+	}
+}
@@ -14,20 +14,11 @@ public class StudentPlayer8 extends BohnenspielPlayer {
 	// the maximum amount of time in milliseconds that we have to make the first
 	// move
 	private static final int BUFFER_TIME = 100;
-	// cap on the maximum number of moves allowed
-	private static final int MAX_MOVES = 10;
-	// 11 moves is sometimes too many early in the game
-	private static final int EARLY_MAX_MOVES = 9;
-	// we make EARLY_MAX_MOVES the maximum number of allowable moves up to
-	// NUM_EARLY_MOVES moves into the game
-	private static final int NUM_EARLY_MOVES = 6;
 	// the number of moves to take in the initial move
 	private static final int INITIAL_MOVES = 10;
 
 	// the number of moves we've made so far
 	private int numMovesMade = 0;
-	// number of moves to begin with (a good number determined experimentally)
-	private int numMovesToSimulate = 9;
 
 	// the player that we are (0 or 1)
 	private int player;
@@ -89,11 +80,9 @@ public class StudentPlayer8 extends BohnenspielPlayer {
 	private BohnenspielMove getMoveAB(BohnenspielBoardState boardState) {
 		AlphaBetaMinimax abmm = new AlphaBetaMinimax(this.player, 7);
 		long start = System.currentTimeMillis();
-		MinimaxResponse mresp = abmm.minimaxDecision(boardState, this.numMovesToSimulate);
+		MinimaxResponse mresp = abmm.iterativeDeepeningDecision(boardState, getDeadline());
 		long end = System.currentTimeMillis();
-		System.out.println("simulated " + this.numMovesToSimulate + " moves in " + (end - start) + " milliseconds");
-
-		updateMovesToSimulate(end - start);
+		System.out.println("searched " + mresp.getDepth() + " moves deep in " + (end - start) + " milliseconds");
 
 		// if Minimax says we should skip, then try to skip
 		if (mresp.getShouldSkip()) {
@@ -109,16 +98,13 @@ public class StudentPlayer8 extends BohnenspielPlayer {
 		return mresp.getMove();
 	}
 
-	private void updateMovesToSimulate(long time) {
-		if ((time) >= MAX_TIME) {
-			// exponential back-off
-			this.numMovesToSimulate = Math.max(1, this.numMovesToSimulate / 2);
-		} else if (this.numMovesMade < NUM_EARLY_MOVES) {
-			if (this.numMovesToSimulate < EARLY_MAX_MOVES && (time + BUFFER_TIME) < MAX_TIME) {
-				this.numMovesToSimulate++;
-			}
-		} else if (this.numMovesToSimulate < MAX_MOVES && (time + BUFFER_TIME) < MAX_TIME) {
-			this.numMovesToSimulate++;
-		}
+	/**
+	 * Returns the System.nanoTime() by which a search started now must finish,
+	 * leaving BUFFER_TIME to spare
+	 * 
+	 * @return
+	 */
+	private long getDeadline() {
+		return System.nanoTime() + (MAX_TIME - BUFFER_TIME) * 1000000L;
 	}
 }
\ No newline at end of file
@@ -19,11 +19,6 @@ public class StudentPlayer9 extends BohnenspielPlayer {
 	private static final int BUFFER_TIME = 100;
 	// cap on the maximum number of moves allowed
 	private static final int MAX_MOVES = 10;
-	// 11 moves is sometimes too many early in the game
-	private static final int EARLY_MAX_MOVES = 9;
-	// we make EARLY_MAX_MOVES the maximum number of allowable moves up to
-	// NUM_EARLY_MOVES moves into the game
-	private static final int NUM_EARLY_MOVES = 6;
 	// the number of moves to take in the initial move
 	private static final int INITIAL_MOVES = 10;
 
@@ -97,13 +92,9 @@ public class StudentPlayer9 extends BohnenspielPlayer {
 	private BohnenspielMove getSecondMoveAB(BohnenspielBoardState boardState) {
 		AlphaBetaMinimax abmm = new AlphaBetaMinimax(this.player, 5);
 		long start = System.currentTimeMillis();
-		MinimaxResponse mresp = abmm.minimaxDecision(boardState, this.numMovesToSimulate);
+		MinimaxResponse mresp = abmm.iterativeDeepeningDecision(boardState, getDeadline());
 		long end = System.currentTimeMillis();
-		System.out.println("simulated " + this.numMovesToSimulate + " moves in " + (end - start) + " milliseconds");
-
-		// decrement the number of moves to simulate by 1, since the heuristic
-		// to be used in later steps takes a bit longer to compute
-		this.numMovesToSimulate--;
+		System.out.println("searched " + mresp.getDepth() + " moves deep in " + (end - start) + " milliseconds");
 
 		// if Minimax says we should skip, then try to skip
 		if (mresp.getShouldSkip()) {
@@ -128,11 +119,9 @@ public class StudentPlayer9 extends BohnenspielPlayer {
 	private BohnenspielMove getMoveAB(BohnenspielBoardState boardState) {
 		AlphaBetaMinimax abmm = new AlphaBetaMinimax(this.player, 4);
 		long start = System.currentTimeMillis();
-		MinimaxResponse mresp = abmm.minimaxDecision(boardState, this.numMovesToSimulate);
+		MinimaxResponse mresp = abmm.iterativeDeepeningDecision(boardState, getDeadline());
 		long end = System.currentTimeMillis();
-		System.out.println("simulated " + this.numMovesToSimulate + " moves in " + (end - start) + " milliseconds");
-
-		updateMovesToSimulate(end - start);
+		System.out.println("searched " + mresp.getDepth() + " moves deep in " + (end - start) + " milliseconds");
 
 		// if Minimax says we should skip, then try to skip
 		if (mresp.getShouldSkip()) {
@@ -148,17 +137,14 @@ public class StudentPlayer9 extends BohnenspielPlayer {
 		return mresp.getMove();
 	}
 
-	private void updateMovesToSimulate(long time) {
-		if ((time) >= MAX_TIME) {
-			// exponential back-off
-			this.numMovesToSimulate = Math.max(1, this.numMovesToSimulate / 2);
-		} else if (this.numMovesMade < NUM_EARLY_MOVES) {
-			if (this.numMovesToSimulate < EARLY_MAX_MOVES && (time + BUFFER_TIME) < MAX_TIME) {
-				this.numMovesToSimulate++;
-			}
-		} else if (this.numMovesToSimulate < MAX_MOVES && (time + BUFFER_TIME) < MAX_TIME) {
-			this.numMovesToSimulate++;
-		}
+	/**
+	 * Returns the System.nanoTime() by which a search started now must finish,
+	 * leaving BUFFER_TIME to spare
+	 * 
+	 * @return
+	 */
+	private long getDeadline() {
+		return System.nanoTime() + (MAX_TIME - BUFFER_TIME) * 1000000L;
 	}
 
 	// =================================================================================
@@ -1,11 +1,18 @@
 package student_player.mytools;
 
+import java.util.ArrayList;
+
 import bohnenspiel.BohnenspielBoardState;
 import bohnenspiel.BohnenspielMove;
 
 /**
  * Minimax with alpha-beta pruning
  * 
+ * A node is cut off once alpha is strictly greater than beta, so a score
+ * equal to alpha or beta is still exact. Searching with alpha equal to beta is
+ * therefore the narrowest window, and is what principal variation search uses
+ * as its null window.
+ * 
  * @author kstricks
  *
  */
@@ -13,14 +20,260 @@ public class AlphaBetaMinimax {
 
 	private static final int MAX_BEANS = 72;
 
+	// the deepest iterative deepening will search
+	private static final int MAX_DEPTH = 64;
+	// deadline used when searching to a fixed depth
+	private static final long NO_DEADLINE = Long.MAX_VALUE;
+	// the clock is checked once every DEADLINE_CHECK_MASK + 1 nodes
+	private static final long DEADLINE_CHECK_MASK = 0x3FF;
+	// score of a position the tablebase says we cannot win, before adding the
+	// final score difference; below any utility function's range
+	private static final int TABLEBASE_NO_WIN = -(1 << 20);
+	// quiescence search lists each capture as the seeds it captures shifted
+	// left by CAPTURE_SEEDS_SHIFT plus the move, so that sorting the list
+	// puts the biggest captures first
+	private static final int CAPTURE_SEEDS_SHIFT = 4;
+	private static final int CAPTURE_MOVE_MASK = (1 << CAPTURE_SEEDS_SHIFT) - 1;
+	// late move reductions only reduce moves this many moves or more from the
+	// horizon, after the first LMR_FULL_MOVES moves, by LMR_REDUCTION moves;
+	// the first moves are the table move and the killers
+	private static final int LMR_MIN_DEPTH = 3;
+	private static final int LMR_FULL_MOVES = 3;
+	private static final int LMR_REDUCTION = 1;
+	// null move pruning searches the skip NULL_MOVE_REDUCTION moves shallower
+	// than the other moves, only at nodes at least NULL_MOVE_MIN_DEPTH moves
+	// from the horizon, and is turned off when the player to move has fewer
+	// than NULL_MOVE_MIN_SEEDS seeds on their side or NULL_MOVE_MIN_CREDIT
+	// skips left, where being made to move may hurt
+	private static final int NULL_MOVE_REDUCTION = 2;
+	private static final int NULL_MOVE_MIN_DEPTH = NULL_MOVE_REDUCTION + 2;
+	private static final int NULL_MOVE_MIN_SEEDS = 12;
+	private static final int NULL_MOVE_MIN_CREDIT = 2;
+
 	// the id of the max player
 	private int player;
-	// an integer indicating the utility function to use
-	private int utilityFunction;
+	// scores positions at the search horizon
+	private final Evaluator evaluator;
+	// transposition table shared across searches, or null to search without
+	// one
+	private final TranspositionTable table;
+
+	// System.nanoTime() at which the current search must stop
+	private long deadline;
+	// set once the deadline has passed, after which the search unwinds
+	private boolean aborted;
+	// set by another thread to make the search unwind as if out of time
+	private volatile boolean stopped;
+	// what the current search has done, including the number of nodes
+	// visited; this search's own, so the counters need no synchronization
+	private final SearchStats stats = new SearchStats();
+	// whether the current iteration evaluated any position at the depth
+	// limit, i.e. whether searching deeper could change the result
+	private boolean reachedHorizon;
+	// score of the move returned by the last call to searchRoot
+	private int rootScore;
+	// depth of the current iteration, so that ply = rootDepth - movesToGo
+	private int rootDepth;
+
+	// move ordering, or null to search moves in the order they are generated
+	private MoveOrdering ordering;
+	// legal moves at each ply below the root, so that generating moves never
+	// allocates
+	private int[][] moveBuffers = new int[MAX_DEPTH + 1][MutableBoardState.MAX_MOVES];
+	// exact results for positions with few beans left, or null
+	private EndgameTablebase tablebase;
+	// decides whether to start each iteration of iterative deepening, or null
+	// to search until the deadline
+	private TimeManager timeManager;
+	// whether to search every move after the first with a null window
+	private boolean pvs;
+	// half the width of the window each iteration of iterative deepening
+	// starts with around the last iteration's score, or 0 to always start
+	// with a full window
+	private int aspirationWindow;
+	// the most captures quiescence search plays past the search horizon, or
+	// 0 to evaluate positions at the horizon as they are
+	private int quiescence;
+	// whether to find the root's score by MTD(f) rather than with one search
+	private boolean mtdf;
+	// whether to search late quiet moves to a reduced depth first
+	private boolean lateMoveReductions;
+	// whether to skip moves one move from the horizon that cannot reach the
+	// window
+	private boolean futilityPruning;
+	// whether to cut off nodes where skipping a turn is already good enough
+	private boolean nullMovePruning;
 
 	public AlphaBetaMinimax(int player, int utilityFunction) {
+		this(player, utilityFunction, null);
+	}
+
+	/**
+	 * Creates a search that scores positions with the evaluator for one of the
+	 * numbered utility functions
+	 * 
+	 * @param player
+	 * @param utilityFunction
+	 *            - 0 to 7, as in Evaluator.forUtilityFunction
+	 * @param table
+	 *            - the transposition table to use, or null
+	 * @throws UndefinedUtilityFunctionException
+	 */
+	public AlphaBetaMinimax(int player, int utilityFunction, TranspositionTable table)
+			throws UndefinedUtilityFunctionException {
+		this(player, Evaluator.forUtilityFunction(utilityFunction), table);
+	}
+
+	/**
+	 * Creates a search that probes and stores positions in the given
+	 * transposition table. Pass the same table to every search for the same
+	 * player and evaluator to reuse results from one move to the next.
+	 * 
+	 * @param player
+	 * @param evaluator
+	 * @param table
+	 */
+	public AlphaBetaMinimax(int player, Evaluator evaluator, TranspositionTable table) {
 		this.player = player;
-		this.utilityFunction = utilityFunction;
+		this.evaluator = evaluator;
+		this.table = table;
+	}
+
+	/**
+	 * Sets the move ordering used below the root. Pass the same ordering to
+	 * every search for the same player to carry the history table over from
+	 * one move to the next.
+	 * 
+	 * @param ordering
+	 */
+	public void setMoveOrdering(MoveOrdering ordering) {
+		this.ordering = ordering;
+	}
+
+	/**
+	 * Sets the tablebase looked up below the root. Positions found in it are
+	 * scored as wins or losses without being searched.
+	 * 
+	 * @param tablebase
+	 */
+	public void setTablebase(EndgameTablebase tablebase) {
+		this.tablebase = tablebase;
+	}
+
+	/**
+	 * Sets the time manager asked before each iteration of iterative
+	 * deepening whether there is time to search one move deeper. The deadline
+	 * still stops an iteration that runs over.
+	 * 
+	 * @param timeManager
+	 */
+	public void setTimeManager(TimeManager timeManager) {
+		this.timeManager = timeManager;
+	}
+
+	/**
+	 * Turns principal variation search on or off. With it on, every move after
+	 * the first at a node is searched with a null window, which only shows
+	 * whether it is better than the best move so far, and is searched again
+	 * with the full window only if it is.
+	 * 
+	 * @param pvs
+	 */
+	public void setPvs(boolean pvs) {
+		this.pvs = pvs;
+	}
+
+	/**
+	 * Sets the half width of the aspiration window. Each iteration of
+	 * iterative deepening after the first searches the root with a window
+	 * this far either side of the last iteration's score, and widens it and
+	 * searches again if the score falls outside.
+	 * 
+	 * @param aspirationWindow
+	 *            - in the evaluator's units, or 0 to always search with a full
+	 *            window
+	 */
+	public void setAspirationWindow(int aspirationWindow) {
+		this.aspirationWindow = aspirationWindow;
+	}
+
+	/**
+	 * Turns quiescence search on or off. With it on, a position at the search
+	 * horizon is not evaluated as it is, but searched further through moves
+	 * that capture, up to the given number of moves, so that the score does
+	 * not depend on whether the horizon happens to fall in the middle of an
+	 * exchange of captures.
+	 * 
+	 * @param quiescence
+	 *            - the most moves to search past the horizon, or 0 to turn
+	 *            quiescence search off
+	 */
+	public void setQuiescence(int quiescence) {
+		this.quiescence = quiescence;
+		setRootDepth(this.rootDepth);
+	}
+
+	/**
+	 * Turns MTD(f) on or off. With it on, the root is searched with a series
+	 * of null windows, each one at the score the last one returned, until one
+	 * returns its own bound, which is then the root's score. Each search only
+	 * shows which side of its bound the score is on, so it is cheap, and the
+	 * transposition table saves the later ones from searching again what the
+	 * earlier ones searched; without a table MTD(f) is slower than searching
+	 * once. Takes the place of the aspiration window.
+	 * 
+	 * @param mtdf
+	 */
+	public void setMtdf(boolean mtdf) {
+		this.mtdf = mtdf;
+	}
+
+	/**
+	 * Turns late move reductions on or off. With them on, the moves at a node
+	 * that come after the table move and the killers and do not capture are
+	 * first searched one move shallower with a null window, and only if that
+	 * shows one might be better than the best move so far is it searched
+	 * again to the full depth.
+	 * 
+	 * @param lateMoveReductions
+	 */
+	public void setLateMoveReductions(boolean lateMoveReductions) {
+		this.lateMoveReductions = lateMoveReductions;
+	}
+
+	/**
+	 * Turns futility pruning on or off. With it on, a move one move from the
+	 * horizon is not made at all if the evaluator's bound on the position
+	 * after it, given the seeds it captures, cannot reach the window. Moves
+	 * that might end the game or reach the tablebase are always made, so
+	 * this never changes the result.
+	 * 
+	 * @param futilityPruning
+	 */
+	public void setFutilityPruning(boolean futilityPruning) {
+		this.futilityPruning = futilityPruning;
+	}
+
+	/**
+	 * Turns null move pruning on or off. With it on, before searching the
+	 * moves at a node whose evaluation is already outside the window, the
+	 * player to move skips their turn and the position is searched a few
+	 * moves shallower. If the player does well enough even after skipping,
+	 * their best move will surely do at least as well, and the node is cut
+	 * off without searching any moves.
+	 * 
+	 * The skip is the game's own: it is only tried when the player may
+	 * actually skip, and it uses up a skip credit and stops the opponent
+	 * skipping back, exactly as in the game, so the only guess is that the
+	 * shallower search is right. Giving up a move can be better than having
+	 * to make one when the player has few seeds to sow, and a player who
+	 * skips with their last credit cannot skip later, so the null move is not
+	 * tried then.
+	 * 
+	 * @param nullMovePruning
+	 */
+	public void setNullMovePruning(boolean nullMovePruning) {
+		this.nullMovePruning = nullMovePruning;
 	}
 
 	/**
@@ -36,27 +289,294 @@ public class AlphaBetaMinimax {
 	 *         result in us losing
 	 */
 	public MinimaxResponse minimaxDecision(BohnenspielBoardState boardState, int movesToGo) {
+		return minimaxDecision(new MutableBoardState(boardState), movesToGo);
+	}
+
+	/**
+	 * Same as minimaxDecision(BohnenspielBoardState, int), searching the given
+	 * state in place, which is left as it was
+	 * 
+	 * @param boardState
+	 * @param movesToGo
+	 * @return
+	 */
+	public MinimaxResponse minimaxDecision(MutableBoardState boardState, int movesToGo) {
 		if (movesToGo <= 0) {
 			throw new InvalidDepthException();
 		}
 
+		startSearch(NO_DEADLINE);
+		BohnenspielMove bestMove = this.mtdf
+				? searchRootMtdf(boardState, boardState.getLegalMoves(), movesToGo, getUtility(boardState))
+				: searchRoot(boardState, boardState.getLegalMoves(), movesToGo, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		this.stats.iterationDone(movesToGo, this.stats.nodes);
+		return new MinimaxResponse(bestMove, false, bestMove == null ? true : false, getStats());
+	}
+
+	/**
+	 * Chooses a move by searching one move deeper at a time until the given
+	 * deadline passes. The clock is checked cheaply inside the search, and a
+	 * search that runs out of time is abandoned, so this returns shortly after
+	 * the deadline with the best move from the deepest search that finished.
+	 * 
+	 * @param boardState
+	 *            - a copy of the current board state
+	 * @param deadline
+	 *            - the System.nanoTime() by which we must have a move
+	 * @return The best move from the deepest completed search, along with the
+	 *         depth reached, the number of nodes searched and the rest of the
+	 *         search statistics
+	 */
+	public MinimaxResponse iterativeDeepeningDecision(BohnenspielBoardState boardState, long deadline) {
+		return iterativeDeepeningDecision(new MutableBoardState(boardState), deadline);
+	}
+
+	/**
+	 * Same as iterativeDeepeningDecision(BohnenspielBoardState, long),
+	 * searching the given state in place, which is left as it was
+	 * 
+	 * @param boardState
+	 * @param deadline
+	 * @return
+	 */
+	public MinimaxResponse iterativeDeepeningDecision(MutableBoardState boardState, long deadline) {
+		startSearch(deadline);
+		return iterativeDeepening(boardState, 1, MAX_DEPTH);
+	}
+
+	/**
+	 * Searches one move deeper at a time up to the given depth, with no
+	 * deadline, so that benchmarks can compare searches that carry results
+	 * from one iteration to the next on equal terms
+	 * 
+	 * @param boardState
+	 * @param movesToGo
+	 *            - the depth of the last iteration
+	 * @return
+	 */
+	MinimaxResponse deepeningDecision(MutableBoardState boardState, int movesToGo) {
+		startSearch(NO_DEADLINE);
+		return iterativeDeepening(boardState, 1, movesToGo);
+	}
+
+	/**
+	 * Runs iterative deepening between the given depths, without starting a
+	 * new search
+	 * 
+	 * @param boardState
+	 * @param firstDepth
+	 * @param lastDepth
+	 * @return
+	 */
+	private MinimaxResponse iterativeDeepening(MutableBoardState boardState, int firstDepth, int lastDepth) {
+		ArrayList<BohnenspielMove> moves = boardState.getLegalMoves();
+		BohnenspielMove bestMove = null;
+		int depthReached = 0;
+		for (int depth = firstDepth; depth <= lastDepth; depth++) {
+			if (this.timeManager != null && !this.timeManager.shouldStartIteration()) {
+				// the iteration would not finish in time
+				break;
+			}
+			long nodesBefore = this.stats.nodes;
+			this.reachedHorizon = false;
+			BohnenspielMove move;
+			if (this.mtdf) {
+				// the first iteration's guess is the position as it stands
+				move = searchRootMtdf(boardState, moves, depth,
+						depthReached > 0 ? this.rootScore : getUtility(boardState));
+			} else if (depthReached > 0 && this.aspirationWindow > 0) {
+				move = searchRootAspiration(boardState, moves, depth, this.rootScore);
+			} else {
+				move = searchRoot(boardState, moves, depth, Integer.MIN_VALUE, Integer.MAX_VALUE);
+			}
+			if (this.aborted) {
+				break;
+			}
+			bestMove = move;
+			depthReached = depth;
+			this.stats.iterationDone(depth, this.stats.nodes - nodesBefore);
+			if (this.timeManager != null) {
+				this.timeManager.iterationDone(move, this.stats.nodes - nodesBefore);
+			}
+			if (move == null || this.rootScore == Integer.MAX_VALUE || !this.reachedHorizon) {
+				// we have lost, won, or seen every line through to the end of
+				// the game, so searching deeper will not change anything
+				break;
+			}
+			// search the best move first next time
+			moves.remove(move);
+			moves.add(0, move);
+		}
+
+		if (depthReached == 0 && !moves.isEmpty()) {
+			// not even one move deep in time; play something legal
+			bestMove = moves.get(0);
+		}
+
+		return new MinimaxResponse(bestMove, false, bestMove == null ? true : false, getStats());
+	}
+
+	private void startSearch(long deadline) {
+		this.deadline = deadline;
+		this.aborted = false;
+		this.stats.start();
+		if (this.table != null) {
+			this.table.newSearch();
+		}
+		if (this.ordering != null) {
+			this.ordering.newSearch();
+		}
+	}
+
+	/**
+	 * Returns whether the search is out of time. Only looks at the clock every
+	 * so many nodes, since System.nanoTime() is comparatively expensive.
+	 * 
+	 * @return
+	 */
+	private boolean timeUp() {
+		if ((++this.stats.nodes & DEADLINE_CHECK_MASK) == 0 && (System.nanoTime() >= this.deadline || this.stopped)) {
+			this.aborted = true;
+		}
+		return this.aborted;
+	}
+
+	/**
+	 * Searches the root with a window around the score we expect, widening
+	 * the side it falls outside of and searching again until the score falls
+	 * inside. Sets rootScore to the score of the returned move.
+	 * 
+	 * @param boardState
+	 * @param moves
+	 *            - the legal moves, in the order to search them
+	 * @param movesToGo
+	 * @param expectedScore
+	 *            - the last iteration's score
+	 * @return as searchRoot
+	 */
+	private BohnenspielMove searchRootAspiration(MutableBoardState boardState, ArrayList<BohnenspielMove> moves,
+			int movesToGo, int expectedScore) {
+		if (expectedScore == Integer.MIN_VALUE || expectedScore == Integer.MAX_VALUE) {
+			return searchRoot(boardState, moves, movesToGo, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		}
+		long lowDelta = this.aspirationWindow;
+		long highDelta = this.aspirationWindow;
+		while (true) {
+			// long arithmetic, so that a window wider than the range of scores
+			// becomes a full one rather than overflowing
+			int alpha = (int) Math.max(Integer.MIN_VALUE, expectedScore - lowDelta);
+			int beta = (int) Math.min(Integer.MAX_VALUE, expectedScore + highDelta);
+			BohnenspielMove move = searchRoot(boardState, moves, movesToGo, alpha, beta);
+			if (this.aborted || move == null || this.rootScore == Integer.MAX_VALUE) {
+				// out of time, or every move loses or one wins whatever the
+				// window
+				return move;
+			}
+			if (this.rootScore <= alpha && alpha != Integer.MIN_VALUE) {
+				// failed low: every move is at most alpha
+				lowDelta *= 4;
+			} else if (this.rootScore >= beta && beta != Integer.MAX_VALUE) {
+				// failed high: some move is at least beta
+				highDelta *= 4;
+			} else {
+				return move;
+			}
+			this.stats.researches++;
+		}
+	}
+
+	/**
+	 * Searches the root by MTD(f): with a null window at the guessed score,
+	 * then again at each score returned, narrowing the range the root's score
+	 * is known to lie in, until a search returns exactly its bound. Sets
+	 * rootScore to the score of the returned move.
+	 * 
+	 * @param boardState
+	 * @param moves
+	 *            - the legal moves, in the order to search them
+	 * @param movesToGo
+	 * @param guess
+	 *            - the score we expect, such as the last iteration's
+	 * @return as searchRoot
+	 */
+	private BohnenspielMove searchRootMtdf(MutableBoardState boardState, ArrayList<BohnenspielMove> moves,
+			int movesToGo, int guess) {
+		if (guess == Integer.MIN_VALUE || guess == Integer.MAX_VALUE) {
+			return searchRoot(boardState, moves, movesToGo, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		}
+		// the root's score is known to lie between lowerBound and upperBound,
+		// and the last search to show a move reaching lowerBound found
+		// lowerBoundMove
+		int lowerBound = Integer.MIN_VALUE;
+		int upperBound = Integer.MAX_VALUE;
+		BohnenspielMove lowerBoundMove = null;
+		int bound = guess;
+		while (true) {
+			BohnenspielMove move = searchRoot(boardState, moves, movesToGo, bound, bound);
+			if (this.aborted || move == null || this.rootScore == Integer.MAX_VALUE || this.rootScore == bound) {
+				// out of time, every move loses or one wins, or the score is
+				// exactly the bound
+				return move;
+			}
+			if (this.rootScore < bound) {
+				upperBound = this.rootScore;
+			} else {
+				lowerBound = this.rootScore;
+				lowerBoundMove = move;
+			}
+			if (lowerBound >= upperBound) {
+				// the table gave results from searches of different depths
+				// that do not agree; settle for the move known to be good
+				if (lowerBoundMove != null) {
+					this.rootScore = lowerBound;
+					return lowerBoundMove;
+				}
+				return move;
+			}
+			bound = this.rootScore;
+			this.stats.researches++;
+		}
+	}
+
+	/**
+	 * Max player's move at the root of the tree. Sets rootScore to the score
+	 * of the returned move.
+	 * 
+	 * @param boardState
+	 * @param moves
+	 *            - the legal moves, in the order to search them
+	 * @param movesToGo
+	 * @param alpha
+	 * @param beta
+	 * @return The best move or null if all moves result in us losing. If the
+	 *         best score is at most alpha or at least beta it is only a bound,
+	 *         and the move may not be the best. The result is meaningless if
+	 *         the search was aborted.
+	 */
+	private BohnenspielMove searchRoot(MutableBoardState boardState, ArrayList<BohnenspielMove> moves,
+			int movesToGo, int alpha, int beta) {
+		setRootDepth(movesToGo);
 		BohnenspielMove bestMove = null;
 		int bestScore = Integer.MIN_VALUE;
 
-		int alpha = Integer.MIN_VALUE;
-		int beta = Integer.MAX_VALUE;
-
 		int projectedMoveScore;
-		for (BohnenspielMove move : boardState.getLegalMoves()) {
-			// clone the current board state
-			BohnenspielBoardState clonedBoardState = (BohnenspielBoardState) boardState.clone();
-			// make the move on the cloned board state
-			clonedBoardState.move(move);
+		for (BohnenspielMove move : moves) {
+			// make the move in place, remembering how to take it back
+			long undo = boardState.apply(move);
 			// get score expected if we make this move
-			projectedMoveScore = minValue(clonedBoardState, movesToGo - 1, alpha, beta);
+			if (this.pvs && bestMove != null) {
+				projectedMoveScore = nullWindowMinValue(boardState, movesToGo - 1, alpha, beta);
+			} else {
+				projectedMoveScore = minValue(boardState, movesToGo - 1, alpha, beta);
+			}
+			boardState.undo(undo);
+			if (this.aborted) {
+				return null;
+			}
 			if (projectedMoveScore == Integer.MAX_VALUE) {
 				// this move results in us winning --> take it
-				return new MinimaxResponse(move, false, false);
+				this.rootScore = Integer.MAX_VALUE;
+				return move;
 			} else if (projectedMoveScore == Integer.MIN_VALUE) {
 				// this move results in us losing --> move onto the next move
 				continue;
@@ -64,7 +584,7 @@ public class AlphaBetaMinimax {
 			// update the best move/score if applicable
 			if (projectedMoveScore > bestScore) {
 				bestScore = projectedMoveScore;
-				alpha = projectedMoveScore;
+				alpha = Math.max(alpha, projectedMoveScore);
 				bestMove = move;
 			}
 			// is it worth considering any other moves?
@@ -74,7 +594,23 @@ public class AlphaBetaMinimax {
 			}
 		}
 
-		return new MinimaxResponse(bestMove, false, bestMove == null ? true : false);
+		this.rootScore = bestScore;
+		return bestMove;
+	}
+
+	/**
+	 * @return the score of the move chosen by the last search, to the max
+	 *         player
+	 */
+	int getRootScore() {
+		return this.rootScore;
+	}
+
+	private void setRootDepth(int movesToGo) {
+		this.rootDepth = movesToGo;
+		if (movesToGo + this.quiescence >= this.moveBuffers.length) {
+			this.moveBuffers = new int[movesToGo + this.quiescence + 1][MutableBoardState.MAX_MOVES];
+		}
 	}
 
 	/**
@@ -83,43 +619,116 @@ public class AlphaBetaMinimax {
 	 * @param boardState
 	 * @return
 	 */
-	private int minValue(BohnenspielBoardState boardState, int movesToGo, int alpha, int beta) {
-		if (boardState.gameOver()) {
+	private int minValue(MutableBoardState boardState, int movesToGo, int alpha, int beta) {
+		if (timeUp()) {
+			return 0;
+		} else if (boardState.gameOver()) {
 			if (boardState.getWinner() == this.player) {
 				return Integer.MAX_VALUE;
 			} else {
 				return Integer.MIN_VALUE;
 			}
-		} else if (movesToGo == 0) {
-			return getUtility(boardState);
+		} else if (this.tablebase != null) {
+			int result = probeTablebase(boardState);
+			if (result != 0) {
+				return result;
+			}
+		}
+		if (movesToGo == 0) {
+			this.reachedHorizon = true;
+			return minQuiescence(boardState, this.quiescence, alpha, beta);
+		}
+
+		long key = 0;
+		int tableMove = TranspositionTable.NO_MOVE;
+		if (this.table != null) {
+			key = boardState.getHashKey();
+			long entry = probeTable(key);
+			if (isUsable(entry, movesToGo, alpha, beta)) {
+				return TranspositionTable.getScore(entry);
+			} else if (entry != 0) {
+				tableMove = TranspositionTable.getMove(entry);
+			}
 		}
 
+		if (alpha != Integer.MIN_VALUE && canSkipForNullMove(boardState, movesToGo)
+				&& getUtility(boardState) <= alpha) {
+			// if even skipping leaves the max player below alpha, the min
+			// player's best move surely does
+			this.stats.nullMoves++;
+			long undo = apply(boardState, MutableBoardState.SKIP);
+			int score = maxValue(boardState, movesToGo - 1 - NULL_MOVE_REDUCTION, alpha, alpha);
+			boardState.undo(undo);
+			if (this.aborted) {
+				return 0;
+			}
+			if (score < alpha) {
+				this.stats.nullMoveCutoffs++;
+				return score;
+			}
+		}
+
+		int ply = this.rootDepth - movesToGo;
+		int[] moves = this.moveBuffers[ply];
+		int numMoves = generateMoves(boardState, moves);
+		if (this.ordering != null) {
+			this.ordering.order(boardState, moves, numMoves, ply, tableMove);
+		}
+
+		int originalAlpha = alpha;
+		int originalBeta = beta;
 		int bestScore = Integer.MAX_VALUE;
+		int bestMove = TranspositionTable.NO_MOVE;
 		int projectedMoveScore;
-		for (BohnenspielMove move : boardState.getLegalMoves()) {
-			BohnenspielBoardState clonedBoardState = (BohnenspielBoardState) boardState.clone();
-			clonedBoardState.move(move);
-			projectedMoveScore = maxValue(clonedBoardState, movesToGo - 1, alpha, beta);
+		for (int i = 0; i < numMoves; i++) {
+			int move = moves[i];
+			int seeds = movesToGo == 1 && this.futilityPruning || this.lateMoveReductions
+					? boardState.getCaptureSeeds(move) : 0;
+			if (movesToGo == 1 && this.futilityPruning) {
+				// the least the move can be worth to the max player
+				int bound = getFutilityBound(boardState, 1 - this.player, seeds);
+				if (bound != Integer.MAX_VALUE && -bound > beta) {
+					this.stats.futilityPrunes++;
+					bestScore = Math.min(bestScore, -bound);
+					continue;
+				}
+			}
+			long undo = apply(boardState, move);
+			if (isLateMove(movesToGo, i, seeds) && beta != Integer.MAX_VALUE) {
+				projectedMoveScore = reducedMaxValue(boardState, movesToGo - 1, alpha, beta);
+			} else if (this.pvs && i > 0 && beta != Integer.MAX_VALUE) {
+				projectedMoveScore = nullWindowMaxValue(boardState, movesToGo - 1, alpha, beta);
+			} else {
+				projectedMoveScore = maxValue(boardState, movesToGo - 1, alpha, beta);
+			}
+			boardState.undo(undo);
+			if (this.aborted) {
+				return 0;
+			}
 			if (projectedMoveScore == Integer.MAX_VALUE) {
 				// this move results in the min player losing --> try the next
 				// one
 				continue;
 			} else if (projectedMoveScore == Integer.MIN_VALUE) {
 				// this move results in the min player winning
+				storeInTable(key, movesToGo, TranspositionTable.EXACT, Integer.MIN_VALUE, move);
 				return Integer.MIN_VALUE;
 			}
 			// update the best score (and beta) if applicable
 			if (projectedMoveScore < bestScore) {
 				bestScore = projectedMoveScore;
-				beta = projectedMoveScore;
+				beta = Math.min(beta, projectedMoveScore);
+				bestMove = move;
 			}
 			// is it worth considering any other moves?
 			if (beta < alpha) {
 				// this path will not be allowed by the maximizer --> prune
+				recordCutoff(boardState, move, i, movesToGo);
 				break;
 			}
 		}
 
+		storeInTable(key, movesToGo, getBound(bestScore, originalAlpha, originalBeta), bestScore, bestMove);
 		return bestScore;
 	}
 
@@ -130,25 +739,94 @@ public class AlphaBetaMinimax {
 	 * @param boardState
 	 * @return
 	 */
-	private int maxValue(BohnenspielBoardState boardState, int movesToGo, int alpha, int beta) {
-		if (boardState.gameOver()) {
+	private int maxValue(MutableBoardState boardState, int movesToGo, int alpha, int beta) {
+		if (timeUp()) {
+			return 0;
+		} else if (boardState.gameOver()) {
 			if (boardState.getWinner() == this.player) {
 				return Integer.MAX_VALUE;
 			} else {
 				return Integer.MIN_VALUE;
 			}
-		} else if (movesToGo == 0) {
-			return getUtility(boardState);
+		} else if (this.tablebase != null) {
+			int result = probeTablebase(boardState);
+			if (result != 0) {
+				return result;
+			}
+		}
+		if (movesToGo == 0) {
+			this.reachedHorizon = true;
+			return maxQuiescence(boardState, this.quiescence, alpha, beta);
+		}
+
+		long key = 0;
+		int tableMove = TranspositionTable.NO_MOVE;
+		if (this.table != null) {
+			key = boardState.getHashKey();
+			long entry = probeTable(key);
+			if (isUsable(entry, movesToGo, alpha, beta)) {
+				return TranspositionTable.getScore(entry);
+			} else if (entry != 0) {
+				tableMove = TranspositionTable.getMove(entry);
+			}
+		}
+
+		if (beta != Integer.MAX_VALUE && canSkipForNullMove(boardState, movesToGo)
+				&& getUtility(boardState) >= beta) {
+			// if the max player stays above beta even after skipping, their
+			// best move surely does
+			this.stats.nullMoves++;
+			long undo = apply(boardState, MutableBoardState.SKIP);
+			int score = minValue(boardState, movesToGo - 1 - NULL_MOVE_REDUCTION, beta, beta);
+			boardState.undo(undo);
+			if (this.aborted) {
+				return 0;
+			}
+			if (score > beta) {
+				this.stats.nullMoveCutoffs++;
+				return score;
+			}
 		}
 
+		int ply = this.rootDepth - movesToGo;
+		int[] moves = this.moveBuffers[ply];
+		int numMoves = generateMoves(boardState, moves);
+		if (this.ordering != null) {
+			this.ordering.order(boardState, moves, numMoves, ply, tableMove);
+		}
+
+		int originalAlpha = alpha;
+		int originalBeta = beta;
 		int bestScore = Integer.MIN_VALUE;
+		int bestMove = TranspositionTable.NO_MOVE;
 		int projectedMoveScore;
-		for (BohnenspielMove move : boardState.getLegalMoves()) {
-			BohnenspielBoardState clonedBoardState = (BohnenspielBoardState) boardState.clone();
-			clonedBoardState.move(move);
-			projectedMoveScore = minValue(clonedBoardState, movesToGo - 1, alpha, beta);
+		for (int i = 0; i < numMoves; i++) {
+			int move = moves[i];
+			int seeds = movesToGo == 1 && this.futilityPruning || this.lateMoveReductions
+					? boardState.getCaptureSeeds(move) : 0;
+			if (movesToGo == 1 && this.futilityPruning) {
+				int bound = getFutilityBound(boardState, this.player, seeds);
+				if (bound < alpha) {
+					this.stats.futilityPrunes++;
+					bestScore = Math.max(bestScore, bound);
+					continue;
+				}
+			}
+			long undo = apply(boardState, move);
+			if (isLateMove(movesToGo, i, seeds) && alpha != Integer.MIN_VALUE) {
+				projectedMoveScore = reducedMinValue(boardState, movesToGo - 1, alpha, beta);
+			} else if (this.pvs && i > 0 && alpha != Integer.MIN_VALUE) {
+				projectedMoveScore = nullWindowMinValue(boardState, movesToGo - 1, alpha, beta);
+			} else {
+				projectedMoveScore = minValue(boardState, movesToGo - 1, alpha, beta);
+			}
+			boardState.undo(undo);
+			if (this.aborted) {
+				return 0;
+			}
 			if (projectedMoveScore == Integer.MAX_VALUE) {
 				// this move results in the max player winning --> take it
+				storeInTable(key, movesToGo, TranspositionTable.EXACT, Integer.MAX_VALUE, move);
 				return Integer.MAX_VALUE;
 			} else if (projectedMoveScore == Integer.MIN_VALUE) {
 				// this move results in the min player winning --> try a
@@ -158,201 +836,654 @@ public class AlphaBetaMinimax {
 			// update the best score and alpha if applicable
 			if (projectedMoveScore > bestScore) {
 				bestScore = projectedMoveScore;
-				alpha = projectedMoveScore;
+				alpha = Math.max(alpha, projectedMoveScore);
+				bestMove = move;
 			}
 			// is it worth considering any other moves?
 			if (alpha > beta) {
 				// this path will not be allowed by the minimizer --> prune
+				recordCutoff(boardState, move, i, movesToGo);
 				break;
 			}
 		}
 
+		storeInTable(key, movesToGo, getBound(bestScore, originalAlpha, originalBeta), bestScore, bestMove);
 		return bestScore;
 	}
 
 	/**
-	 * Computes and returns the value of a utility function, based on the
-	 * utility function specified when this AlphaBetaMinimax object was created
+	 * Searches a max player's move other than the first with a null window,
+	 * which shows whether the move is better than alpha, and searches it again
+	 * with the full window only if it is and the score is needed exactly
 	 * 
 	 * @param boardState
+	 *            - the position after the move
+	 * @param movesToGo
+	 * @param alpha
+	 * @param beta
 	 * @return
-	 * @throws UndefinedUtilityFunctionException
 	 */
-	private int getUtility(BohnenspielBoardState boardState) throws UndefinedUtilityFunctionException {
-		if (this.utilityFunction == 0) {
-			return scoreDifference(boardState);
-		} else if (this.utilityFunction == 1) {
-			return scoreAndBeanDifference(boardState);
-		} else if (this.utilityFunction == 2) {
-			return scoreAndBeanDifference2(boardState);
-		} else if (this.utilityFunction == 3) {
-			return scoreAndBeanDifferenceWithBeansLeft(boardState);
-		} else if (this.utilityFunction == 4) {
-			return scoreAndBeanDifferenceWithBeansLeft2(boardState);
-		} else if (this.utilityFunction == 5) {
-			return scoreAndBeanDifferenceWithBeansLeft3(boardState);
-		} else if (this.utilityFunction == 6) {
-			return scoreAndBeanDifferenceWithBeansLeft4(boardState);
-		} else if (this.utilityFunction == 7) {
-			return scoreDifferenceWithBeansLeft(boardState);
-		}
-		throw new UndefinedUtilityFunctionException();
+	private int nullWindowMinValue(MutableBoardState boardState, int movesToGo, int alpha, int beta) {
+		int score = minValue(boardState, movesToGo, alpha, alpha);
+		if (score > alpha && score <= beta && !this.aborted) {
+			this.stats.researches++;
+			score = minValue(boardState, movesToGo, alpha, beta);
+		}
+		return score;
 	}
 
-	// =========================================================================
-	// Utility functions
-	// =========================================================================
+	/**
+	 * Searches a min player's move other than the first with a null window,
+	 * as nullWindowMinValue does for the max player
+	 * 
+	 * @param boardState
+	 *            - the position after the move
+	 * @param movesToGo
+	 * @param alpha
+	 * @param beta
+	 * @return
+	 */
+	private int nullWindowMaxValue(MutableBoardState boardState, int movesToGo, int alpha, int beta) {
+		int score = maxValue(boardState, movesToGo, beta, beta);
+		if (score < beta && score >= alpha && !this.aborted) {
+			this.stats.researches++;
+			score = maxValue(boardState, movesToGo, alpha, beta);
+		}
+		return score;
+	}
+
+	/**
+	 * Searches a late max player's move one move shallower with a null window,
+	 * and again to the full depth if that shows it might be better than alpha
+	 * 
+	 * @param boardState
+	 *            - the position after the move
+	 * @param movesToGo
+	 *            - the full depth
+	 * @param alpha
+	 * @param beta
+	 * @return
+	 */
+	private int reducedMinValue(MutableBoardState boardState, int movesToGo, int alpha, int beta) {
+		this.stats.reductions++;
+		int score = minValue(boardState, movesToGo - LMR_REDUCTION, alpha, alpha);
+		if (score > alpha && !this.aborted) {
+			this.stats.researches++;
+			score = this.pvs ? nullWindowMinValue(boardState, movesToGo, alpha, beta)
+					: minValue(boardState, movesToGo, alpha, beta);
+		}
+		return score;
+	}
 
 	/**
-	 * Returns the difference in score between the two players in this board
-	 * state
+	 * Searches a late min player's move, as reducedMinValue does for the max
+	 * player
 	 * 
 	 * @param boardState
+	 *            - the position after the move
+	 * @param movesToGo
+	 *            - the full depth
+	 * @param alpha
+	 * @param beta
 	 * @return
 	 */
-	private int scoreDifference(BohnenspielBoardState boardState) {
-		return boardState.getScore(this.player) - boardState.getScore(1 - this.player);
+	private int reducedMaxValue(MutableBoardState boardState, int movesToGo, int alpha, int beta) {
+		this.stats.reductions++;
+		int score = maxValue(boardState, movesToGo - LMR_REDUCTION, beta, beta);
+		if (score < beta && !this.aborted) {
+			this.stats.researches++;
+			score = this.pvs ? nullWindowMaxValue(boardState, movesToGo, alpha, beta)
+					: maxValue(boardState, movesToGo, alpha, beta);
+		}
+		return score;
 	}
 
 	/**
-	 * The more beans we have on our side, the more control we have, and the
-	 * more likely it is that our opponent can't make a move. Thus, we might
-	 * want to factor in the number of beans on either side.
+	 * Returns whether null move pruning may skip the turn of the player to
+	 * move in a position
+	 * 
+	 * @param boardState
+	 * @param movesToGo
+	 * @return
 	 */
-	private int scoreAndBeanDifference(BohnenspielBoardState boardState) {
-		int[][] pits = boardState.getPits();
-		int myBeans = 0;
-		int yourBeans = 0;
-		for (Integer beans : pits[this.player]) {
-			myBeans += beans;
+	private boolean canSkipForNullMove(MutableBoardState boardState, int movesToGo) {
+		if (!this.nullMovePruning || movesToGo < NULL_MOVE_MIN_DEPTH) {
+			return false;
 		}
-		for (Integer beans : pits[1 - this.player]) {
-			yourBeans += beans;
+		int player = boardState.getTurnPlayer();
+		return boardState.getTurnsToSkip(player) == 0 && boardState.getCredit(player) >= NULL_MOVE_MIN_CREDIT
+				&& boardState.getSeedsOnSide(player) >= NULL_MOVE_MIN_SEEDS;
+	}
+
+	/**
+	 * Returns whether late move reductions search a move first at a reduced
+	 * depth
+	 * 
+	 * @param movesToGo
+	 * @param index
+	 *            - the number of moves searched before it
+	 * @param seeds
+	 *            - the seeds it captures
+	 * @return
+	 */
+	private boolean isLateMove(int movesToGo, int index, int seeds) {
+		return this.lateMoveReductions && movesToGo >= LMR_MIN_DEPTH && index >= LMR_FULL_MOVES && seeds == 0;
+	}
+
+	/**
+	 * Returns an upper bound on the value to the given player, who is to
+	 * move, of the position after a move of theirs one move from the horizon
+	 * or in quiescence: the evaluator's bound given the seeds it captures,
+	 * since the opponent then only stands pat or captures. Moves that might
+	 * end the game are not bounded: those that could leave the opponent
+	 * without seeds, near the turn limit, or with few enough seeds left for
+	 * the tablebase.
+	 * 
+	 * @param boardState
+	 * @param player
+	 * @param seeds
+	 *            - the seeds the move captures
+	 * @return the bound, or Integer.MAX_VALUE if there is none
+	 */
+	private int getFutilityBound(MutableBoardState boardState, int player, int seeds) {
+		if (boardState.getSeedsOnSide(1 - player) <= seeds
+				|| boardState.getTurnNumber() >= BohnenspielBoardState.MAX_TURN
+				|| (this.tablebase != null && boardState.getSeedsLeft() - seeds <= this.tablebase.getMaxSeeds())) {
+			return Integer.MAX_VALUE;
 		}
-		return (boardState.getScore(this.player) - boardState.getScore(1 - this.player)) + (myBeans - yourBeans);
+		return this.evaluator.getCaptureBound(boardState, player, seeds);
 	}
 
 	/**
-	 * Same as the above except we don't value bean difference as highly.
+	 * Scores a max player's position at the search horizon by searching only
+	 * the moves that capture. The max player may stand pat, i.e. settle for
+	 * the position's evaluation rather than capture, since they could always
+	 * make a quiet move instead. A capture that could not raise the score
+	 * above alpha even if it left the best position it could is not searched
+	 * (delta pruning), unless it might end the game (see getFutilityBound).
+	 * 
+	 * @param boardState
+	 * @param pliesLeft
+	 *            - how many more captures may be searched
+	 * @param alpha
+	 * @param beta
+	 * @return
 	 */
-	private int scoreAndBeanDifference2(BohnenspielBoardState boardState) {
-		int[][] pits = boardState.getPits();
-		int myBeans = 0;
-		int yourBeans = 0;
-		for (Integer beans : pits[this.player]) {
-			myBeans += beans;
+	private int maxQuiescence(MutableBoardState boardState, int pliesLeft, int alpha, int beta) {
+		int standPat = getUtility(boardState);
+		if (pliesLeft == 0 || standPat > beta) {
+			return standPat;
 		}
-		for (Integer beans : pits[1 - this.player]) {
-			yourBeans += beans;
+		alpha = Math.max(alpha, standPat);
+
+		int[] captures = this.moveBuffers[this.rootDepth + this.quiescence - pliesLeft];
+		int numCaptures = generateCaptures(boardState, captures);
+		int bestScore = standPat;
+		for (int i = 0; i < numCaptures; i++) {
+			int move = captures[i] & CAPTURE_MOVE_MASK;
+			int seeds = captures[i] >>> CAPTURE_SEEDS_SHIFT;
+			int bound = getFutilityBound(boardState, this.player, seeds);
+			if (bound < alpha) {
+				bestScore = Math.max(bestScore, bound);
+				continue;
+			}
+			long undo = apply(boardState, move);
+			int projectedMoveScore = minQuiescenceNode(boardState, pliesLeft - 1, alpha, beta);
+			boardState.undo(undo);
+			if (this.aborted) {
+				return 0;
+			}
+			if (projectedMoveScore == Integer.MAX_VALUE) {
+				return Integer.MAX_VALUE;
+			} else if (projectedMoveScore == Integer.MIN_VALUE) {
+				continue;
+			}
+			if (projectedMoveScore > bestScore) {
+				bestScore = projectedMoveScore;
+				alpha = Math.max(alpha, projectedMoveScore);
+			}
+			if (alpha > beta) {
+				this.stats.cutoffs++;
+				break;
+			}
 		}
-		return (boardState.getScore(this.player) - boardState.getScore(1 - this.player))
-				+ (int) (0.5 * (myBeans - yourBeans));
+		return bestScore;
 	}
 
 	/**
-	 * Same as the above but now we also factor in the number of beans left. The
-	 * fewer beans left, the closer we are to winning (assuming we are ahead).
+	 * Scores a min player's position at the search horizon, as maxQuiescence
+	 * does for the max player. The evaluators are zero-sum, so the bound on
+	 * what a capture gains the min player is a bound the other way on its
+	 * value to the max player.
+	 * 
+	 * @param boardState
+	 * @param pliesLeft
+	 * @param alpha
+	 * @param beta
+	 * @return
 	 */
-	private int scoreAndBeanDifferenceWithBeansLeft(BohnenspielBoardState boardState) {
-		int[][] pits = boardState.getPits();
-		int myBeans = 0;
-		int yourBeans = 0;
-		for (Integer beans : pits[this.player]) {
-			myBeans += beans;
+	private int minQuiescence(MutableBoardState boardState, int pliesLeft, int alpha, int beta) {
+		int standPat = getUtility(boardState);
+		if (pliesLeft == 0 || standPat < alpha) {
+			return standPat;
+		}
+		beta = Math.min(beta, standPat);
+
+		int[] captures = this.moveBuffers[this.rootDepth + this.quiescence - pliesLeft];
+		int numCaptures = generateCaptures(boardState, captures);
+		int bestScore = standPat;
+		for (int i = 0; i < numCaptures; i++) {
+			int move = captures[i] & CAPTURE_MOVE_MASK;
+			int seeds = captures[i] >>> CAPTURE_SEEDS_SHIFT;
+			int bound = getFutilityBound(boardState, 1 - this.player, seeds);
+			if (bound != Integer.MAX_VALUE && -bound > beta) {
+				bestScore = Math.min(bestScore, -bound);
+				continue;
+			}
+			long undo = apply(boardState, move);
+			int projectedMoveScore = maxQuiescenceNode(boardState, pliesLeft - 1, alpha, beta);
+			boardState.undo(undo);
+			if (this.aborted) {
+				return 0;
+			}
+			if (projectedMoveScore == Integer.MAX_VALUE) {
+				continue;
+			} else if (projectedMoveScore == Integer.MIN_VALUE) {
+				return Integer.MIN_VALUE;
+			}
+			if (projectedMoveScore < bestScore) {
+				bestScore = projectedMoveScore;
+				beta = Math.min(beta, projectedMoveScore);
+			}
+			if (beta < alpha) {
+				this.stats.cutoffs++;
+				break;
+			}
 		}
-		for (Integer beans : pits[1 - this.player]) {
-			yourBeans += beans;
+		return bestScore;
+	}
+
+	/**
+	 * Fills captures with the legal moves from a position that capture, each
+	 * with the seeds it captures, the biggest captures first
+	 * 
+	 * @param boardState
+	 * @param captures
+	 * @return the number of captures
+	 */
+	private int generateCaptures(MutableBoardState boardState, int[] captures) {
+		int numMoves = generateMoves(boardState, captures);
+		int numCaptures = 0;
+		for (int i = 0; i < numMoves; i++) {
+			int seeds = boardState.getCaptureSeeds(captures[i]);
+			if (seeds == 0) {
+				continue;
+			}
+			// insertion sort, since there are at most a handful
+			int capture = seeds << CAPTURE_SEEDS_SHIFT | captures[i];
+			int j = numCaptures++;
+			for (; j > 0 && captures[j - 1] < capture; j--) {
+				captures[j] = captures[j - 1];
+			}
+			captures[j] = capture;
 		}
-		return (MAX_BEANS - (myBeans + yourBeans))
-				* (boardState.getScore(this.player) - boardState.getScore(1 - this.player))
-				+ (int) (0.5 * (myBeans - yourBeans));
+		return numCaptures;
 	}
 
 	/**
-	 * Similar to the above, but we group the bean difference with the score
-	 * difference
+	 * Visits a max player's position reached by a capture in quiescence search
 	 * 
 	 * @param boardState
+	 * @param pliesLeft
+	 * @param alpha
+	 * @param beta
 	 * @return
 	 */
-	private int scoreAndBeanDifferenceWithBeansLeft2(BohnenspielBoardState boardState) {
-		int[][] pits = boardState.getPits();
-		int myBeans = 0;
-		int yourBeans = 0;
-		for (Integer beans : pits[this.player]) {
-			myBeans += beans;
+	private int maxQuiescenceNode(MutableBoardState boardState, int pliesLeft, int alpha, int beta) {
+		this.stats.quiescenceNodes++;
+		if (timeUp()) {
+			return 0;
+		} else if (boardState.gameOver()) {
+			return boardState.getWinner() == this.player ? Integer.MAX_VALUE : Integer.MIN_VALUE;
 		}
-		for (Integer beans : pits[1 - this.player]) {
-			yourBeans += beans;
+		return maxQuiescence(boardState, pliesLeft, alpha, beta);
+	}
+
+	/**
+	 * Visits a min player's position reached by a capture in quiescence search
+	 * 
+	 * @param boardState
+	 * @param pliesLeft
+	 * @param alpha
+	 * @param beta
+	 * @return
+	 */
+	private int minQuiescenceNode(MutableBoardState boardState, int pliesLeft, int alpha, int beta) {
+		this.stats.quiescenceNodes++;
+		if (timeUp()) {
+			return 0;
+		} else if (boardState.gameOver()) {
+			return boardState.getWinner() == this.player ? Integer.MAX_VALUE : Integer.MIN_VALUE;
 		}
-		return (MAX_BEANS - (myBeans + yourBeans))
-				* (3 * (boardState.getScore(this.player) - boardState.getScore(1 - this.player))
-						+ (myBeans - yourBeans));
+		return minQuiescence(boardState, pliesLeft, alpha, beta);
+	}
+
+	// =========================================================================
+	// Searching single root moves, for ParallelAlphaBetaMinimax
+	// =========================================================================
+
+	/**
+	 * Prepares this search to search root moves one at a time until the given
+	 * deadline. Unlike iterativeDeepeningDecision this does not start a new
+	 * search in the transposition table, since the table is shared with the
+	 * other workers.
+	 *
+	 * @param deadline
+	 */
+	void startWorker(long deadline) {
+		this.deadline = deadline;
+		this.aborted = false;
+		this.stats.start();
+		if (this.ordering != null) {
+			this.ordering.newSearch();
+		}
+	}
+
+	/**
+	 * Prepares for the next iteration of iterative deepening
+	 */
+	void startIteration() {
+		this.reachedHorizon = false;
+	}
+
+	/**
+	 * Scores a single root move. As with searchRoot, the score is fail-soft: a
+	 * score at or below alpha is only an upper bound on the move's value.
+	 *
+	 * @param boardState
+	 *            - the root position, which is left unchanged
+	 * @param move
+	 *            - a legal move from boardState
+	 * @param movesToGo
+	 *            - the depth of the search from the root
+	 * @param alpha
+	 *            - the best score already found for another root move
+	 * @param beta
+	 *            - Integer.MAX_VALUE, or the top of an aspiration window
+	 * @return The score of the move, which is meaningless if isAborted()
+	 */
+	int searchRootMove(MutableBoardState boardState, BohnenspielMove move, int movesToGo, int alpha, int beta) {
+		setRootDepth(movesToGo);
+		long undo = boardState.apply(move);
+		int score = minValue(boardState, movesToGo - 1, alpha, beta);
+		boardState.undo(undo);
+		return score;
+	}
+
+	boolean isAborted() {
+		return this.aborted;
+	}
+
+	boolean getReachedHorizon() {
+		return this.reachedHorizon;
+	}
+
+	/**
+	 * @return the nodes the current or last search has visited so far
+	 */
+	long getNodes() {
+		return this.stats.nodes;
 	}
 
 	/**
-	 * Similar to the above, but we multiply by the ratio of total beans to
-	 * beans left rather than total beans used up
+	 * @return a copy of what the current or last search has done so far
+	 */
+	SearchStats getStats() {
+		this.stats.stop();
+		return new SearchStats(this.stats);
+	}
+
+	// =========================================================================
+	// Searching with other threads, for LazySmpMinimax
+	// =========================================================================
+
+	/**
+	 * Runs iterative deepening from the given depth until the deadline passes
+	 * or setStopped(true) is called. Unlike iterativeDeepeningDecision this
+	 * does not start a new search in the transposition table, since the table
+	 * is shared with other threads searching the same root.
 	 * 
 	 * @param boardState
+	 *            - this thread's own copy of the current board state
+	 * @param deadline
+	 * @param firstDepth
+	 *            - the depth of the first iteration
 	 * @return
 	 */
-	private int scoreAndBeanDifferenceWithBeansLeft3(BohnenspielBoardState boardState) {
-		int[][] pits = boardState.getPits();
-		int myBeans = 0;
-		int yourBeans = 0;
-		for (Integer beans : pits[this.player]) {
-			myBeans += beans;
+	MinimaxResponse sharedTableDecision(MutableBoardState boardState, long deadline, int firstDepth) {
+		this.deadline = deadline;
+		this.aborted = false;
+		this.stats.start();
+		if (this.ordering != null) {
+			this.ordering.newSearch();
 		}
-		for (Integer beans : pits[1 - this.player]) {
-			yourBeans += beans;
+		return iterativeDeepening(boardState, firstDepth, MAX_DEPTH);
+	}
+
+	/**
+	 * Asks the search to unwind as if the deadline had passed. Safe to call
+	 * from any thread.
+	 * 
+	 * @param stopped
+	 */
+	void setStopped(boolean stopped) {
+		this.stopped = stopped;
+	}
+
+	// =========================================================================
+	// Searching on the opponent's time, for Ponderer
+	// =========================================================================
+
+	/**
+	 * Searches to the given depth, or until setStopped(true) is called.
+	 * Unlike minimaxDecision this does not start a new search in the
+	 * transposition table, so that the results for several positions
+	 * searched one after the other all stay in the table.
+	 * 
+	 * @param boardState
+	 * @param movesToGo
+	 * @return The best move and the depth searched, with fullSimulation set if
+	 *         every line was seen through to the end of the game, or null if
+	 *         the search was stopped first
+	 */
+	MinimaxResponse ponderDecision(MutableBoardState boardState, int movesToGo) {
+		this.deadline = NO_DEADLINE;
+		this.aborted = false;
+		this.stats.start();
+		this.reachedHorizon = false;
+		BohnenspielMove bestMove = searchRoot(boardState, boardState.getLegalMoves(), movesToGo, Integer.MIN_VALUE,
+				Integer.MAX_VALUE);
+		if (this.aborted) {
+			return null;
 		}
-		return (MAX_BEANS / Math.max(myBeans + yourBeans, 1))
-				* (3 * (boardState.getScore(this.player) - boardState.getScore(1 - this.player))
-						+ (myBeans - yourBeans));
+		this.stats.iterationDone(movesToGo, this.stats.nodes);
+		return new MinimaxResponse(bestMove, !this.reachedHorizon, bestMove == null, getStats());
 	}
 
+	// =========================================================================
+	// Endgame tablebase
+	// =========================================================================
+
 	/**
-	 * Similar to scoreAndBeanDifferenceWithBeansLeft2 except we now multiply
-	 * the score difference by 2
+	 * Looks a position up in the tablebase. Wins are scored as wins, but a
+	 * position we cannot win is given a very low ordinary score rather than
+	 * Integer.MIN_VALUE, so that we still prefer a draw to a loss and a narrow
+	 * loss to a wide one, and still have a move to play if the opponent can
+	 * beat us.
 	 * 
 	 * @param boardState
+	 * @return Integer.MAX_VALUE if the max player wins with best play,
+	 *         TABLEBASE_NO_WIN plus the final score difference if they do not,
+	 *         or 0 if the position is not in the tablebase
+	 */
+	private int probeTablebase(MutableBoardState boardState) {
+		int margin = this.tablebase.probe(boardState);
+		if (margin == EndgameTablebase.NOT_FOUND) {
+			return 0;
+		}
+		if (boardState.getTurnPlayer() != this.player) {
+			// the tablebase scores positions for the player to move
+			margin = margin == EndgameTablebase.FORCED_WIN ? EndgameTablebase.FORCED_LOSS
+					: margin == EndgameTablebase.FORCED_LOSS ? EndgameTablebase.FORCED_WIN : -margin;
+		}
+		if (margin == EndgameTablebase.FORCED_WIN) {
+			return Integer.MAX_VALUE;
+		} else if (margin == EndgameTablebase.FORCED_LOSS) {
+			return TABLEBASE_NO_WIN - MAX_BEANS;
+		}
+		int finalDifference = boardState.getScore(this.player) - boardState.getScore(1 - this.player) + margin;
+		return finalDifference > 0 ? Integer.MAX_VALUE : TABLEBASE_NO_WIN + finalDifference;
+	}
+
+	// =========================================================================
+	// Transposition table
+	// =========================================================================
+
+	/**
+	 * Returns whether a table entry was searched at least movesToGo moves deep
+	 * and its score can be returned as is, given the current alpha and beta
+	 * 
+	 * @param entry
+	 *            - an entry returned by probe, or 0
+	 * @param movesToGo
+	 * @param alpha
+	 * @param beta
 	 * @return
 	 */
-	private int scoreAndBeanDifferenceWithBeansLeft4(BohnenspielBoardState boardState) {
-		int[][] pits = boardState.getPits();
-		int myBeans = 0;
-		int yourBeans = 0;
-		for (Integer beans : pits[this.player]) {
-			myBeans += beans;
+	private boolean isUsable(long entry, int movesToGo, int alpha, int beta) {
+		if (entry == 0 || TranspositionTable.getDepth(entry) < movesToGo) {
+			return false;
 		}
-		for (Integer beans : pits[1 - this.player]) {
-			yourBeans += beans;
+		int score = TranspositionTable.getScore(entry);
+		int bound = TranspositionTable.getBound(entry);
+		if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER_BOUND && score > beta)
+				|| (bound == TranspositionTable.UPPER_BOUND && score < alpha)) {
+			if (score != Integer.MAX_VALUE && score != Integer.MIN_VALUE) {
+				// the entry stands in for a search that reached the horizon
+				this.reachedHorizon = true;
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private long probeTable(long key) {
+		this.stats.tableProbes++;
+		long entry = this.table.probe(key);
+		if (entry != 0) {
+			this.stats.tableHits++;
+		}
+		return entry;
+	}
+
+	private void storeInTable(long key, int movesToGo, int bound, int score, int move) {
+		if (this.table != null) {
+			this.stats.tableStores++;
+			this.table.store(key, movesToGo, bound, score, move);
 		}
-		return (MAX_BEANS - (myBeans + yourBeans))
-				* (2 * (boardState.getScore(this.player) - boardState.getScore(1 - this.player))
-						+ (int) (0.5 * (myBeans - yourBeans)));
 	}
 
 	/**
-	 * Same as scoreAndBeanDifferenceWithBeansLeft, but we don't consider the
-	 * bean difference
+	 * Classifies a score returned from a search with the given window. Scores
+	 * below alpha are upper bounds on the true value and scores above beta are
+	 * lower bounds. Moves are only cut off once alpha passes beta, so a score
+	 * equal to alpha or beta is exact, even from a null window search with
+	 * alpha equal to beta; table entries and delta pruning keep to the same
+	 * rule, since MTD(f) depends on it.
+	 * 
+	 * @param score
+	 * @param alpha
+	 * @param beta
+	 * @return
+	 */
+	private static int getBound(int score, int alpha, int beta) {
+		if (score < alpha) {
+			return TranspositionTable.UPPER_BOUND;
+		} else if (score > beta) {
+			return TranspositionTable.LOWER_BOUND;
+		}
+		return TranspositionTable.EXACT;
+	}
+
+	/**
+	 * Records a beta cutoff
+	 * 
+	 * @param boardState
+	 * @param move
+	 *            - the move that caused it
+	 * @param index
+	 *            - the number of moves searched before it
+	 * @param movesToGo
+	 */
+	private void recordCutoff(MutableBoardState boardState, int move, int index, int movesToGo) {
+		this.stats.cutoffs++;
+		if (index == 0) {
+			this.stats.firstMoveCutoffs++;
+		}
+		if (this.ordering != null) {
+			this.ordering.recordCutoff(boardState.getTurnPlayer(), move, this.rootDepth - movesToGo, movesToGo);
+		}
+	}
+
+	/**
+	 * Returns the value of a position at the search horizon to the max player
 	 * 
 	 * @param boardState
 	 * @return
 	 */
-	private int scoreDifferenceWithBeansLeft(BohnenspielBoardState boardState) {
-		int[][] pits = boardState.getPits();
-		int myBeans = 0;
-		int yourBeans = 0;
-		for (Integer beans : pits[this.player]) {
-			myBeans += beans;
+	private int getUtility(MutableBoardState boardState) {
+		if ((this.stats.leafEvaluations++ & SearchStats.TIMING_SAMPLE_MASK) != 0) {
+			return this.evaluator.evaluate(boardState, this.player);
+		}
+		long start = System.nanoTime();
+		int utility = this.evaluator.evaluate(boardState, this.player);
+		this.stats.evaluationNanos += SearchStats.timeSince(start);
+		return utility;
+	}
+
+	/**
+	 * Fills moves with the legal moves from a position, timing a sample of
+	 * calls
+	 * 
+	 * @param boardState
+	 * @param moves
+	 * @return the number of legal moves
+	 */
+	private int generateMoves(MutableBoardState boardState, int[] moves) {
+		if ((this.stats.moveGenerations++ & SearchStats.TIMING_SAMPLE_MASK) != 0) {
+			return boardState.getLegalMoves(moves);
 		}
-		for (Integer beans : pits[1 - this.player]) {
-			yourBeans += beans;
+		long start = System.nanoTime();
+		int numMoves = boardState.getLegalMoves(moves);
+		this.stats.moveGenerationNanos += SearchStats.timeSince(start);
+		return numMoves;
+	}
+
+	/**
+	 * Makes a move in place, timing a sample of calls
+	 * 
+	 * @param boardState
+	 * @param move
+	 * @return the record to undo the move with
+	 */
+	private long apply(MutableBoardState boardState, int move) {
+		if ((this.stats.applies++ & SearchStats.TIMING_SAMPLE_MASK) != 0) {
+			return boardState.apply(move);
 		}
-		return (MAX_BEANS - (myBeans + yourBeans))
-				* (boardState.getScore(this.player) - boardState.getScore(1 - this.player));
+		long start = System.nanoTime();
+		long undo = boardState.apply(move);
+		this.stats.applyNanos += SearchStats.timeSince(start);
+		return undo;
 	}
 
 }
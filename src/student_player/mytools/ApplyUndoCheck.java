@@ -0,0 +1,227 @@
+package student_player.mytools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import bohnenspiel.BohnenspielBoardState;
+import bohnenspiel.BohnenspielMove;
+
+/**
+ * Checks MutableBoardState against BohnenspielBoardState by playing random
+ * games both ways. Every move is made with apply on a single
+ * MutableBoardState and with move on a clone of the previous
+ * BohnenspielBoardState, and after each one the two must agree on the pits,
+ * scores, skip credits, player to move, turn number, winner and legal moves.
+ * The Zobrist key must equal that of a MutableBoardState built from the clone,
+ * the evaluation features must equal those counted from the pits, and the
+ * seeds getCaptureSeeds predicted must be what the move scored. At the end of
+ * each game every move is undone in turn, and the state must be exactly as it
+ * was before that move. A game also stops when the player to move is left with
+ * no legal move, which happens when they have skip credit and no seeds but
+ * are being skipped.
+ *
+ * Stops with an exception describing the first difference, or prints how many
+ * positions were checked. From the root directory of the project, run
+ *
+ * <pre>
+ *     java -cp bin student_player.mytools.ApplyUndoCheck [seed] [games]
+ * </pre>
+ *
+ * @author kstricks
+ *
+ */
+public class ApplyUndoCheck {
+
+	private static final long DEFAULT_SEED = 424;
+	private static final int DEFAULT_GAMES = 10000;
+
+	private static final int PITS = 6;
+	// the board ends every game after MAX_TURN turns; this only sizes the
+	// move stack
+	private static final int MAX_PLIES = 2 * (BohnenspielBoardState.MAX_TURN + 2);
+
+	public static void main(String[] args) {
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_SEED;
+		int numGames = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_GAMES;
+		Random random = new Random(seed);
+
+		int[] moves = new int[MAX_PLIES];
+		long[] records = new long[MAX_PLIES];
+		MutableBoardState[] saved = new MutableBoardState[MAX_PLIES];
+		int[] codes = new int[MutableBoardState.MAX_MOVES];
+		long positions = 0;
+		for (int game = 0; game < numGames; game++) {
+			BohnenspielBoardState reference = new BohnenspielBoardState();
+			MutableBoardState boardState = new MutableBoardState(reference);
+			int plies = 0;
+			while (!reference.gameOver()) {
+				ArrayList<BohnenspielMove> legalMoves = reference.getLegalMoves();
+				if (legalMoves.isEmpty()) {
+					// being skipped with credit but no seeds: the game is stuck
+					break;
+				}
+				BohnenspielMove move = legalMoves.get(random.nextInt(legalMoves.size()));
+				int player = reference.getTurnPlayer();
+				int captureSeeds = boardState.getCaptureSeeds(MutableBoardState.moveCode(move));
+
+				saved[plies] = new MutableBoardState(boardState);
+				moves[plies] = MutableBoardState.moveCode(move);
+				records[plies] = boardState.apply(moves[plies]);
+				plies++;
+				BohnenspielBoardState before = reference;
+				reference = (BohnenspielBoardState) before.clone();
+				reference.move(move);
+				positions++;
+
+				String difference = compare(boardState, reference, codes);
+				if (difference == null) {
+					int scored = reference.getScore(player) - before.getScore(player);
+					// a sweep at the end of the game scores more than the
+					// capture
+					if (scored != captureSeeds && !(reference.gameOver() && scored > captureSeeds)) {
+						difference = "getCaptureSeeds predicted " + captureSeeds + " but the move scored " + scored;
+					}
+				}
+				if (difference != null) {
+					throw new IllegalStateException("seed " + seed + ", game " + game + ", after moves "
+							+ Arrays.toString(Arrays.copyOf(moves, plies)) + ": " + difference);
+				}
+			}
+
+			for (int i = plies - 1; i >= 0; i--) {
+				boardState.undo(records[i]);
+				String difference = compare(boardState, saved[i]);
+				if (difference != null) {
+					throw new IllegalStateException("seed " + seed + ", game " + game + ", undoing move " + i
+							+ " of " + Arrays.toString(Arrays.copyOf(moves, plies)) + ": " + difference);
+				}
+			}
+		}
+		System.out.println(numGames + " games, " + positions + " positions: no differences");
+	}
+
+	/**
+	 * Compares a MutableBoardState with the BohnenspielBoardState it should
+	 * match
+	 *
+	 * @param boardState
+	 * @param reference
+	 * @param codes
+	 *            - a buffer of at least MAX_MOVES ints
+	 * @return a description of the first difference, or null if there is none
+	 */
+	private static String compare(MutableBoardState boardState, BohnenspielBoardState reference, int[] codes) {
+		int[][] pits = reference.getPits();
+		for (int player = 0; player < 2; player++) {
+			if (!Arrays.equals(boardState.getPits()[player], pits[player])) {
+				return "pits " + Arrays.deepToString(boardState.getPits()) + " != " + Arrays.deepToString(pits);
+			}
+			if (boardState.getScore(player) != reference.getScore(player)) {
+				return "score of player " + player + " " + boardState.getScore(player) + " != "
+						+ reference.getScore(player);
+			}
+			if (boardState.getCredit(player) != reference.getCredit(player)) {
+				return "credit of player " + player + " " + boardState.getCredit(player) + " != "
+						+ reference.getCredit(player);
+			}
+		}
+		if (boardState.getTurnPlayer() != reference.getTurnPlayer()) {
+			return "turn player " + boardState.getTurnPlayer() + " != " + reference.getTurnPlayer();
+		}
+		if (boardState.getTurnNumber() != reference.getTurnNumber()) {
+			return "turn number " + boardState.getTurnNumber() + " != " + reference.getTurnNumber();
+		}
+		if (boardState.getWinner() != reference.getWinner()) {
+			return "winner " + boardState.getWinner() + " != " + reference.getWinner();
+		}
+		if (boardState.getHashKey() != new MutableBoardState(reference).getHashKey()) {
+			return "hash key differs from that of a fresh copy";
+		}
+		String features = compareFeatures(boardState);
+		if (features != null) {
+			return features;
+		}
+		if (reference.gameOver()) {
+			return null;
+		}
+
+		int turnPlayer = reference.getTurnPlayer();
+		if (boardState.isLegal(MutableBoardState.SKIP) != reference.isLegal(new BohnenspielMove("skip", turnPlayer))) {
+			return "skip legal " + boardState.isLegal(MutableBoardState.SKIP);
+		}
+		ArrayList<BohnenspielMove> legalMoves = reference.getLegalMoves();
+		int numMoves = boardState.getLegalMoves(codes);
+		int[] expected = new int[legalMoves.size()];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = MutableBoardState.moveCode(legalMoves.get(i));
+		}
+		if (!Arrays.equals(Arrays.copyOf(codes, numMoves), expected)) {
+			return "legal moves " + Arrays.toString(Arrays.copyOf(codes, numMoves)) + " != "
+					+ Arrays.toString(expected);
+		}
+		return null;
+	}
+
+	/**
+	 * Compares the incrementally kept evaluation features of a state with
+	 * those counted from its pits
+	 *
+	 * @param boardState
+	 * @return a description of the first difference, or null if there is none
+	 */
+	private static String compareFeatures(MutableBoardState boardState) {
+		int[][] pits = boardState.getPits();
+		for (int player = 0; player < 2; player++) {
+			int seeds = 0;
+			int empty = 0;
+			int vulnerable = 0;
+			for (int pit = 0; pit < PITS; pit++) {
+				seeds += pits[player][pit];
+				if (pits[player][pit] == 0) {
+					empty++;
+				} else if (pits[player][pit] == 1 || pits[player][pit] == 3 || pits[player][pit] == 5) {
+					vulnerable++;
+				}
+			}
+			int mobility = PITS - empty
+					+ (boardState.getCredit(player) > 0 && boardState.getTurnsToSkip(player) == 0 ? 1 : 0);
+			if (boardState.getSeedsOnSide(player) != seeds || boardState.getEmptyPits(player) != empty
+					|| boardState.getVulnerablePits(player) != vulnerable
+					|| boardState.getMobility(player) != mobility) {
+				return "features of player " + player + " differ from those counted from the pits";
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Compares a state after undoing moves with the copy saved before they
+	 * were applied
+	 *
+	 * @param boardState
+	 * @param saved
+	 * @return a description of the first difference, or null if there is none
+	 */
+	private static String compare(MutableBoardState boardState, MutableBoardState saved) {
+		if (!Arrays.deepEquals(boardState.getPits(), saved.getPits())) {
+			return "pits " + Arrays.deepToString(boardState.getPits()) + " != " + Arrays.deepToString(saved.getPits());
+		}
+		for (int player = 0; player < 2; player++) {
+			if (boardState.getScore(player) != saved.getScore(player)
+					|| boardState.getCredit(player) != saved.getCredit(player)
+					|| boardState.getTurnsToSkip(player) != saved.getTurnsToSkip(player)) {
+				return "score, credit or pending skip of player " + player + " differs";
+			}
+		}
+		if (boardState.getTurnPlayer() != saved.getTurnPlayer() || boardState.getTurnNumber() != saved.getTurnNumber()
+				|| boardState.getWinner() != saved.getWinner()) {
+			return "turn player, turn number or winner differs";
+		}
+		if (boardState.getHashKey() != saved.getHashKey()) {
+			return "hash key differs";
+		}
+		return compareFeatures(boardState);
+	}
+
+}
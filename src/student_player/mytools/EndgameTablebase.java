@@ -0,0 +1,269 @@
+package student_player.mytools;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import bohnenspiel.BohnenspielBoardState;
+
+/**
+ * Exact values for every position with at most maxSeeds beans left on the
+ * board, read from a file written by TablebaseGenerator. The whole file is
+ * read into memory when it is opened, since files may only be read during
+ * the first turn, so a probe is one index calculation and one array read.
+ *
+ * The value of a position is the margin: the number of beans the player to
+ * move will capture from here to the end of the game, minus the number the
+ * opponent will capture, with both sides playing to maximize their own
+ * margin. Since the winner is decided by score, the player to move wins
+ * exactly when their current lead plus the margin is positive, so the margin
+ * answers win/draw/loss for any scores. Some positions are won or lost
+ * outright whatever the scores, because a player is left with a skip credit
+ * but no legal move; these have the values FORCED_WIN and FORCED_LOSS.
+ *
+ * The values assume the game is not cut short by the turn limit, where lines
+ * that go round in circles are worth a margin of 0, so probe refuses
+ * positions close to the turn limit.
+ *
+ * File layout: MAGIC, then maxSeeds, as ints, then one signed byte per
+ * position. Positions are grouped by the number of beans on the board, then
+ * ordered by the rank of the pits among all ways of placing that many beans
+ * in 12 pits, then by the remaining state (see auxIndex). Positions with a
+ * pending skip that MutableBoardState never keeps, for the player who just
+ * moved or for one without skip credit, are never probed and hold 0.
+ *
+ * @author kstricks
+ *
+ */
+public class EndgameTablebase {
+
+	// where StudentPlayer looks for a tablebase
+	public static final String DEFAULT_PATH = "data/endgame.tb";
+
+	public static final int MAGIC = 0x42544231;
+
+	// the margin of a position that is won or lost whatever the scores
+	public static final int FORCED_WIN = 127;
+	public static final int FORCED_LOSS = -127;
+	// returned by probe for positions not in the tablebase
+	public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+	// results returned by probeResult, for the player to move
+	public static final int WIN = 1;
+	public static final int DRAW = 0;
+	public static final int LOSS = -1;
+	public static final int UNKNOWN = 2;
+
+	// positions this close to the turn limit are not probed
+	public static final int TURN_LIMIT_MARGIN = 20;
+
+	static final int PITS = 12;
+	// turn player, two skip credits (0-2) and two turnsToSkip flags
+	static final int AUX_STATES = 2 * 3 * 3 * 2 * 2;
+	private static final int MAX_BEANS = 72;
+
+	// BINOMIAL[n][k] = n choose k, for all n and k we ever need
+	private static final long[][] BINOMIAL = new long[MAX_BEANS + PITS + 1][PITS + 1];
+
+	static {
+		for (int n = 0; n < BINOMIAL.length; n++) {
+			BINOMIAL[n][0] = 1;
+			for (int k = 1; k <= Math.min(n, PITS); k++) {
+				BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k <= n - 1 ? BINOMIAL[n - 1][k] : 0);
+			}
+		}
+	}
+
+	// one value per position, in file order
+	private final byte[] values;
+	private final int maxSeeds;
+	// offset of the first position with each number of beans on the board
+	private final long[] levelOffsets;
+
+	private EndgameTablebase(byte[] values, int maxSeeds) {
+		this.values = values;
+		this.maxSeeds = maxSeeds;
+		this.levelOffsets = levelOffsets(maxSeeds);
+	}
+
+	/**
+	 * Reads a tablebase file
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 *             if the file cannot be read or is not a tablebase
+	 */
+	public static EndgameTablebase open(String path) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(path + " is not an endgame tablebase");
+			}
+			int maxSeeds = in.readInt();
+			if (maxSeeds < 0 || maxSeeds > MAX_BEANS || size(maxSeeds) > Integer.MAX_VALUE) {
+				throw new IOException(path + " is corrupt");
+			}
+			byte[] values = new byte[(int) size(maxSeeds)];
+			in.readFully(values);
+			if (in.read() != -1) {
+				throw new IOException(path + " is corrupt");
+			}
+			return new EndgameTablebase(values, maxSeeds);
+		} catch (EOFException e) {
+			throw new IOException(path + " is truncated", e);
+		} finally {
+			in.close();
+		}
+	}
+
+	public int getMaxSeeds() {
+		return this.maxSeeds;
+	}
+
+	/**
+	 * Returns the margin of a position for the player to move, or NOT_FOUND if
+	 * it is not in the tablebase
+	 *
+	 * @param boardState
+	 *            - a position where the game is not over
+	 * @return
+	 */
+	public int probe(MutableBoardState boardState) {
+		// every bean not yet captured is on the board
+		int seeds = MAX_BEANS - boardState.getScore(0) - boardState.getScore(1);
+		if (seeds > this.maxSeeds
+				|| boardState.getTurnNumber() > BohnenspielBoardState.MAX_TURN - TURN_LIMIT_MARGIN) {
+			return NOT_FOUND;
+		}
+		int[][] pits = boardState.getPits();
+		int turnPlayer = boardState.getTurnPlayer();
+		long index = this.levelOffsets[seeds] + rank(pits, seeds) * AUX_STATES
+				+ auxIndex(turnPlayer, boardState.getCredit(0), boardState.getCredit(1),
+						boardState.getTurnsToSkip(0), boardState.getTurnsToSkip(1));
+		return this.values[(int) index];
+	}
+
+	/**
+	 * Returns whether the player to move wins, draws or loses the given
+	 * position with best play, or UNKNOWN if it is not in the tablebase
+	 *
+	 * @param boardState
+	 * @return WIN, DRAW, LOSS or UNKNOWN
+	 */
+	public int probeResult(MutableBoardState boardState) {
+		int margin = probe(boardState);
+		if (margin == NOT_FOUND) {
+			return UNKNOWN;
+		} else if (margin == FORCED_WIN) {
+			return WIN;
+		} else if (margin == FORCED_LOSS) {
+			return LOSS;
+		}
+		int player = boardState.getTurnPlayer();
+		return Integer.signum(boardState.getScore(player) - boardState.getScore(1 - player) + margin);
+	}
+
+	// =========================================================================
+	// Indexing, shared with TablebaseGenerator
+	// =========================================================================
+
+	/**
+	 * Returns the number of ways to place the given number of beans in the
+	 * given number of pits
+	 *
+	 * @param beans
+	 * @param pits
+	 * @return
+	 */
+	static long arrangements(int beans, int pits) {
+		return BINOMIAL[beans + pits - 1][pits - 1];
+	}
+
+	/**
+	 * Returns the number of positions with exactly the given number of beans
+	 * on the board
+	 *
+	 * @param seeds
+	 * @return
+	 */
+	static long levelSize(int seeds) {
+		return arrangements(seeds, PITS) * AUX_STATES;
+	}
+
+	/**
+	 * Returns the number of positions in a tablebase
+	 *
+	 * @param maxSeeds
+	 * @return
+	 */
+	static long size(int maxSeeds) {
+		long size = 0;
+		for (int seeds = 0; seeds <= maxSeeds; seeds++) {
+			size += levelSize(seeds);
+		}
+		return size;
+	}
+
+	static long[] levelOffsets(int maxSeeds) {
+		long[] offsets = new long[maxSeeds + 1];
+		for (int seeds = 1; seeds <= maxSeeds; seeds++) {
+			offsets[seeds] = offsets[seeds - 1] + levelSize(seeds - 1);
+		}
+		return offsets;
+	}
+
+	/**
+	 * Returns the rank of the pits among all ways of placing the same number
+	 * of beans in 12 pits, ordered by the beans in player 0's pit 0, then pit
+	 * 1, and so on through player 1's pits. Takes constant time.
+	 *
+	 * @param pits
+	 *            - indexed by [player][pit]
+	 * @param seeds
+	 *            - the total number of beans in pits
+	 * @return
+	 */
+	static long rank(int[][] pits, int seeds) {
+		long rank = 0;
+		int remaining = seeds;
+		for (int i = 0; i < PITS - 1; i++) {
+			int beans = pits[i / 6][i % 6];
+			int rest = PITS - 1 - i;
+			// skip past every arrangement with fewer beans in this pit
+			rank += BINOMIAL[remaining + rest][rest] - BINOMIAL[remaining - beans + rest][rest];
+			remaining -= beans;
+		}
+		return rank;
+	}
+
+	/**
+	 * Inverse of rank
+	 *
+	 * @param rank
+	 * @param seeds
+	 * @param pits
+	 *            - filled in with the arrangement of the given rank
+	 */
+	static void unrank(long rank, int seeds, int[][] pits) {
+		int remaining = seeds;
+		for (int i = 0; i < PITS - 1; i++) {
+			int rest = PITS - 1 - i;
+			int beans = 0;
+			while (rank >= arrangements(remaining - beans, rest)) {
+				rank -= arrangements(remaining - beans, rest);
+				beans++;
+			}
+			pits[i / 6][i % 6] = beans;
+			remaining -= beans;
+		}
+		pits[1][5] = remaining;
+	}
+
+	static int auxIndex(int turnPlayer, int credit0, int credit1, int turnsToSkip0, int turnsToSkip1) {
+		return (((turnPlayer * 3 + credit0) * 3 + credit1) * 2 + turnsToSkip0) * 2 + turnsToSkip1;
+	}
+
+}
@@ -0,0 +1,78 @@
+package student_player.mytools;
+
+/**
+ * A heuristic that scores positions at the search horizon. Evaluators hold no
+ * state of their own once created, so one evaluator can be shared by every
+ * thread searching for a player.
+ * 
+ * Each search holds its evaluator in a final field and a player uses only one,
+ * so the JIT sees a single evaluator class at the call in the search and can
+ * inline it.
+ * 
+ * @author kstricks
+ *
+ */
+public interface Evaluator {
+
+	/**
+	 * Returns the value of the position to the given player. Higher is better
+	 * for them.
+	 * 
+	 * @param boardState
+	 * @param player
+	 *            - the player whose point of view to score the position from
+	 * @return
+	 */
+	int evaluate(MutableBoardState boardState, int player);
+
+	/**
+	 * Returns an upper bound on the value to the given player of the position
+	 * right after they capture the given number of seeds from this one,
+	 * whatever else their move does. Quiescence search skips captures that
+	 * cannot raise the score past what it already has. Evaluators that cannot
+	 * bound the value cheaply leave every capture to be searched.
+	 * 
+	 * @param boardState
+	 *            - the position before the capture, with player to move
+	 * @param player
+	 * @param seeds
+	 *            - the seeds captured
+	 * @return
+	 */
+	default int getCaptureBound(MutableBoardState boardState, int player, int seeds) {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the evaluator numbered by the utility functions AlphaBetaMinimax
+	 * used to take, so that players written against the numbers keep working
+	 * 
+	 * @param utilityFunction
+	 *            - 0 to 7
+	 * @return
+	 * @throws UndefinedUtilityFunctionException
+	 */
+	static Evaluator forUtilityFunction(int utilityFunction) throws UndefinedUtilityFunctionException {
+		switch (utilityFunction) {
+		case 0:
+			return new ScoreDifference();
+		case 1:
+			return new ScoreAndBeanDifference();
+		case 2:
+			return new ScoreAndBeanDifference2();
+		case 3:
+			return new ScoreAndBeanDifferenceWithBeansLeft();
+		case 4:
+			return new ScoreAndBeanDifferenceWithBeansLeft2();
+		case 5:
+			return new ScoreAndBeanDifferenceWithBeansLeft3();
+		case 6:
+			return new ScoreAndBeanDifferenceWithBeansLeft4();
+		case 7:
+			return new ScoreDifferenceWithBeansLeft();
+		default:
+			throw new UndefinedUtilityFunctionException();
+		}
+	}
+
+}
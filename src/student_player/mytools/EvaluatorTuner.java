@@ -0,0 +1,503 @@
+package student_player.mytools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import bohnenspiel.BohnenspielBoardState;
+import bohnenspiel.BohnenspielMove;
+
+/**
+ * Fits the weights of a LinearEvaluator to game results, Texel style: every
+ * position from a large number of games is labelled with the result of its
+ * game, and the weights are chosen to minimise the mean squared difference
+ * between those results and sigmoid(K * evaluation). K is fitted first, with
+ * the starting weights, so that evaluations are on the same scale as before.
+ *
+ * Positions come from fast self-play, with random opening moves and the odd
+ * random move so that games differ, and from every game in the log directory.
+ * Self-play games and the error over the positions are both split across a
+ * pool of threads.
+ *
+ * The weights are minimised by local search: each weight in turn is moved up
+ * or down by its step, and kept wherever the error falls. Steps are halved
+ * whenever a pass over every weight changes nothing. Each step starts at
+ * STEP divided by the mean size of its feature, so every weight starts out
+ * moving the evaluation by about the same amount.
+ *
+ * The tuned weights are written to the weights file, and then a match is
+ * played between them and the current best, which is whatever the weights
+ * file held before or, if there was none, the utility function StudentPlayer
+ * searches with.
+ *
+ * From the root directory of the project, run
+ *
+ * <pre>
+ *     java -cp bin student_player.mytools.EvaluatorTuner [games] [threads] [logDir] [path] [matchGames]
+ * </pre>
+ *
+ * @author kstricks
+ *
+ */
+public class EvaluatorTuner {
+
+	private static final int DEFAULT_GAMES = 2000;
+	private static final String DEFAULT_LOG_DIR = "logs";
+	private static final int DEFAULT_MATCH_GAMES = 100;
+	private static final long SEED = 424;
+
+	// the utility function StudentPlayer searches with
+	private static final int UTILITY_FUNCTION = 5;
+	// the weights to start from if there is no weights file: utility function
+	// 2, the score difference plus half the seed difference
+	private static final double[] INITIAL_WEIGHTS = { 1, 0.5, 0, 0, 0, 0, 0, 0 };
+
+	// self-play searches to this depth, which is shallow enough for thousands
+	// of games but deep enough not to throw beans away
+	private static final int SELF_PLAY_DEPTH = 4;
+	// random moves at the start of each game, so that games differ
+	private static final int RANDOM_PLIES = 6;
+	// chance of a random move after that
+	private static final double RANDOM_MOVE_RATE = 0.05;
+	// positions this early are the same in too many games to say much
+	private static final int SKIPPED_PLIES = 4;
+	// the board ends every game after MAX_TURN turns; this only guards the
+	// loop
+	private static final int MAX_PLIES = 2 * (BohnenspielBoardState.MAX_TURN + 2);
+
+	// match games search a little deeper than self-play, and make no random
+	// moves after the opening
+	private static final int MATCH_DEPTH = 6;
+
+	// the error changes too little to see below this
+	private static final double MIN_STEP_FRACTION = 1.0 / 64;
+	// how much one step moves the evaluation, in beans, at first
+	private static final double STEP = 0.5;
+	private static final int MAX_PASSES = 200;
+	// the range K is searched in
+	private static final double MIN_K = 0.001;
+	private static final double MAX_K = 10;
+	private static final int K_ITERATIONS = 60;
+
+	// positions split into this many chunks per thread, so that no thread is
+	// left waiting for another
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private final int numThreads;
+	private final ExecutorService pool;
+
+	// features of each position, FEATURES.length per position, to player 0
+	private int[] features = new int[0];
+	// result of each position's game to player 0: 1, 0.5 or 0
+	private float[] results = new float[0];
+	private int size;
+
+	private EvaluatorTuner(int numThreads) {
+		this.numThreads = numThreads;
+		this.pool = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "tuner");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public static void main(String[] args) throws IOException {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+		int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		String logDir = args.length > 2 ? args[2] : DEFAULT_LOG_DIR;
+		String path = args.length > 3 ? args[3] : LinearEvaluator.DEFAULT_PATH;
+		int matchGames = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_MATCH_GAMES;
+
+		Evaluator best;
+		double[] initial;
+		if (new File(path).exists()) {
+			LinearEvaluator current = LinearEvaluator.open(path);
+			best = current;
+			initial = current.getWeights();
+		} else {
+			best = Evaluator.forUtilityFunction(UTILITY_FUNCTION);
+			initial = INITIAL_WEIGHTS.clone();
+		}
+
+		EvaluatorTuner tuner = new EvaluatorTuner(numThreads);
+		long start = System.currentTimeMillis();
+		tuner.selfPlay(games, best);
+		int selfPlayPositions = tuner.size;
+		tuner.readLogs(new File(logDir));
+		System.out.println(selfPlayPositions + " positions from " + games + " self-play games, "
+				+ (tuner.size - selfPlayPositions) + " from logs, " + (System.currentTimeMillis() - start) / 1000
+				+ " s");
+
+		double k = tuner.fitK(initial);
+		double before = tuner.error(initial, k);
+		System.out.println("K = " + k + ", error " + before);
+		double[] weights = tuner.tune(initial, k);
+		double after = tuner.error(weights, k);
+		System.out.println("error " + before + " -> " + after);
+
+		LinearEvaluator tuned = new LinearEvaluator(weights);
+		File file = new File(path);
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		tuned.save(path, "tuned on " + tuner.size + " positions, K = " + k + ", error " + after);
+		System.out.println("wrote " + path);
+		for (int i = 0; i < weights.length; i++) {
+			System.out.println(String.format("  %-16s %10.4f -> %10.4f", LinearEvaluator.FEATURES[i], initial[i],
+					weights[i]));
+		}
+
+		int[] match = tuner.match(tuned, best, matchGames);
+		System.out.println("validation: tuned vs " + best.getClass().getSimpleName() + " at depth " + MATCH_DEPTH
+				+ ": " + match[0] + " wins, " + match[1] + " draws, " + match[2] + " losses");
+		tuner.pool.shutdown();
+	}
+
+	// =========================================================================
+	// Positions
+	// =========================================================================
+
+	/**
+	 * Plays self-play games with the given evaluator, adding their positions
+	 *
+	 * @param games
+	 * @param evaluator
+	 */
+	private void selfPlay(int games, final Evaluator evaluator) {
+		List<Callable<ArrayList<int[]>>> tasks = new ArrayList<Callable<ArrayList<int[]>>>();
+		for (int game = 0; game < games; game++) {
+			final long seed = Rollout.seed(SEED, game);
+			tasks.add(new Callable<ArrayList<int[]>>() {
+				public ArrayList<int[]> call() {
+					ArrayList<int[]> positions = new ArrayList<int[]>();
+					int result = playGame(evaluator, evaluator, SELF_PLAY_DEPTH, RANDOM_MOVE_RATE,
+							new Random(seed), positions);
+					label(positions, result);
+					return positions;
+				}
+			});
+		}
+		for (ArrayList<int[]> positions : invokeAll(tasks)) {
+			for (int[] position : positions) {
+				add(position);
+			}
+		}
+	}
+
+	/**
+	 * Adds the positions of every game in a log directory
+	 *
+	 * @param logDir
+	 * @throws IOException
+	 */
+	private void readLogs(File logDir) throws IOException {
+		if (!logDir.isDirectory()) {
+			return;
+		}
+		for (GameLog game : GameLog.readAll(logDir)) {
+			ArrayList<int[]> positions = new ArrayList<int[]>();
+			MutableBoardState boardState = new MutableBoardState();
+			for (int i = 0; i < game.moves.length; i++) {
+				if (i >= SKIPPED_PLIES) {
+					positions.add(featuresOf(boardState));
+				}
+				boardState.apply(game.moves[i]);
+			}
+			label(positions, game.winner == 0 ? 2 : 0);
+			for (int[] position : positions) {
+				add(position);
+			}
+		}
+	}
+
+	/**
+	 * Plays one game between two evaluators, searching to a fixed depth, and
+	 * adds the features of each position after SKIPPED_PLIES to positions
+	 *
+	 * @param evaluator0
+	 *            - the evaluator player 0 searches with
+	 * @param evaluator1
+	 *            - the evaluator player 1 searches with
+	 * @param depth
+	 * @param randomMoveRate
+	 *            - the chance of a random move after RANDOM_PLIES
+	 * @param random
+	 * @param positions
+	 *            - where to add positions, or null
+	 * @return the result to player 0 in half points: 2 for a win, 1 for a draw
+	 *         and 0 for a loss
+	 */
+	private static int playGame(Evaluator evaluator0, Evaluator evaluator1, int depth, double randomMoveRate,
+			Random random, ArrayList<int[]> positions) {
+		AlphaBetaMinimax[] searches = { new AlphaBetaMinimax(0, evaluator0, null),
+				new AlphaBetaMinimax(1, evaluator1, null) };
+		MutableBoardState boardState = new MutableBoardState();
+		int[] moves = new int[MutableBoardState.MAX_MOVES];
+		for (int ply = 0; ply < MAX_PLIES && !boardState.gameOver(); ply++) {
+			int numMoves = boardState.getLegalMoves(moves);
+			if (numMoves == 0) {
+				// the player to move is stuck and loses
+				return boardState.getTurnPlayer() == 0 ? 0 : 2;
+			}
+			if (positions != null && ply >= SKIPPED_PLIES) {
+				positions.add(featuresOf(boardState));
+			}
+
+			int move = -1;
+			if (ply >= RANDOM_PLIES && random.nextDouble() >= randomMoveRate) {
+				MinimaxResponse mresp = searches[boardState.getTurnPlayer()]
+						.minimaxDecision(new MutableBoardState(boardState), depth);
+				BohnenspielMove best = mresp.getMove();
+				if (best != null) {
+					move = MutableBoardState.moveCode(best);
+				}
+			}
+			if (move < 0) {
+				move = moves[random.nextInt(numMoves)];
+			}
+			boardState.apply(move);
+		}
+		int winner = boardState.getWinner();
+		if (winner == 0) {
+			return 2;
+		} else if (winner == 1) {
+			return 0;
+		}
+		return 1;
+	}
+
+	/**
+	 * @param boardState
+	 * @return the features of a position to player 0, with room for the result
+	 *         at the end
+	 */
+	private static int[] featuresOf(MutableBoardState boardState) {
+		int[] position = new int[LinearEvaluator.FEATURES.length + 1];
+		LinearEvaluator.getFeatures(boardState, 0, position);
+		return position;
+	}
+
+	/**
+	 * Stores a game's result to player 0, in half points, after the features
+	 * of each of its positions
+	 *
+	 * @param positions
+	 * @param result
+	 */
+	private static void label(ArrayList<int[]> positions, int result) {
+		for (int[] position : positions) {
+			position[LinearEvaluator.FEATURES.length] = result;
+		}
+	}
+
+	private void add(int[] position) {
+		int numFeatures = LinearEvaluator.FEATURES.length;
+		if (this.size == this.results.length) {
+			int capacity = Math.max(1024, 2 * this.size);
+			this.results = Arrays.copyOf(this.results, capacity);
+			this.features = Arrays.copyOf(this.features, capacity * numFeatures);
+		}
+		System.arraycopy(position, 0, this.features, this.size * numFeatures, numFeatures);
+		this.results[this.size] = position[numFeatures] / 2f;
+		this.size++;
+	}
+
+	// =========================================================================
+	// Fitting
+	// =========================================================================
+
+	/**
+	 * Returns the K that minimises the error with the given weights, found by
+	 * golden section search
+	 *
+	 * @param weights
+	 * @return
+	 */
+	private double fitK(double[] weights) {
+		double ratio = (Math.sqrt(5) - 1) / 2;
+		double low = MIN_K;
+		double high = MAX_K;
+		for (int i = 0; i < K_ITERATIONS; i++) {
+			double k1 = high - ratio * (high - low);
+			double k2 = low + ratio * (high - low);
+			if (error(weights, k1) < error(weights, k2)) {
+				high = k2;
+			} else {
+				low = k1;
+			}
+		}
+		return (low + high) / 2;
+	}
+
+	/**
+	 * Minimises the error by local search over the weights
+	 *
+	 * @param initial
+	 * @param k
+	 * @return the tuned weights
+	 */
+	private double[] tune(double[] initial, double k) {
+		int numFeatures = LinearEvaluator.FEATURES.length;
+		double[] weights = initial.clone();
+		double[] steps = initialSteps();
+		double[] minSteps = new double[numFeatures];
+		for (int i = 0; i < numFeatures; i++) {
+			minSteps[i] = steps[i] * MIN_STEP_FRACTION;
+		}
+
+		double best = error(weights, k);
+		for (int pass = 0; pass < MAX_PASSES; pass++) {
+			boolean improved = false;
+			for (int i = 0; i < numFeatures; i++) {
+				double original = weights[i];
+				for (int direction = 1; direction >= -1; direction -= 2) {
+					weights[i] = original + direction * steps[i];
+					double error = error(weights, k);
+					if (error < best) {
+						best = error;
+						improved = true;
+						break;
+					}
+					weights[i] = original;
+				}
+			}
+			System.out.println("pass " + pass + ": error " + best);
+			if (!improved) {
+				boolean stepsLeft = false;
+				for (int i = 0; i < numFeatures; i++) {
+					steps[i] /= 2;
+					stepsLeft |= steps[i] >= minSteps[i];
+				}
+				if (!stepsLeft) {
+					break;
+				}
+			}
+		}
+		return weights;
+	}
+
+	/**
+	 * @return STEP divided by the mean absolute value of each feature
+	 */
+	private double[] initialSteps() {
+		int numFeatures = LinearEvaluator.FEATURES.length;
+		double[] sums = new double[numFeatures];
+		for (int p = 0; p < this.size; p++) {
+			for (int i = 0; i < numFeatures; i++) {
+				sums[i] += Math.abs(this.features[p * numFeatures + i]);
+			}
+		}
+		double[] steps = new double[numFeatures];
+		for (int i = 0; i < numFeatures; i++) {
+			steps[i] = STEP / Math.max(1, sums[i] / Math.max(1, this.size));
+		}
+		return steps;
+	}
+
+	/**
+	 * Returns the mean squared difference between each position's result and
+	 * the result its evaluation predicts, computed in chunks across the pool
+	 *
+	 * @param weights
+	 * @param k
+	 * @return
+	 */
+	private double error(final double[] weights, final double k) {
+		int numChunks = this.numThreads * CHUNKS_PER_THREAD;
+		int chunkSize = (this.size + numChunks - 1) / numChunks;
+		List<Callable<Double>> tasks = new ArrayList<Callable<Double>>();
+		for (int start = 0; start < this.size; start += chunkSize) {
+			final int from = start;
+			final int to = Math.min(this.size, start + chunkSize);
+			tasks.add(new Callable<Double>() {
+				public Double call() {
+					return squaredError(weights, k, from, to);
+				}
+			});
+		}
+		double sum = 0;
+		for (Double chunk : invokeAll(tasks)) {
+			sum += chunk;
+		}
+		return sum / Math.max(1, this.size);
+	}
+
+	private double squaredError(double[] weights, double k, int from, int to) {
+		int numFeatures = LinearEvaluator.FEATURES.length;
+		double sum = 0;
+		for (int p = from; p < to; p++) {
+			double value = 0;
+			int offset = p * numFeatures;
+			for (int i = 0; i < numFeatures; i++) {
+				value += weights[i] * this.features[offset + i];
+			}
+			// the evaluator rounds towards zero
+			double predicted = 1 / (1 + Math.exp(-k * (int) value));
+			double difference = this.results[p] - predicted;
+			sum += difference * difference;
+		}
+		return sum;
+	}
+
+	// =========================================================================
+	// Validation
+	// =========================================================================
+
+	/**
+	 * Plays a match between two evaluators, each playing both sides of every
+	 * opening
+	 *
+	 * @param evaluator
+	 * @param opponent
+	 * @param games
+	 * @return evaluator's wins, draws and losses
+	 */
+	private int[] match(final Evaluator evaluator, final Evaluator opponent, int games) {
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		for (int game = 0; game < games; game++) {
+			// both games of a pair start from the same random opening
+			final long seed = Rollout.seed(SEED + 1, game / 2);
+			final boolean first = game % 2 == 0;
+			tasks.add(new Callable<Integer>() {
+				public Integer call() {
+					if (first) {
+						return playGame(evaluator, opponent, MATCH_DEPTH, 0, new Random(seed), null);
+					}
+					return 2 - playGame(opponent, evaluator, MATCH_DEPTH, 0, new Random(seed), null);
+				}
+			});
+		}
+		int[] record = new int[3];
+		for (Integer result : invokeAll(tasks)) {
+			record[2 - result]++;
+		}
+		return record;
+	}
+
+	private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+		List<T> results = new ArrayList<T>();
+		try {
+			for (Future<T> future : this.pool.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		return results;
+	}
+
+}
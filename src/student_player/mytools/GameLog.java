@@ -0,0 +1,172 @@
+package student_player.mytools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import bohnenspiel.BohnenspielMove;
+
+/**
+ * A game read back from a server log, as move codes replayed from the start of
+ * the game, with the winner.
+ *
+ * The server does not log skips, so a skip is put back in wherever the player
+ * to move does not match the next logged move.
+ *
+ * @author kstricks
+ *
+ */
+final class GameLog {
+
+	private static final String OUTCOME_FILE = "outcomes.txt";
+
+	// the column of outcomes.txt holding the winner, and of the log file name
+	private static final int OUTCOME_WINNER_COLUMN = 3;
+	private static final int OUTCOME_LOG_COLUMN = 6;
+
+	// the player who won
+	final int winner;
+	// move codes (the pit, or MutableBoardState.SKIP) from the start
+	// of the game, up to the end of the game or the first move that could not
+	// be replayed
+	final int[] moves;
+	// whether every logged move was replayed
+	final boolean complete;
+
+	private GameLog(int winner, int[] moves, boolean complete) {
+		this.winner = winner;
+		this.moves = moves;
+		this.complete = complete;
+	}
+
+	/**
+	 * Reads every game log in a directory, with the winner of each game taken
+	 * from outcomes.txt
+	 *
+	 * @param logDir
+	 * @return the games read, in file name order; games without a winner are
+	 *         left out
+	 * @throws IOException
+	 */
+	static ArrayList<GameLog> readAll(File logDir) throws IOException {
+		ArrayList<GameLog> games = new ArrayList<GameLog>();
+		Map<String, Integer> winners = readOutcomes(new File(logDir, OUTCOME_FILE));
+		File[] logs = logDir.listFiles();
+		if (logs == null) {
+			return games;
+		}
+		Arrays.sort(logs);
+		for (File log : logs) {
+			if (log.getName().startsWith("game") && log.getName().endsWith(".log")) {
+				GameLog game = read(log, winners.get(log.getName()));
+				if (game != null) {
+					games.add(game);
+				}
+			}
+		}
+		return games;
+	}
+
+	/**
+	 * Reads the winner of each game from the outcome file
+	 *
+	 * @param outcomes
+	 * @return the winning player id by log file name; draws and cancelled
+	 *         games are left out
+	 * @throws IOException
+	 */
+	private static Map<String, Integer> readOutcomes(File outcomes) throws IOException {
+		Map<String, Integer> winners = new HashMap<String, Integer>();
+		if (!outcomes.exists()) {
+			return winners;
+		}
+		BufferedReader in = new BufferedReader(new FileReader(outcomes));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] columns = line.split(",");
+				if (columns.length > OUTCOME_LOG_COLUMN
+						&& (columns[OUTCOME_WINNER_COLUMN].equals("0") || columns[OUTCOME_WINNER_COLUMN].equals("1"))) {
+					winners.put(columns[OUTCOME_LOG_COLUMN], Integer.parseInt(columns[OUTCOME_WINNER_COLUMN]));
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return winners;
+	}
+
+	/**
+	 * Reads and replays one game log
+	 *
+	 * @param log
+	 * @param winner
+	 *            - the winner from outcomes.txt, or null to use the GAMEOVER
+	 *            line of the log
+	 * @return the game, or null if it has no winner
+	 * @throws IOException
+	 */
+	static GameLog read(File log, Integer winner) throws IOException {
+		ArrayList<BohnenspielMove> logged = new ArrayList<BohnenspielMove>();
+		BufferedReader in = new BufferedReader(new FileReader(log));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.startsWith("PIT ") || line.startsWith("SKIP ")) {
+					logged.add(new BohnenspielMove(line.trim()));
+				} else if (line.startsWith("GAMEOVER WINNER ") && winner == null) {
+					String[] words = line.trim().split("\\s+");
+					if (words[2].equals("0") || words[2].equals("1")) {
+						winner = Integer.parseInt(words[2]);
+					}
+				}
+			}
+		} finally {
+			in.close();
+		}
+		if (winner == null) {
+			return null;
+		}
+
+		MutableBoardState boardState = new MutableBoardState();
+		ArrayList<Integer> codes = new ArrayList<Integer>();
+		boolean complete = true;
+		for (BohnenspielMove move : logged) {
+			if (boardState.gameOver()) {
+				break;
+			}
+			int player = boardState.getTurnPlayer();
+			if (move.getPlayerID() != player) {
+				// the player to move must have skipped
+				if (!boardState.isLegal(MutableBoardState.SKIP)) {
+					complete = false;
+					break;
+				}
+				codes.add(MutableBoardState.SKIP);
+				boardState.apply(MutableBoardState.SKIP);
+				if (boardState.gameOver()) {
+					break;
+				}
+			}
+			int code = MutableBoardState.moveCode(move);
+			if (!boardState.isLegal(code)) {
+				complete = false;
+				break;
+			}
+			codes.add(code);
+			boardState.apply(code);
+		}
+
+		int[] moves = new int[codes.size()];
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = codes.get(i);
+		}
+		return new GameLog(winner, moves, complete);
+	}
+
+}
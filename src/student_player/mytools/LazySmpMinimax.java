@@ -0,0 +1,263 @@
+package student_player.mytools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import bohnenspiel.BohnenspielBoardState;
+
+/**
+ * Lazy SMP: every thread runs its own iterative deepening alpha-beta search
+ * from the same root, and the threads share one transposition table. The
+ * threads do not otherwise talk to each other. Helper threads fill the table
+ * with results the main thread then finds instead of searching, and because
+ * odd-numbered helpers start one move deeper the threads tend to be working on
+ * different depths at any one time.
+ *
+ * The move returned is always the main thread's, which runs on the calling
+ * thread; the helpers are stopped as soon as it is done. With one thread this
+ * is the same as AlphaBetaMinimax.iterativeDeepeningDecision.
+ *
+ * @author kstricks
+ *
+ */
+public class LazySmpMinimax {
+
+	private final int numThreads;
+	private final TranspositionTable table;
+	// searches[0] is the main thread's
+	private final AlphaBetaMinimax[] searches;
+	// null when running on a single thread
+	private final ExecutorService pool;
+
+	/**
+	 * Creates a search using one thread per available processor and a table of
+	 * the default size
+	 *
+	 * @param player
+	 * @param utilityFunction
+	 */
+	public LazySmpMinimax(int player, int utilityFunction) {
+		this(player, utilityFunction, Runtime.getRuntime().availableProcessors(), new TranspositionTable());
+	}
+
+	/**
+	 * Creates a search using the given number of threads. The threads are
+	 * started here and reused for every search, so create one of these per
+	 * player rather than one per move.
+	 *
+	 * @param player
+	 * @param utilityFunction
+	 * @param numThreads
+	 *            - at least 1
+	 * @param table
+	 *            - the table shared by all the threads
+	 */
+	public LazySmpMinimax(int player, int utilityFunction, int numThreads, TranspositionTable table) {
+		this(player, Evaluator.forUtilityFunction(utilityFunction), numThreads, table);
+	}
+
+	/**
+	 * Same as above, scoring positions with the given evaluator
+	 *
+	 * @param player
+	 * @param evaluator
+	 *            - shared by all the threads
+	 * @param numThreads
+	 *            - at least 1
+	 * @param table
+	 *            - the table shared by all the threads
+	 */
+	public LazySmpMinimax(int player, Evaluator evaluator, int numThreads, TranspositionTable table) {
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("numThreads must be at least 1, was " + numThreads);
+		}
+		this.numThreads = numThreads;
+		this.table = table;
+		this.searches = new AlphaBetaMinimax[numThreads];
+		for (int i = 0; i < numThreads; i++) {
+			this.searches[i] = new AlphaBetaMinimax(player, evaluator, table);
+			// killers and history are per thread, which also helps the threads
+			// search the tree in different orders
+			this.searches[i].setMoveOrdering(new MoveOrdering());
+		}
+		this.pool = numThreads == 1 ? null : Executors.newFixedThreadPool(numThreads - 1, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "lazy-smp-helper");
+				// never keep the client alive once the game is over
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public int getNumThreads() {
+		return this.numThreads;
+	}
+
+	/**
+	 * Sets the tablebase looked up by every thread
+	 *
+	 * @param tablebase
+	 */
+	public void setTablebase(EndgameTablebase tablebase) {
+		for (AlphaBetaMinimax search : this.searches) {
+			search.setTablebase(tablebase);
+		}
+	}
+
+	/**
+	 * Turns principal variation search on or off on every thread
+	 *
+	 * @param pvs
+	 */
+	public void setPvs(boolean pvs) {
+		for (AlphaBetaMinimax search : this.searches) {
+			search.setPvs(pvs);
+		}
+	}
+
+	/**
+	 * Sets the aspiration window every thread starts each iteration with
+	 *
+	 * @param aspirationWindow
+	 *            - or 0 for none
+	 */
+	public void setAspirationWindow(int aspirationWindow) {
+		for (AlphaBetaMinimax search : this.searches) {
+			search.setAspirationWindow(aspirationWindow);
+		}
+	}
+
+	/**
+	 * Sets how many captures every thread searches past the horizon
+	 *
+	 * @param quiescence
+	 *            - or 0 for no quiescence search
+	 */
+	public void setQuiescence(int quiescence) {
+		for (AlphaBetaMinimax search : this.searches) {
+			search.setQuiescence(quiescence);
+		}
+	}
+
+	/**
+	 * Turns MTD(f) on or off on every thread
+	 *
+	 * @param mtdf
+	 */
+	public void setMtdf(boolean mtdf) {
+		for (AlphaBetaMinimax search : this.searches) {
+			search.setMtdf(mtdf);
+		}
+	}
+
+	/**
+	 * Turns late move reductions on or off on every thread
+	 *
+	 * @param lateMoveReductions
+	 */
+	public void setLateMoveReductions(boolean lateMoveReductions) {
+		for (AlphaBetaMinimax search : this.searches) {
+			search.setLateMoveReductions(lateMoveReductions);
+		}
+	}
+
+	/**
+	 * Turns futility pruning on or off on every thread
+	 *
+	 * @param futilityPruning
+	 */
+	public void setFutilityPruning(boolean futilityPruning) {
+		for (AlphaBetaMinimax search : this.searches) {
+			search.setFutilityPruning(futilityPruning);
+		}
+	}
+
+	/**
+	 * Turns null move pruning on or off on every thread
+	 *
+	 * @param nullMovePruning
+	 */
+	public void setNullMovePruning(boolean nullMovePruning) {
+		for (AlphaBetaMinimax search : this.searches) {
+			search.setNullMovePruning(nullMovePruning);
+		}
+	}
+
+	/**
+	 * Sets the time manager the main thread asks before each iteration whether
+	 * there is time to search one move deeper. The helpers are stopped when
+	 * the main thread stops.
+	 *
+	 * @param timeManager
+	 */
+	public void setTimeManager(TimeManager timeManager) {
+		this.searches[0].setTimeManager(timeManager);
+	}
+
+	/**
+	 * Chooses a move by searching one move deeper at a time on every thread
+	 * until the given deadline passes
+	 *
+	 * @param boardState
+	 *            - a copy of the current board state
+	 * @param deadline
+	 *            - the System.nanoTime() by which we must have a move
+	 * @return The main thread's move and depth reached, and the counts of
+	 *         all threads added together
+	 */
+	public MinimaxResponse iterativeDeepeningDecision(final BohnenspielBoardState boardState, final long deadline) {
+		this.table.newSearch();
+		MutableBoardState rootState = new MutableBoardState(boardState);
+
+		List<Future<MinimaxResponse>> helpers = new ArrayList<Future<MinimaxResponse>>(this.numThreads - 1);
+		for (int i = 1; i < this.numThreads; i++) {
+			final AlphaBetaMinimax helper = this.searches[i];
+			final MutableBoardState helperState = new MutableBoardState(rootState);
+			final int firstDepth = 1 + (i & 1);
+			helper.setStopped(false);
+			helpers.add(this.pool.submit(new Callable<MinimaxResponse>() {
+				public MinimaxResponse call() {
+					return helper.sharedTableDecision(helperState, deadline, firstDepth);
+				}
+			}));
+		}
+
+		MinimaxResponse mresp = this.searches[0].sharedTableDecision(rootState, deadline, 1);
+
+		// stop the helpers and wait for them, so that they are idle before the
+		// next search reuses them
+		for (int i = 1; i < this.numThreads; i++) {
+			this.searches[i].setStopped(true);
+		}
+		SearchStats stats = mresp.getStats();
+		try {
+			for (Future<MinimaxResponse> helper : helpers) {
+				stats.add(helper.get().getStats());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+
+		return new MinimaxResponse(mresp.getMove(), mresp.getFullSimulation(), mresp.getShouldSkip(), stats);
+	}
+
+	/**
+	 * Stops the helper threads. The search cannot be used afterwards.
+	 */
+	public void shutdown() {
+		if (this.pool != null) {
+			this.pool.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,187 @@
+package student_player.mytools;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Properties;
+
+/**
+ * Scores a position as a weighted sum of features, each the difference between
+ * the player's value and their opponent's, so that the score to one player is
+ * minus the score to the other. Every feature is read from the board state in
+ * constant time.
+ *
+ * Weights are read from a text file with one "name = weight" line per feature,
+ * named as in FEATURES. Features left out of the file get a weight of 0, and
+ * lines starting with # are comments.
+ *
+ * @author kstricks
+ *
+ */
+public final class LinearEvaluator implements Evaluator {
+
+	public static final String DEFAULT_PATH = "data/evaluator.weights";
+
+	private static final int MAX_BEANS = 72;
+
+	// indices of the features in FEATURES and in the weights
+	public static final int SCORE = 0;
+	public static final int SEEDS = 1;
+	public static final int EMPTY_PITS = 2;
+	public static final int VULNERABLE_PITS = 3;
+	public static final int MOBILITY = 4;
+	public static final int SKIP_CREDIT = 5;
+	// score and seed differences times the number of beans captured so far,
+	// which count for more as the game nears its end
+	public static final int SCORE_BY_CAPTURED = 6;
+	public static final int SEEDS_BY_CAPTURED = 7;
+
+	// the names of the features in a weights file
+	public static final String[] FEATURES = { "score", "seeds", "emptyPits", "vulnerablePits", "mobility",
+			"skipCredit", "scoreByCaptured", "seedsByCaptured" };
+
+	// one field per weight rather than an array, so that evaluate is a
+	// straight line of loads and multiplies
+	private final double score;
+	private final double seeds;
+	private final double emptyPits;
+	private final double vulnerablePits;
+	private final double mobility;
+	private final double skipCredit;
+	private final double scoreByCaptured;
+	private final double seedsByCaptured;
+
+	/**
+	 * @param weights
+	 *            - one weight per feature, indexed as in FEATURES
+	 */
+	public LinearEvaluator(double[] weights) {
+		if (weights.length != FEATURES.length) {
+			throw new IllegalArgumentException(
+					"Expected " + FEATURES.length + " weights but got " + weights.length);
+		}
+		this.score = weights[SCORE];
+		this.seeds = weights[SEEDS];
+		this.emptyPits = weights[EMPTY_PITS];
+		this.vulnerablePits = weights[VULNERABLE_PITS];
+		this.mobility = weights[MOBILITY];
+		this.skipCredit = weights[SKIP_CREDIT];
+		this.scoreByCaptured = weights[SCORE_BY_CAPTURED];
+		this.seedsByCaptured = weights[SEEDS_BY_CAPTURED];
+	}
+
+	/**
+	 * Reads a weights file
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 *             if the file cannot be read, names a feature that does not
+	 *             exist or has a weight that is not a number
+	 */
+	public static LinearEvaluator open(String path) throws IOException {
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(path);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+
+		double[] weights = new double[FEATURES.length];
+		for (String name : properties.stringPropertyNames()) {
+			int feature = indexOf(name);
+			if (feature < 0) {
+				throw new IOException(path + " has a weight for unknown feature " + name);
+			}
+			try {
+				weights[feature] = Double.parseDouble(properties.getProperty(name).trim());
+			} catch (NumberFormatException e) {
+				throw new IOException(path + " has a weight for " + name + " that is not a number");
+			}
+		}
+		return new LinearEvaluator(weights);
+	}
+
+	/**
+	 * Writes the weights to a file that open can read back
+	 *
+	 * @param path
+	 * @param comment
+	 *            - written at the top of the file, or null
+	 * @throws IOException
+	 */
+	public void save(String path, String comment) throws IOException {
+		PrintWriter out = new PrintWriter(path, "UTF-8");
+		try {
+			if (comment != null) {
+				out.println("# " + comment);
+			}
+			double[] weights = getWeights();
+			for (int i = 0; i < FEATURES.length; i++) {
+				out.println(FEATURES[i] + " = " + weights[i]);
+			}
+		} finally {
+			out.close();
+		}
+		if (out.checkError()) {
+			throw new IOException("Could not write " + path);
+		}
+	}
+
+	private static int indexOf(String name) {
+		for (int i = 0; i < FEATURES.length; i++) {
+			if (FEATURES[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return a copy of the weights, indexed as in FEATURES
+	 */
+	public double[] getWeights() {
+		return new double[] { this.score, this.seeds, this.emptyPits, this.vulnerablePits, this.mobility,
+				this.skipCredit, this.scoreByCaptured, this.seedsByCaptured };
+	}
+
+	@Override
+	public int evaluate(MutableBoardState boardState, int player) {
+		int opponent = 1 - player;
+		int captured = MAX_BEANS - boardState.getSeedsLeft();
+		int scoreDifference = boardState.getScore(player) - boardState.getScore(opponent);
+		int seedDifference = boardState.getSeedsOnSide(player) - boardState.getSeedsOnSide(opponent);
+		return (int) (scoreDifference * (this.score + captured * this.scoreByCaptured)
+				+ seedDifference * (this.seeds + captured * this.seedsByCaptured)
+				+ (boardState.getEmptyPits(player) - boardState.getEmptyPits(opponent)) * this.emptyPits
+				+ (boardState.getVulnerablePits(player) - boardState.getVulnerablePits(opponent))
+						* this.vulnerablePits
+				+ (boardState.getMobility(player) - boardState.getMobility(opponent)) * this.mobility
+				+ (boardState.getCredit(player) - boardState.getCredit(opponent)) * this.skipCredit);
+	}
+
+	/**
+	 * Writes the value of each feature to the given player into features, so
+	 * that evaluate is the sum of each feature times its weight
+	 *
+	 * @param boardState
+	 * @param player
+	 * @param features
+	 *            - at least FEATURES.length long
+	 */
+	public static void getFeatures(MutableBoardState boardState, int player, int[] features) {
+		int opponent = 1 - player;
+		int captured = MAX_BEANS - boardState.getSeedsLeft();
+		features[SCORE] = boardState.getScore(player) - boardState.getScore(opponent);
+		features[SEEDS] = boardState.getSeedsOnSide(player) - boardState.getSeedsOnSide(opponent);
+		features[EMPTY_PITS] = boardState.getEmptyPits(player) - boardState.getEmptyPits(opponent);
+		features[VULNERABLE_PITS] = boardState.getVulnerablePits(player) - boardState.getVulnerablePits(opponent);
+		features[MOBILITY] = boardState.getMobility(player) - boardState.getMobility(opponent);
+		features[SKIP_CREDIT] = boardState.getCredit(player) - boardState.getCredit(opponent);
+		features[SCORE_BY_CAPTURED] = features[SCORE] * captured;
+		features[SEEDS_BY_CAPTURED] = features[SEEDS] * captured;
+	}
+
+}
@@ -0,0 +1,236 @@
+package student_player.mytools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import boardgame.Server;
+import bohnenspiel.BohnenspielBoardState;
+import bohnenspiel.BohnenspielMove;
+import student_player.StudentPlayer;
+import student_player.mytools.PlayerConfig.Parameter;
+
+/**
+ * Plays StudentPlayer with one configuration against StudentPlayer with
+ * another and prints the score, so that a change can be shown to gain, or at
+ * least not lose, playing strength before it is turned on. Every pair of
+ * games starts from the same random opening with the sides swapped, and the
+ * games are played in this process the way SpsaTuner plays them: with the
+ * server's timeouts, no pondering, and the first move given no longer than
+ * the others. Use no more threads than there are cores.
+ *
+ * Each configuration is the path of a configuration file, or else a comma
+ * separated list of PARAMETER=value settings to change from the defaults,
+ * such as LATE_MOVE_REDUCTIONS=0,MAX_TIME=200, or "default". The score is
+ * given for the first configuration, along with the Elo difference it implies
+ * and a 95% confidence interval.
+ *
+ * From the root directory of the project, run
+ *
+ * <pre>
+ *     java -cp bin student_player.mytools.Match [pairs] [threads] [config] [opponent config]
+ * </pre>
+ *
+ * @author kstricks
+ *
+ */
+public class Match {
+
+	private static final int DEFAULT_PAIRS = 50;
+	private static final long SEED = 424;
+
+	// random moves before the players take over, so that games differ
+	private static final int RANDOM_PLIES = 2;
+	// the board ends every game after MAX_TURN turns; this only guards the
+	// loop
+	private static final int MAX_PLIES = 2 * (BohnenspielBoardState.MAX_TURN + 2);
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int pairs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PAIRS;
+		int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		final PlayerConfig config = forGames(parseConfig(args.length > 2 ? args[2] : "default"));
+		final PlayerConfig opponent = forGames(parseConfig(args.length > 3 ? args[3] : "default"));
+
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		Random random = new Random(SEED);
+		for (int i = 0; i < pairs; i++) {
+			final long pairSeed = random.nextLong();
+			tasks.add(new Callable<Integer>() {
+				public Integer call() {
+					return playGame(config, opponent, new Random(pairSeed))
+							+ 2 - playGame(opponent, config, new Random(pairSeed));
+				}
+			});
+		}
+
+		// the result of each pair in half points, from 0 to 4
+		int[] results = new int[pairs];
+		try {
+			List<Future<Integer>> futures = pool.invokeAll(tasks);
+			for (int i = 0; i < pairs; i++) {
+				results[i] = futures.get(i).get();
+			}
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		report(results);
+	}
+
+	/**
+	 * Prints the score of the first configuration over the pairs of games,
+	 * and the Elo difference, with the confidence interval taken from the
+	 * spread of the pairs' results
+	 *
+	 * @param results
+	 *            - the result of each pair to the first configuration, in half
+	 *            points
+	 */
+	private static void report(int[] results) {
+		int n = results.length;
+		double sum = 0;
+		for (int result : results) {
+			sum += result / 4.0;
+		}
+		double mean = sum / n;
+		double variance = 0;
+		for (int result : results) {
+			variance += (result / 4.0 - mean) * (result / 4.0 - mean);
+		}
+		double error = n > 1 ? 1.96 * Math.sqrt(variance / (n - 1) / n) : 0;
+		System.out.println(String.format(Locale.ROOT, "score %.1f / %d (%.1f%%), elo %+.0f [%+.0f, %+.0f]",
+				2 * n * mean, 2 * n, 100 * mean, elo(mean), elo(mean - error), elo(mean + error)));
+	}
+
+	/**
+	 * @param score
+	 *            - the fraction of the points won
+	 * @return the Elo difference the score implies, clamped to +-1000
+	 */
+	private static double elo(double score) {
+		double clamped = Math.min(0.997, Math.max(0.003, score));
+		return -400 * Math.log10(1 / clamped - 1);
+	}
+
+	/**
+	 * Returns the configuration read from a file, or the defaults with the
+	 * given settings changed
+	 *
+	 * @param arg
+	 *            - a path, "default", or PARAMETER=value settings separated by
+	 *            commas
+	 * @return
+	 * @throws IOException
+	 */
+	static PlayerConfig parseConfig(String arg) throws IOException {
+		if (new File(arg).exists()) {
+			return PlayerConfig.open(arg);
+		}
+		PlayerConfig config = new PlayerConfig();
+		if (arg.equals("default")) {
+			return config;
+		}
+		for (String setting : arg.split(",")) {
+			String[] parts = setting.split("=");
+			if (parts.length != 2) {
+				throw new IOException("not a file or a PARAMETER=value setting: " + setting);
+			}
+			config.set(Parameter.valueOf(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+		}
+		return config;
+	}
+
+	/**
+	 * @param config
+	 * @return a copy of the configuration for playing games in this process,
+	 *         with the first move given no longer than the others so that
+	 *         games stay short
+	 */
+	static PlayerConfig forGames(PlayerConfig config) {
+		PlayerConfig games = new PlayerConfig(config);
+		games.set(Parameter.PONDER, 0);
+		games.set(Parameter.FIRST_MOVE_TIME,
+				Math.min(games.get(Parameter.FIRST_MOVE_TIME), games.get(Parameter.MAX_TIME)));
+		return games;
+	}
+
+
+	/**
+	 * Plays one game between StudentPlayers with the given configurations, the
+	 * way the client and server would
+	 *
+	 * @param config0
+	 *            - the configuration of player 0
+	 * @param config1
+	 *            - the configuration of player 1
+	 * @param random
+	 *            - for the opening moves
+	 * @return the result to player 0 in half points: 2 for a win, 1 for a draw
+	 *         and 0 for a loss
+	 */
+	static int playGame(PlayerConfig config0, PlayerConfig config1, Random random) {
+		StudentPlayer[] players = { new StudentPlayer(config0), new StudentPlayer(config1) };
+		players[0].setColor(0);
+		players[1].setColor(1);
+		boolean[] moved = new boolean[2];
+		BohnenspielBoardState boardState = new BohnenspielBoardState();
+		try {
+			for (int ply = 0; ply < MAX_PLIES && !boardState.gameOver(); ply++) {
+				int turnPlayer = boardState.getTurnPlayer();
+				ArrayList<BohnenspielMove> legalMoves = boardState.getLegalMoves();
+				if (legalMoves.isEmpty()) {
+					// the player to move is stuck and loses
+					return turnPlayer == 0 ? 0 : 2;
+				}
+
+				BohnenspielMove move;
+				if (ply < RANDOM_PLIES) {
+					move = legalMoves.get(random.nextInt(legalMoves.size()));
+				} else {
+					long start = System.currentTimeMillis();
+					move = players[turnPlayer].chooseMove((BohnenspielBoardState) boardState.clone());
+					long elapsed = System.currentTimeMillis() - start;
+					// the first move the player makes is the one with the
+					// longer timeout, as it is on the server
+					int timeout = moved[turnPlayer] ? Server.DEFAULT_TIMEOUT : Server.FIRST_MOVE_TIMEOUT;
+					moved[turnPlayer] = true;
+					if (elapsed > timeout) {
+						return turnPlayer == 0 ? 0 : 2;
+					}
+					if (move == null) {
+						// the client plays a random move for the player
+						move = (BohnenspielMove) boardState.getRandomMove();
+					}
+					move.setPlayerID(turnPlayer);
+					if (!boardState.isLegal(move)) {
+						return turnPlayer == 0 ? 0 : 2;
+					}
+				}
+				boardState.move(move);
+				players[0].movePlayed((BohnenspielBoardState) boardState.clone(), move);
+				players[1].movePlayed((BohnenspielBoardState) boardState.clone(), move);
+			}
+		} finally {
+			players[0].gameOver(null, boardState);
+			players[1].gameOver(null, boardState);
+		}
+		int winner = boardState.getWinner();
+		if (winner == 0) {
+			return 2;
+		} else if (winner == 1) {
+			return 0;
+		}
+		return 1;
+	}
+
+}
@@ -0,0 +1,90 @@
+package student_player.mytools;
+
+import java.util.ArrayList;
+
+import bohnenspiel.BohnenspielBoardState;
+
+/**
+ * Runs MonteCarloTreeSearch for a fixed time on a fixed suite of positions
+ * and prints the playouts per second, the size of the tree and how deep it
+ * grew, along with the depth AlphaBetaMinimax reaches in the same time. Then
+ * runs ParallelMonteCarloTreeSearch on the same suite with 1, 2, 4, ...
+ * threads and prints the playouts per second with each thread count.
+ *
+ * From the root directory of the project, run
+ *
+ * <pre>
+ *     java -cp bin student_player.mytools.MctsBenchmark [millis] [positions] [maxThreads]
+ * </pre>
+ *
+ * @author kstricks
+ *
+ */
+public class MctsBenchmark {
+
+	// the time a player has for a move, less the buffer StudentPlayer leaves
+	private static final int DEFAULT_MILLIS = 600;
+	private static final int DEFAULT_POSITIONS = 20;
+	// the same suite SearchBenchmark uses
+	private static final long SUITE_SEED = 424;
+	private static final int UTILITY_FUNCTION = 5;
+
+	public static void main(String[] args) {
+		int millis = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MILLIS;
+		int numPositions = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_POSITIONS;
+		int maxThreads = args.length > 2 ? Integer.parseInt(args[2])
+				: Math.max(4, Runtime.getRuntime().availableProcessors());
+
+		ArrayList<BohnenspielBoardState> positions = SearchBenchmark.positionSuite(numPositions, SUITE_SEED);
+		MonteCarloTreeSearch mcts = new MonteCarloTreeSearch(MonteCarloTreeSearch.DEFAULT_CAPACITY,
+				MonteCarloTreeSearch.DEFAULT_EXPLORATION, SUITE_SEED);
+
+		System.out.println(millis + " ms per position, " + positions.size() + " positions");
+		System.out.println(String.format("%-9s %10s %12s %10s %9s %9s %8s", "position", "turn", "playouts",
+				"playouts/s", "nodes", "max depth", "ab depth"));
+		long totalPlayouts = 0;
+		long totalNanos = 0;
+		for (int i = 0; i < positions.size(); i++) {
+			BohnenspielBoardState position = positions.get(i);
+
+			long start = System.nanoTime();
+			MinimaxResponse mresp = mcts.search(position, start + millis * 1000000L);
+			long elapsed = Math.max(1, System.nanoTime() - start);
+			totalPlayouts += mresp.getNodes();
+			totalNanos += elapsed;
+
+			AlphaBetaMinimax abmm = new AlphaBetaMinimax(position.getTurnPlayer(), UTILITY_FUNCTION,
+					new TranspositionTable());
+			abmm.setMoveOrdering(new MoveOrdering());
+			MinimaxResponse abResp = abmm.iterativeDeepeningDecision((BohnenspielBoardState) position.clone(),
+					System.nanoTime() + millis * 1000000L);
+
+			System.out.println(String.format("%-9d %10d %12d %10d %9d %9d %8d", i, position.getTurnNumber(),
+					mresp.getNodes(), mresp.getNodes() * 1000000000L / elapsed, mcts.getSize(), mresp.getDepth(),
+					abResp.getDepth()));
+		}
+		System.out.println("average " + totalPlayouts * 1000000000L / Math.max(1, totalNanos) + " playouts/s");
+
+		System.out.println();
+		System.out.println("tree-parallel, " + Runtime.getRuntime().availableProcessors() + " processors");
+		System.out.println(String.format("%-8s %12s %10s %9s", "threads", "playouts", "playouts/s", "speedup"));
+		long baseline = 0;
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			ParallelMonteCarloTreeSearch search = new ParallelMonteCarloTreeSearch(threads,
+					MonteCarloTreeSearch.DEFAULT_CAPACITY, MonteCarloTreeSearch.DEFAULT_EXPLORATION, SUITE_SEED);
+			long playouts = 0;
+			long start = System.nanoTime();
+			for (BohnenspielBoardState position : positions) {
+				playouts += search.search(position, System.nanoTime() + millis * 1000000L).getNodes();
+			}
+			long perSecond = playouts * 1000000000L / Math.max(1, System.nanoTime() - start);
+			search.shutdown();
+			if (threads == 1) {
+				baseline = perSecond;
+			}
+			System.out.println(String.format("%-8d %12d %10d %9.2f", threads, playouts, perSecond,
+					(double) perSecond / Math.max(1, baseline)));
+		}
+	}
+
+}
@@ -7,6 +7,11 @@ public class Minimax {
 
 	// the id of the max player
 	private int player;
+	// legal moves for each number of moves to go, so that generating moves
+	// below the root never allocates
+	private int[][] moveBuffers = new int[0][];
+	// the nodes and positions evaluated by the current search
+	private final SearchStats stats = new SearchStats();
 
 	public Minimax(int player) {
 		this.player = player;
@@ -22,13 +27,31 @@ public class Minimax {
 	 *            - the depth at which to stop simulating moves (i.e. the number
 	 *            of moves to simulate)
 	 * @return The best move or null if no moves are possible or if all moves
-	 *         result in us losing
+	 *         result in us losing, along with the search statistics
 	 */
 	public MinimaxResponse minimaxDecision(BohnenspielBoardState boardState, int movesToGo) {
+		return minimaxDecision(new MutableBoardState(boardState), movesToGo);
+	}
+
+	/**
+	 * Same as minimaxDecision(BohnenspielBoardState, int), searching the given
+	 * state in place, which is left as it was
+	 * 
+	 * @param boardState
+	 * @param movesToGo
+	 * @return
+	 */
+	public MinimaxResponse minimaxDecision(MutableBoardState boardState, int movesToGo) {
 		if (movesToGo <= 0) {
 			throw new InvalidDepthException();
 		}
 
+		if (movesToGo > this.moveBuffers.length) {
+			this.moveBuffers = new int[movesToGo][MutableBoardState.MAX_MOVES];
+		}
+
+		this.stats.start();
+		this.stats.setDepth(movesToGo);
 		BohnenspielMove bestMove = null;
 		int bestScore = Integer.MIN_VALUE;
 
@@ -38,15 +61,14 @@ public class Minimax {
 
 		int projectedMoveScore;
 		for (BohnenspielMove move : boardState.getLegalMoves()) {
-			// clone the current board state
-			BohnenspielBoardState clonedBoardState = (BohnenspielBoardState) boardState.clone();
-			// make the move on the cloned board state
-			clonedBoardState.move(move);
+			// make the move in place, remembering how to take it back
+			long undo = boardState.apply(move);
 			// get net score expected if we make this move
-			projectedMoveScore = minValue(clonedBoardState, movesToGo - 1);
+			projectedMoveScore = minValue(boardState, movesToGo - 1);
+			boardState.undo(undo);
 			if (projectedMoveScore == Integer.MAX_VALUE) {
 				// this move results in us winning --> take it
-				return new MinimaxResponse(move, false, false);
+				return new MinimaxResponse(move, false, false, getStats());
 			} else if (projectedMoveScore == Integer.MIN_VALUE) {
 				// this move results in us losing --> move onto the next move
 				fullSimulation = false;
@@ -58,7 +80,12 @@ public class Minimax {
 			}
 		}
 
-		return new MinimaxResponse(bestMove, fullSimulation, bestMove == null ? true : false);
+		return new MinimaxResponse(bestMove, fullSimulation, bestMove == null ? true : false, getStats());
+	}
+
+	private SearchStats getStats() {
+		this.stats.stop();
+		return new SearchStats(this.stats);
 	}
 
 	/**
@@ -68,7 +95,8 @@ public class Minimax {
 	 * @param boardState
 	 * @return
 	 */
-	private int minValue(BohnenspielBoardState boardState, int movesToGo) {
+	private int minValue(MutableBoardState boardState, int movesToGo) {
+		this.stats.nodes++;
 		if (boardState.gameOver()) {
 			if (boardState.getWinner() == this.player) {
 				return Integer.MAX_VALUE;
@@ -81,10 +109,12 @@ public class Minimax {
 
 		int bestScore = Integer.MAX_VALUE;
 		int projectedMoveScore;
-		for (BohnenspielMove move : boardState.getLegalMoves()) {
-			BohnenspielBoardState clonedBoardState = (BohnenspielBoardState) boardState.clone();
-			clonedBoardState.move(move);
-			projectedMoveScore = maxValue(clonedBoardState, movesToGo - 1);
+		int[] moves = this.moveBuffers[movesToGo];
+		int numMoves = boardState.getLegalMoves(moves);
+		for (int i = 0; i < numMoves; i++) {
+			long undo = boardState.apply(moves[i]);
+			projectedMoveScore = maxValue(boardState, movesToGo - 1);
+			boardState.undo(undo);
 			if (projectedMoveScore == Integer.MAX_VALUE) {
 				// this move results in the min player losing --> try the next one
 				continue;
@@ -107,7 +137,8 @@ public class Minimax {
 	 * @param boardState
 	 * @return
 	 */
-	private int maxValue(BohnenspielBoardState boardState, int movesToGo) {
+	private int maxValue(MutableBoardState boardState, int movesToGo) {
+		this.stats.nodes++;
 		if (boardState.gameOver()) {
 			if (boardState.getWinner() == this.player) {
 				return Integer.MAX_VALUE;
@@ -120,10 +151,12 @@ public class Minimax {
 
 		int bestScore = Integer.MIN_VALUE;
 		int projectedMoveScore;
-		for (BohnenspielMove move : boardState.getLegalMoves()) {
-			BohnenspielBoardState clonedBoardState = (BohnenspielBoardState) boardState.clone();
-			clonedBoardState.move(move);
-			projectedMoveScore = minValue(clonedBoardState, movesToGo - 1);
+		int[] moves = this.moveBuffers[movesToGo];
+		int numMoves = boardState.getLegalMoves(moves);
+		for (int i = 0; i < numMoves; i++) {
+			long undo = boardState.apply(moves[i]);
+			projectedMoveScore = minValue(boardState, movesToGo - 1);
+			boardState.undo(undo);
 			if (projectedMoveScore == Integer.MAX_VALUE) {
 				// this move results in the max player winning --> take it
 				return Integer.MAX_VALUE;
@@ -140,7 +173,8 @@ public class Minimax {
 		return bestScore;
 	}
 
-	private int getUtility(BohnenspielBoardState boardState) {
+	private int getUtility(MutableBoardState boardState) {
+		this.stats.leafEvaluations++;
 		return scoreDifference(boardState);
 	}
 
@@ -155,7 +189,7 @@ public class Minimax {
 	 * @param boardState
 	 * @return
 	 */
-	private int scoreDifference(BohnenspielBoardState boardState) {
+	private int scoreDifference(MutableBoardState boardState) {
 		return boardState.getScore(this.player) - boardState.getScore(1 - this.player);
 	}
 }
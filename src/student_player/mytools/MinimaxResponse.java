@@ -7,11 +7,29 @@ public class MinimaxResponse {
 	private final BohnenspielMove move;
 	private final boolean fullSimulation;
 	private final boolean shouldSkip;
+	// the number of moves searched, and the number of nodes visited (0 if not
+	// counted)
+	private final int depth;
+	private final long nodes;
+	// what the search did; never null, but only the depth and nodes are
+	// filled in for searches that count nothing else
+	private final SearchStats stats;
 
 	public MinimaxResponse(BohnenspielMove move, boolean fullSimulation, boolean shouldSkip) {
+		this(move, fullSimulation, shouldSkip, 0, 0);
+	}
+
+	public MinimaxResponse(BohnenspielMove move, boolean fullSimulation, boolean shouldSkip, int depth, long nodes) {
+		this(move, fullSimulation, shouldSkip, new SearchStats(depth, nodes));
+	}
+
+	public MinimaxResponse(BohnenspielMove move, boolean fullSimulation, boolean shouldSkip, SearchStats stats) {
 		this.move = move;
 		this.fullSimulation = fullSimulation;
 		this.shouldSkip = shouldSkip;
+		this.depth = stats.getDepth();
+		this.nodes = stats.getNodes();
+		this.stats = stats;
 	}
 
 	public BohnenspielMove getMove() {
@@ -26,4 +44,16 @@ public class MinimaxResponse {
 		return this.shouldSkip;
 	}
 
+	public int getDepth() {
+		return this.depth;
+	}
+
+	public long getNodes() {
+		return this.nodes;
+	}
+
+	public SearchStats getStats() {
+		return this.stats;
+	}
+
 }
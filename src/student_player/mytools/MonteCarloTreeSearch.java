@@ -0,0 +1,281 @@
+package student_player.mytools;
+
+import bohnenspiel.BohnenspielBoardState;
+import bohnenspiel.BohnenspielMove;
+
+/**
+ * Monte Carlo tree search with UCT selection. Each playout walks down the tree
+ * picking the child with the best upper confidence bound, adds the children of
+ * the node it stops at, plays random moves to the end of the game from there
+ * and credits the result to every node on the way down.
+ *
+ * The tree is stored in parallel arrays indexed by node rather than as
+ * objects, and the children of a node sit next to each other, so a node only
+ * needs the index of its first child and the number of children. The arrays
+ * are allocated once, when the search is created, and a search simply starts
+ * filling them again from the beginning. Playouts run on a PackedBoardState,
+ * so a search allocates nothing after the root.
+ *
+ * @author kstricks
+ *
+ */
+public class MonteCarloTreeSearch {
+
+	// 2M nodes, about 30 MB
+	public static final int DEFAULT_CAPACITY = 1 << 21;
+
+	// the exploration constant C in the UCT formula
+	public static final double DEFAULT_EXPLORATION = 1.0;
+
+	// firstChild of a node that has not been expanded
+	private static final int UNEXPANDED = -1;
+	private static final int ROOT = 0;
+
+	// the reward for a draw; a win is worth 1 and a loss 0
+	private static final float DRAW_REWARD = 0.5f;
+
+	// no line of play is longer than two moves per turn up to the turn limit,
+	// plus the root
+	private static final int MAX_PATH = 2 * (BohnenspielBoardState.MAX_TURN + 2);
+
+	private final int capacity;
+	private final double exploration;
+
+	// the number of playouts through each node
+	private final int[] visits;
+	// the total reward of those playouts, for the player who made the move
+	// leading to the node
+	private final float[] wins;
+	// the index of each node's first child, or UNEXPANDED
+	private final int[] firstChild;
+	private final byte[] numChildren;
+	// the move leading to each node, as a PackedBoardState move
+	private final byte[] moves;
+	// the number of nodes in use
+	private int size;
+
+	// scratch space for a single playout
+	private final PackedBoardState state = new PackedBoardState();
+	private final int[] path = new int[MAX_PATH];
+	private final int[] moveBuffer = new int[MutableBoardState.MAX_MOVES];
+	private final Rollout rollout;
+
+	// statistics for the last search
+	private long playouts;
+	private int maxDepth;
+
+	/**
+	 * Creates a search with the default capacity and exploration constant
+	 */
+	public MonteCarloTreeSearch() {
+		this(DEFAULT_CAPACITY, DEFAULT_EXPLORATION, System.nanoTime());
+	}
+
+	/**
+	 * @param capacity
+	 *            - the most nodes the tree can hold; once it is full, playouts
+	 *            carry on without adding nodes
+	 * @param exploration
+	 *            - the exploration constant C in the UCT formula
+	 * @param seed
+	 *            - seeds the random moves played in rollouts
+	 */
+	public MonteCarloTreeSearch(int capacity, double exploration, long seed) {
+		if (capacity < 1 + MutableBoardState.MAX_MOVES) {
+			throw new IllegalArgumentException("capacity must be at least " + (1 + MutableBoardState.MAX_MOVES)
+					+ ", was " + capacity);
+		}
+		this.capacity = capacity;
+		this.exploration = exploration;
+		this.visits = new int[capacity];
+		this.wins = new float[capacity];
+		this.firstChild = new int[capacity];
+		this.numChildren = new byte[capacity];
+		this.moves = new byte[capacity];
+		this.rollout = new Rollout(seed);
+	}
+
+	public void setSeed(long seed) {
+		this.rollout.setSeed(seed);
+	}
+
+	/**
+	 * Runs playouts from the given state until the deadline passes
+	 *
+	 * @param boardState
+	 *            - the current board state, which is not modified
+	 * @param deadline
+	 *            - the System.nanoTime() by which we must have a move
+	 * @return The most visited move at the root, the deepest the tree reached
+	 *         as the depth and the number of playouts as the nodes
+	 */
+	public MinimaxResponse search(BohnenspielBoardState boardState, long deadline) {
+		SearchStats stats = new SearchStats();
+		stats.start();
+		PackedBoardState root = new PackedBoardState(boardState);
+		long rootLo = root.getLo();
+		long rootHi = root.getHi();
+		int rootPlayer = root.getTurnPlayer();
+
+		this.playouts = 0;
+		this.maxDepth = 0;
+		this.size = 1;
+		newNode(ROOT, MutableBoardState.SKIP);
+		this.state.set(rootLo, rootHi);
+		if (root.gameOver() || expand(ROOT) == 0) {
+			return new MinimaxResponse(null, false, true, 0, 0);
+		}
+
+		// with only one legal move there is nothing to search
+		if (this.numChildren[ROOT] > 1) {
+			do {
+				this.state.set(rootLo, rootHi);
+				playout(rootPlayer);
+			} while (System.nanoTime() < deadline);
+		}
+
+		BohnenspielMove bestMove = MutableBoardState.toMove(bestMove(), rootPlayer);
+		// every playout ends in one scored position
+		stats.nodes = this.playouts;
+		stats.leafEvaluations = this.playouts;
+		stats.setDepth(this.maxDepth);
+		stats.stop();
+		return new MinimaxResponse(bestMove, false, false, stats);
+	}
+
+	/**
+	 * Returns the move at the root that has been played out the most. This is
+	 * more robust than the best average, which a child with few playouts can
+	 * top by luck.
+	 *
+	 * @return
+	 */
+	private int bestMove() {
+		int first = this.firstChild[ROOT];
+		int best = first;
+		for (int child = first + 1; child < first + this.numChildren[ROOT]; child++) {
+			if (this.visits[child] > this.visits[best]) {
+				best = child;
+			}
+		}
+		return this.moves[best];
+	}
+
+	public long getPlayouts() {
+		return this.playouts;
+	}
+
+	public int getMaxDepth() {
+		return this.maxDepth;
+	}
+
+	/** The number of nodes in the tree after the last search */
+	public int getSize() {
+		return this.size;
+	}
+
+	// =========================================================================
+	// Playouts
+	// =========================================================================
+
+	/**
+	 * Runs one playout from the state, which must hold the root position
+	 *
+	 * @param rootPlayer
+	 */
+	private void playout(int rootPlayer) {
+		// selection
+		int node = ROOT;
+		int depth = 0;
+		this.path[0] = ROOT;
+		while (this.firstChild[node] != UNEXPANDED && !this.state.gameOver()) {
+			node = select(node);
+			this.state.apply(this.moves[node]);
+			this.path[++depth] = node;
+		}
+
+		// expansion, once a node has been played out through once already
+		if (!this.state.gameOver() && this.visits[node] > 0
+				&& this.size + MutableBoardState.MAX_MOVES <= this.capacity && expand(node) > 0) {
+			node = this.firstChild[node] + this.rollout.nextInt(this.numChildren[node]);
+			this.state.apply(this.moves[node]);
+			this.path[++depth] = node;
+		}
+		if (depth > this.maxDepth) {
+			this.maxDepth = depth;
+		}
+
+		int winner = this.rollout.play(this.state);
+
+		// backpropagation. The turn passes after every move, so the moves
+		// leading to odd depths were made by the root player.
+		for (int i = depth; i >= 0; i--) {
+			int n = this.path[i];
+			int mover = (i & 1) == 1 ? rootPlayer : 1 - rootPlayer;
+			this.visits[n]++;
+			if (winner == mover) {
+				this.wins[n] += 1;
+			} else if (winner == BohnenspielBoardState.DRAW) {
+				this.wins[n] += DRAW_REWARD;
+			}
+		}
+		this.playouts++;
+	}
+
+	/**
+	 * Returns the child of a node with the highest upper confidence bound.
+	 * Children that have never been played out come first.
+	 *
+	 * @param node
+	 * @return
+	 */
+	private int select(int node) {
+		int first = this.firstChild[node];
+		int end = first + this.numChildren[node];
+		double logVisits = Math.log(this.visits[node]);
+		int best = first;
+		double bestBound = Double.NEGATIVE_INFINITY;
+		for (int child = first; child < end; child++) {
+			int childVisits = this.visits[child];
+			if (childVisits == 0) {
+				return child;
+			}
+			double bound = this.wins[child] / childVisits + this.exploration * Math.sqrt(logVisits / childVisits);
+			if (bound > bestBound) {
+				bestBound = bound;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Adds a child to a node for each legal move in the state
+	 *
+	 * @param node
+	 * @return the number of children added
+	 */
+	private int expand(int node) {
+		int numMoves = this.state.getLegalMoves(this.moveBuffer);
+		// a player with a credit they cannot use and nothing to sow cannot
+		// move, so the node stays a leaf
+		if (numMoves == 0) {
+			return 0;
+		}
+		this.firstChild[node] = this.size;
+		this.numChildren[node] = (byte) numMoves;
+		for (int i = 0; i < numMoves; i++) {
+			newNode(this.size++, this.moveBuffer[i]);
+		}
+		return numMoves;
+	}
+
+	private void newNode(int node, int move) {
+		this.visits[node] = 0;
+		this.wins[node] = 0;
+		this.firstChild[node] = UNEXPANDED;
+		this.numChildren[node] = 0;
+		this.moves[node] = (byte) move;
+	}
+
+}
@@ -0,0 +1,169 @@
+package student_player.mytools;
+
+/**
+ * Orders moves so that alpha-beta finds cutoffs early. Moves are tried in
+ * this order:
+ *
+ * <ol>
+ * <li>the best move stored in the transposition table</li>
+ * <li>the killer moves for the ply, i.e. the last two moves that caused a
+ * cutoff at the same depth in the tree</li>
+ * <li>the remaining moves, by the number of beans they capture immediately
+ * and then by the history table, which counts how often a (player, pit) move
+ * has caused cutoffs anywhere in the tree</li>
+ * </ol>
+ *
+ * Each of these can be switched off, so that their effect on the number of
+ * nodes searched can be measured.
+ *
+ * Moves are encoded as in MutableBoardState: their pit, or SKIP for a skip.
+ *
+ * @author kstricks
+ *
+ */
+public class MoveOrdering {
+
+	// the deepest ply we keep killer moves for
+	public static final int MAX_PLY = 128;
+	// the number of distinct move encodings (6 pits and the skip)
+	private static final int NUM_MOVES = MutableBoardState.MAX_MOVES;
+
+	// ordering scores for the different classes of move
+	private static final int TABLE_MOVE_SCORE = 1 << 30;
+	private static final int KILLER_SCORE = 1 << 29;
+	private static final int CAPTURE_SCALE = 1 << 20;
+	// history scores are halved once they reach this, so they never spill
+	// into the capture scores
+	private static final int MAX_HISTORY = CAPTURE_SCALE - 1;
+
+	private final boolean useTableMove;
+	private final boolean useKillers;
+	private final boolean useHistory;
+	private final boolean useCaptures;
+
+	// the two most recent moves that caused a cutoff at each ply
+	private final int[][] killers = new int[MAX_PLY][2];
+	// cutoff counts, weighted by depth, indexed by [player][move]
+	private final int[][] history = new int[2][NUM_MOVES];
+	// ordering scores for the moves being sorted at each ply, so that sorting
+	// never allocates
+	private final int[][] scores = new int[MAX_PLY][NUM_MOVES];
+
+	public MoveOrdering() {
+		this(true, true, true, true);
+	}
+
+	public MoveOrdering(boolean useTableMove, boolean useKillers, boolean useHistory, boolean useCaptures) {
+		this.useTableMove = useTableMove;
+		this.useKillers = useKillers;
+		this.useHistory = useHistory;
+		this.useCaptures = useCaptures;
+		clearKillers();
+	}
+
+	/**
+	 * Prepares for a search from a new root. Killer moves are tied to plies
+	 * from the old root, so they are cleared, while the history table is aged
+	 * so that recent cutoffs count for more.
+	 */
+	public void newSearch() {
+		clearKillers();
+		for (int player = 0; player < 2; player++) {
+			for (int move = 0; move < NUM_MOVES; move++) {
+				this.history[player][move] >>= 1;
+			}
+		}
+	}
+
+	private void clearKillers() {
+		for (int ply = 0; ply < MAX_PLY; ply++) {
+			this.killers[ply][0] = TranspositionTable.NO_MOVE;
+			this.killers[ply][1] = TranspositionTable.NO_MOVE;
+		}
+	}
+
+	/**
+	 * Sorts the legal moves of a position in place, best first
+	 *
+	 * @param boardState
+	 * @param moves
+	 *            - the legal moves for boardState, as move codes
+	 * @param numMoves
+	 *            - the number of moves in the buffer
+	 * @param ply
+	 *            - the number of moves between the root and boardState
+	 * @param tableMove
+	 *            - the best move stored in the transposition table for
+	 *            boardState, or TranspositionTable.NO_MOVE
+	 */
+	public void order(MutableBoardState boardState, int[] moves, int numMoves, int ply, int tableMove) {
+		if (ply >= MAX_PLY) {
+			return;
+		}
+		int player = boardState.getTurnPlayer();
+		int[] moveScores = this.scores[ply];
+
+		for (int i = 0; i < numMoves; i++) {
+			int move = moves[i];
+			int score = 0;
+			if (this.useTableMove && move == tableMove) {
+				score = TABLE_MOVE_SCORE;
+			} else if (this.useKillers && move == this.killers[ply][0]) {
+				score = KILLER_SCORE + 1;
+			} else if (this.useKillers && move == this.killers[ply][1]) {
+				score = KILLER_SCORE;
+			} else {
+				if (this.useCaptures) {
+					score = boardState.getCaptureSeeds(move) * CAPTURE_SCALE;
+				}
+				if (this.useHistory) {
+					score += this.history[player][move];
+				}
+			}
+			moveScores[i] = score;
+		}
+
+		// insertion sort: there are at most seven moves
+		for (int i = 1; i < numMoves; i++) {
+			int score = moveScores[i];
+			int move = moves[i];
+			int j = i - 1;
+			while (j >= 0 && moveScores[j] < score) {
+				moveScores[j + 1] = moveScores[j];
+				moves[j + 1] = moves[j];
+				j--;
+			}
+			moveScores[j + 1] = score;
+			moves[j + 1] = move;
+		}
+	}
+
+	/**
+	 * Records that a move caused a cutoff
+	 *
+	 * @param player
+	 *            - the player who made the move
+	 * @param move
+	 * @param ply
+	 * @param movesToGo
+	 *            - the depth remaining below the node where the cutoff
+	 *            happened; cutoffs higher in the tree count for more
+	 */
+	public void recordCutoff(int player, int move, int ply, int movesToGo) {
+		if (this.useKillers && ply < MAX_PLY && this.killers[ply][0] != move) {
+			this.killers[ply][1] = this.killers[ply][0];
+			this.killers[ply][0] = move;
+		}
+		if (this.useHistory) {
+			this.history[player][move] += movesToGo * movesToGo;
+			if (this.history[player][move] > MAX_HISTORY) {
+				for (int p = 0; p < 2; p++) {
+					for (int m = 0; m < NUM_MOVES; m++) {
+						this.history[p][m] >>= 1;
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,703 @@
+package student_player.mytools;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import bohnenspiel.BohnenspielBoardState;
+import bohnenspiel.BohnenspielMove;
+import bohnenspiel.BohnenspielMove.MoveType;
+
+/**
+ * A copy of a Bohnenspiel game state that search code changes in place. A
+ * search builds one from the BohnenspielBoardState it is asked about, then
+ * makes and unmakes moves on it with apply and undo instead of cloning a
+ * board state for every move it explores. Moves follow the same rules as
+ * BohnenspielBoardState.move.
+ *
+ * As seeds are sown, captured and swept up, the state keeps a Zobrist key
+ * and a few evaluation features up to date, so that reading them takes
+ * constant time.
+ *
+ * Moves are encoded as ints: 0-5 to sow from that pit and SKIP to skip.
+ *
+ * @author kstricks
+ *
+ */
+public final class MutableBoardState {
+
+	// the int encoding of a skip move
+	public static final int SKIP = 6;
+	// the maximum number of legal moves in any position: every pit and a skip
+	public static final int MAX_MOVES = 7;
+
+	private static final int PITS = 6;
+	private static final int CYCLE = 2 * PITS;
+	// six beans start in each of the twelve pits
+	private static final int MAX_BEANS = 72;
+	private static final int MAX_CREDIT = 2;
+
+	// layout of the undo records returned by apply
+	private static final long UNDO_MOVE_MASK = 0x7L;
+	private static final int UNDO_SEEDS_SHIFT = 3;
+	private static final long UNDO_SEEDS_MASK = 0x7FL;
+	private static final int UNDO_NUM_CAPTURED_SHIFT = 10;
+	private static final long UNDO_NUM_CAPTURED_MASK = 0xFL;
+	// two bits per captured pit, holding the captured seeds divided by two
+	private static final int UNDO_CAPTURES_SHIFT = 14;
+	private static final int UNDO_SKIP0_SHIFT = 38;
+	private static final int UNDO_SKIP1_SHIFT = 39;
+	private static final int UNDO_WINNER_SHIFT = 40;
+	private static final long UNDO_WINNER_MASK = 0x7L;
+	private static final long UNDO_SWEPT = 1L << 43;
+
+	// Zobrist keys: the key of a state is the XOR of one key per pit and seed
+	// count, per score, per skip credit and pending skip, and
+	// SIDE_TO_MOVE_KEY when it is player 1's turn. The seed is fixed so that
+	// keys stored in files stay valid from one run to the next.
+	private static final long[][][] PIT_KEYS = new long[2][PITS][MAX_BEANS + 1];
+	private static final long[][] SCORE_KEYS = new long[2][MAX_BEANS + 1];
+	private static final long[][] CREDIT_KEYS = new long[2][MAX_CREDIT + 1];
+	private static final long[][] SKIP_KEYS = new long[2][2];
+	private static final long SIDE_TO_MOVE_KEY;
+
+	static {
+		Random keys = new Random(0x5EED0B0E);
+		for (int side = 0; side < 2; side++) {
+			for (int pit = 0; pit < PITS; pit++) {
+				for (int seeds = 0; seeds <= MAX_BEANS; seeds++) {
+					PIT_KEYS[side][pit][seeds] = keys.nextLong();
+				}
+			}
+			for (int points = 0; points <= MAX_BEANS; points++) {
+				SCORE_KEYS[side][points] = keys.nextLong();
+			}
+			for (int credit = 0; credit <= MAX_CREDIT; credit++) {
+				CREDIT_KEYS[side][credit] = keys.nextLong();
+			}
+			SKIP_KEYS[side][0] = keys.nextLong();
+			SKIP_KEYS[side][1] = keys.nextLong();
+		}
+		SIDE_TO_MOVE_KEY = keys.nextLong();
+	}
+
+	// Each side's evaluation features are packed into one int, so that a pit
+	// changing costs a single add: the number of empty pits in the low four
+	// bits, the number of pits holding 1, 3 or 5 seeds (one more seed makes
+	// them capturable) in the next four, and the seeds on that side above
+	// them. Neither count can exceed six, so no field carries into the next.
+	private static final int EMPTY_MASK = 0xF;
+	private static final int VULNERABLE_SHIFT = 4;
+	private static final int VULNERABLE_MASK = 0xF;
+	private static final int SEEDS_SHIFT = 8;
+
+	// PIT_FEATURES[seeds] is what a pit holding that many seeds adds to the
+	// features of its side
+	private static final int[] PIT_FEATURES = new int[MAX_BEANS + 1];
+
+	static {
+		for (int seeds = 0; seeds <= MAX_BEANS; seeds++) {
+			int vulnerable = seeds == 1 || seeds == 3 || seeds == 5 ? 1 : 0;
+			PIT_FEATURES[seeds] = (seeds << SEEDS_SHIFT) | (vulnerable << VULNERABLE_SHIFT) | (seeds == 0 ? 1 : 0);
+		}
+	}
+
+	// indexed by [player][pit], as in BohnenspielBoardState.getPits
+	private final int[][] pits = new int[2][PITS];
+	private final int[] score = new int[2];
+	private final int[] credit = new int[2];
+	// 1 if the player must pass up a skip on their next turn. Only ever set
+	// for a player with credit left, since that is the only case in which
+	// BohnenspielBoardState lets us see it, so that a state built from one
+	// and the same state reached by apply have the same key.
+	private final int[] turnsToSkip = new int[2];
+	private int turnPlayer;
+	private int turnNumber;
+	private int winner;
+
+	private long hashKey;
+	private final int[] features = new int[2];
+	// pits as they were before the end of game sweep; once the game is over
+	// no further sweep can happen, so one copy is enough
+	private final int[][] sweptPits = new int[2][PITS];
+
+	/**
+	 * Creates the initial state of a game: six beans in every pit and two
+	 * skips each, with player 0 to move.
+	 */
+	public MutableBoardState() {
+		for (int i = 0; i < PITS; i++) {
+			this.pits[0][i] = 6;
+			this.pits[1][i] = 6;
+		}
+		this.credit[0] = MAX_CREDIT;
+		this.credit[1] = MAX_CREDIT;
+		this.winner = BohnenspielBoardState.NOBODY;
+		computeKeyAndFeatures();
+	}
+
+	public MutableBoardState(BohnenspielBoardState boardState) {
+		this.set(boardState);
+	}
+
+	public MutableBoardState(MutableBoardState other) {
+		this.set(other);
+	}
+
+	/**
+	 * Overwrites this state with the given board state. Only the public
+	 * methods of BohnenspielBoardState are used, so the pending skip of the
+	 * player to move is worked out from whether they may skip. A pending skip
+	 * is only ever kept for a player with skip credit, here and in apply, as
+	 * it changes nothing for one without; PackedBoardState does the same.
+	 *
+	 * @param boardState
+	 */
+	public void set(BohnenspielBoardState boardState) {
+		int[][] boardPits = boardState.getPits();
+		for (int side = 0; side < 2; side++) {
+			System.arraycopy(boardPits[side], 0, this.pits[side], 0, PITS);
+			this.score[side] = boardState.getScore(side);
+			this.credit[side] = boardState.getCredit(side);
+			this.turnsToSkip[side] = 0;
+		}
+		this.turnPlayer = boardState.getTurnPlayer();
+		this.turnNumber = boardState.getTurnNumber();
+		this.winner = boardState.getWinner();
+		if (this.credit[this.turnPlayer] > 0
+				&& !boardState.isLegal(new BohnenspielMove("skip", this.turnPlayer))) {
+			this.turnsToSkip[this.turnPlayer] = 1;
+		}
+		computeKeyAndFeatures();
+	}
+
+	/**
+	 * Overwrites this state with another
+	 *
+	 * @param other
+	 */
+	public void set(MutableBoardState other) {
+		for (int side = 0; side < 2; side++) {
+			System.arraycopy(other.pits[side], 0, this.pits[side], 0, PITS);
+			System.arraycopy(other.sweptPits[side], 0, this.sweptPits[side], 0, PITS);
+			this.score[side] = other.score[side];
+			this.credit[side] = other.credit[side];
+			this.turnsToSkip[side] = other.turnsToSkip[side];
+			this.features[side] = other.features[side];
+		}
+		this.turnPlayer = other.turnPlayer;
+		this.turnNumber = other.turnNumber;
+		this.winner = other.winner;
+		this.hashKey = other.hashKey;
+	}
+
+	private void computeKeyAndFeatures() {
+		long key = this.turnPlayer == 1 ? SIDE_TO_MOVE_KEY : 0;
+		for (int side = 0; side < 2; side++) {
+			this.features[side] = 0;
+			for (int pit = 0; pit < PITS; pit++) {
+				key ^= PIT_KEYS[side][pit][this.pits[side][pit]];
+				this.features[side] += PIT_FEATURES[this.pits[side][pit]];
+			}
+			key ^= SCORE_KEYS[side][this.score[side]];
+			key ^= CREDIT_KEYS[side][this.credit[side]];
+			key ^= SKIP_KEYS[side][this.turnsToSkip[side]];
+		}
+		this.hashKey = key;
+	}
+
+	// =========================================================================
+	// Accessors
+	// =========================================================================
+
+	/**
+	 * Returns the pits, indexed by [player][pit]. The array is this state's
+	 * own, so callers must not change it.
+	 *
+	 * @return
+	 */
+	public int[][] getPits() {
+		return this.pits;
+	}
+
+	public int getScore(int player) {
+		return this.score[player];
+	}
+
+	public int getCredit(int player) {
+		return this.credit[player];
+	}
+
+	public int getTurnsToSkip(int player) {
+		return this.turnsToSkip[player];
+	}
+
+	public int getTurnPlayer() {
+		return this.turnPlayer;
+	}
+
+	public int getTurnNumber() {
+		return this.turnNumber;
+	}
+
+	public int getWinner() {
+		return this.winner;
+	}
+
+	public boolean gameOver() {
+		return this.winner != BohnenspielBoardState.NOBODY;
+	}
+
+	/**
+	 * Returns the Zobrist key of this state. Two states with the same pits,
+	 * scores, skip credits, pending skips and player to move have the same
+	 * key.
+	 *
+	 * @return
+	 */
+	public long getHashKey() {
+		return this.hashKey;
+	}
+
+	/**
+	 * Returns the number of seeds in the given player's pits
+	 *
+	 * @param player
+	 * @return
+	 */
+	public int getSeedsOnSide(int player) {
+		return this.features[player] >>> SEEDS_SHIFT;
+	}
+
+	/**
+	 * Returns the number of seeds left in both players' pits
+	 *
+	 * @return
+	 */
+	public int getSeedsLeft() {
+		return (this.features[0] >>> SEEDS_SHIFT) + (this.features[1] >>> SEEDS_SHIFT);
+	}
+
+	/**
+	 * Returns the number of the given player's pits that hold no seeds
+	 *
+	 * @param player
+	 * @return
+	 */
+	public int getEmptyPits(int player) {
+		return this.features[player] & EMPTY_MASK;
+	}
+
+	/**
+	 * Returns the number of the given player's pits that hold 1, 3 or 5
+	 * seeds, and so can be captured by a sowing that ends in them
+	 *
+	 * @param player
+	 * @return
+	 */
+	public int getVulnerablePits(int player) {
+		return (this.features[player] >>> VULNERABLE_SHIFT) & VULNERABLE_MASK;
+	}
+
+	/**
+	 * Returns the number of legal moves the given player would have if it
+	 * were their turn: one per non-empty pit, plus a skip if they have credit
+	 * and are not being skipped
+	 *
+	 * @param player
+	 * @return
+	 */
+	public int getMobility(int player) {
+		int mobility = PITS - (this.features[player] & EMPTY_MASK);
+		if (this.credit[player] > 0 && this.turnsToSkip[player] == 0) {
+			mobility++;
+		}
+		return mobility;
+	}
+
+	// =========================================================================
+	// Move generation
+	// =========================================================================
+
+	/**
+	 * Returns whether the given move is legal for the player whose turn it is
+	 *
+	 * @param move
+	 *            - a pit (0-5) or SKIP
+	 * @return
+	 */
+	public boolean isLegal(int move) {
+		if (move == SKIP) {
+			return this.credit[this.turnPlayer] > 0 && this.turnsToSkip[this.turnPlayer] == 0;
+		}
+		return move >= 0 && move < PITS && this.pits[this.turnPlayer][move] > 0;
+	}
+
+	/**
+	 * Writes the legal moves for the player whose turn it is into moves, in
+	 * the same order as BohnenspielBoardState.getLegalMoves
+	 *
+	 * @param moves
+	 *            - a buffer of at least MAX_MOVES ints
+	 * @return the number of moves written
+	 */
+	public int getLegalMoves(int[] moves) {
+		int[] side = this.pits[this.turnPlayer];
+		int count = 0;
+		for (int i = 0; i < PITS; i++) {
+			if (side[i] > 0) {
+				moves[count++] = i;
+			}
+		}
+		if (this.credit[this.turnPlayer] > 0 && this.turnsToSkip[this.turnPlayer] == 0) {
+			moves[count++] = SKIP;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the legal moves for the player whose turn it is as
+	 * BohnenspielMoves, in the same order as getLegalMoves(int[]). Allocates,
+	 * so it is meant for the root of a search.
+	 *
+	 * @return
+	 */
+	public ArrayList<BohnenspielMove> getLegalMoves() {
+		int[] codes = new int[MAX_MOVES];
+		int numMoves = getLegalMoves(codes);
+		ArrayList<BohnenspielMove> moves = new ArrayList<BohnenspielMove>(numMoves);
+		for (int i = 0; i < numMoves; i++) {
+			moves.add(toMove(codes[i], this.turnPlayer));
+		}
+		return moves;
+	}
+
+	/**
+	 * Returns the number of seeds the given move would capture for the player
+	 * whose turn it is, worked out from the pits without making the move: 0
+	 * for a skip or a sowing whose last seed does not leave 2, 4 or 6 seeds
+	 * in its pit
+	 *
+	 * @param move
+	 *            - a pit (0-5) or SKIP
+	 * @return
+	 */
+	public int getCaptureSeeds(int move) {
+		if (move == SKIP) {
+			return 0;
+		}
+		int seeds = this.pits[this.turnPlayer][move];
+		if (seeds == 0) {
+			return 0;
+		}
+		int start = this.turnPlayer * PITS + move;
+		// Pits are numbered by how far they are sown after the starting pit,
+		// from 1 to CYCLE, the starting pit itself being CYCLE. Every pit gets
+		// one seed per full lap, and the pits up to seeds % CYCLE one more.
+		int captured = 0;
+		int offset = (seeds - 1) % CYCLE + 1;
+		for (int i = 0; i < CYCLE; i++) {
+			int pos = (start + offset) % CYCLE;
+			int beans = (offset == CYCLE ? 0 : this.pits[pos / PITS][pos % PITS])
+					+ (offset <= seeds ? (seeds - offset) / CYCLE + 1 : 0);
+			if (beans != 2 && beans != 4 && beans != 6) {
+				break;
+			}
+			captured += beans;
+			offset = offset == 1 ? CYCLE : offset - 1;
+		}
+		return captured;
+	}
+
+	/**
+	 * Encodes a move as a pit index, or SKIP for a skip
+	 *
+	 * @param move
+	 * @return
+	 */
+	public static int moveCode(BohnenspielMove move) {
+		return move.getMoveType() == MoveType.SKIP ? SKIP : move.getPit();
+	}
+
+	/**
+	 * Decodes a move code into a move for the given player
+	 *
+	 * @param move
+	 *            - a pit (0-5) or SKIP
+	 * @param player
+	 * @return
+	 */
+	public static BohnenspielMove toMove(int move, int player) {
+		if (move == SKIP) {
+			return new BohnenspielMove("skip", player);
+		}
+		return new BohnenspielMove(move, player);
+	}
+
+	// =========================================================================
+	// Applying and undoing moves
+	// =========================================================================
+
+	/**
+	 * Applies a legal move in place and returns an undo record that undo
+	 * takes to restore the state from before the move. Records must be
+	 * undone in the reverse order that they were applied.
+	 *
+	 * @param move
+	 *            - a pit (0-5) or SKIP
+	 * @return
+	 */
+	public long apply(int move) {
+		if (!isLegal(move)) {
+			throw new IllegalArgumentException("Illegal move code for current state: " + move);
+		}
+		int mover = this.turnPlayer;
+		int opponent = 1 - mover;
+		long record = move | ((long) this.turnsToSkip[0] << UNDO_SKIP0_SHIFT)
+				| ((long) this.turnsToSkip[1] << UNDO_SKIP1_SHIFT)
+				| ((long) encodeWinner(this.winner) << UNDO_WINNER_SHIFT);
+
+		if (move == SKIP) {
+			setCredit(mover, this.credit[mover] - 1);
+			if (this.credit[opponent] > 0) {
+				setTurnsToSkip(opponent, 1);
+			}
+		} else {
+			record |= sow(move);
+			setTurnsToSkip(mover, 0);
+		}
+
+		if (mover == 1) {
+			this.turnNumber++;
+		}
+		switchTurnPlayer();
+		if (updateWinner()) {
+			record |= UNDO_SWEPT;
+		}
+		return record;
+	}
+
+	/**
+	 * Same as apply(int), for a move given as a BohnenspielMove
+	 *
+	 * @param move
+	 * @return
+	 */
+	public long apply(BohnenspielMove move) {
+		if (move.getPlayerID() != this.turnPlayer) {
+			throw new IllegalArgumentException("Move is not for the player to move: " + move.toPrettyString());
+		}
+		return apply(moveCode(move));
+	}
+
+	/**
+	 * Restores the state to what it was before the move that produced the
+	 * given undo record was applied. Pits, scores, skip credits, pending
+	 * skips, turn and winner are all restored exactly, including captures and
+	 * the end of game sweep.
+	 *
+	 * @param record
+	 */
+	public void undo(long record) {
+		int move = (int) (record & UNDO_MOVE_MASK);
+
+		switchTurnPlayer();
+		if (this.turnPlayer == 1) {
+			this.turnNumber--;
+		}
+		this.winner = decodeWinner((int) ((record >>> UNDO_WINNER_SHIFT) & UNDO_WINNER_MASK));
+
+		// put back the seeds that were swept up at the end of the game
+		if ((record & UNDO_SWEPT) != 0) {
+			for (int i = 0; i < PITS; i++) {
+				addScore(this.turnPlayer, -(this.sweptPits[0][i] + this.sweptPits[1][i]));
+				setPit(0, i, this.sweptPits[0][i]);
+				setPit(1, i, this.sweptPits[1][i]);
+			}
+		}
+
+		setTurnsToSkip(0, (int) ((record >>> UNDO_SKIP0_SHIFT) & 1));
+		setTurnsToSkip(1, (int) ((record >>> UNDO_SKIP1_SHIFT) & 1));
+
+		if (move == SKIP) {
+			setCredit(this.turnPlayer, this.credit[this.turnPlayer] + 1);
+		} else {
+			unsow(move, record);
+		}
+	}
+
+	/**
+	 * Sows the seeds in the given pit of the player to move counter-clockwise
+	 * around all twelve pits, then captures backwards from the last pit sown
+	 * while pits hold 2, 4 or 6 seeds. Returns the part of the undo record
+	 * describing the sowing and captures.
+	 */
+	private long sow(int pit) {
+		int mover = this.turnPlayer;
+		int seeds = this.pits[mover][pit];
+		setPit(mover, pit, 0);
+
+		int pos = mover * PITS + pit;
+		for (int i = 0; i < seeds; i++) {
+			pos = pos == CYCLE - 1 ? 0 : pos + 1;
+			setPit(pos / PITS, pos % PITS, this.pits[pos / PITS][pos % PITS] + 1);
+		}
+
+		long record = (long) seeds << UNDO_SEEDS_SHIFT;
+		int numCaptured = 0;
+		while (true) {
+			int beans = this.pits[pos / PITS][pos % PITS];
+			if (beans != 2 && beans != 4 && beans != 6) {
+				break;
+			}
+			record |= (long) (beans / 2) << (UNDO_CAPTURES_SHIFT + 2 * numCaptured);
+			numCaptured++;
+			addScore(mover, beans);
+			setPit(pos / PITS, pos % PITS, 0);
+			pos = pos == 0 ? CYCLE - 1 : pos - 1;
+		}
+		return record | ((long) numCaptured << UNDO_NUM_CAPTURED_SHIFT);
+	}
+
+	/**
+	 * Reverses sow for the player whose turn it now is: restores the captured
+	 * pits, takes the captured seeds back off their score and picks the sown
+	 * seeds back up into the starting pit
+	 */
+	private void unsow(int pit, long record) {
+		int seeds = (int) ((record >>> UNDO_SEEDS_SHIFT) & UNDO_SEEDS_MASK);
+		int numCaptured = (int) ((record >>> UNDO_NUM_CAPTURED_SHIFT) & UNDO_NUM_CAPTURED_MASK);
+
+		// captures ran backwards from the last pit sown
+		int start = this.turnPlayer * PITS + pit;
+		int pos = (start + seeds) % CYCLE;
+		for (int i = 0; i < numCaptured; i++) {
+			int beans = 2 * (int) ((record >>> (UNDO_CAPTURES_SHIFT + 2 * i)) & 0x3);
+			setPit(pos / PITS, pos % PITS, beans);
+			addScore(this.turnPlayer, -beans);
+			pos = pos == 0 ? CYCLE - 1 : pos - 1;
+		}
+
+		pos = start;
+		for (int i = 0; i < seeds; i++) {
+			pos = pos == CYCLE - 1 ? 0 : pos + 1;
+			setPit(pos / PITS, pos % PITS, this.pits[pos / PITS][pos % PITS] - 1);
+		}
+		setPit(this.turnPlayer, pit, seeds);
+	}
+
+	/**
+	 * Ends the game if the player about to move has no legal moves (the
+	 * player who just moved then collects every remaining seed) or if the
+	 * turn limit has been passed. Returns whether the seeds were swept up.
+	 */
+	private boolean updateWinner() {
+		if (gameOver()) {
+			return false;
+		}
+
+		int next = this.turnPlayer;
+		if (this.credit[next] == 0 && getSeedsOnSide(next) == 0) {
+			for (int i = 0; i < PITS; i++) {
+				this.sweptPits[0][i] = this.pits[0][i];
+				this.sweptPits[1][i] = this.pits[1][i];
+				addScore(1 - next, this.pits[0][i] + this.pits[1][i]);
+				setPit(0, i, 0);
+				setPit(1, i, 0);
+			}
+			declareWinner();
+			return true;
+		}
+
+		if (this.turnNumber > BohnenspielBoardState.MAX_TURN) {
+			declareWinner();
+		}
+		return false;
+	}
+
+	private void declareWinner() {
+		if (this.score[0] == this.score[1]) {
+			this.winner = BohnenspielBoardState.DRAW;
+		} else {
+			this.winner = this.score[0] > this.score[1] ? 0 : 1;
+		}
+	}
+
+	private void setPit(int side, int pit, int seeds) {
+		int old = this.pits[side][pit];
+		this.hashKey ^= PIT_KEYS[side][pit][old] ^ PIT_KEYS[side][pit][seeds];
+		this.features[side] += PIT_FEATURES[seeds] - PIT_FEATURES[old];
+		this.pits[side][pit] = seeds;
+	}
+
+	private void addScore(int player, int points) {
+		int old = this.score[player];
+		this.hashKey ^= SCORE_KEYS[player][old] ^ SCORE_KEYS[player][old + points];
+		this.score[player] = old + points;
+	}
+
+	private void setCredit(int player, int credit) {
+		this.hashKey ^= CREDIT_KEYS[player][this.credit[player]] ^ CREDIT_KEYS[player][credit];
+		this.credit[player] = credit;
+	}
+
+	private void setTurnsToSkip(int player, int turns) {
+		this.hashKey ^= SKIP_KEYS[player][this.turnsToSkip[player]] ^ SKIP_KEYS[player][turns];
+		this.turnsToSkip[player] = turns;
+	}
+
+	private void switchTurnPlayer() {
+		this.hashKey ^= SIDE_TO_MOVE_KEY;
+		this.turnPlayer = 1 - this.turnPlayer;
+	}
+
+	// winner codes, chosen so that an unfinished game has a zero winner field
+	private static int encodeWinner(int winner) {
+		switch (winner) {
+		case 0:
+			return 1;
+		case 1:
+			return 2;
+		case BohnenspielBoardState.DRAW:
+			return 3;
+		case BohnenspielBoardState.CANCELLED0:
+			return 4;
+		case BohnenspielBoardState.CANCELLED1:
+			return 5;
+		default:
+			return 0;
+		}
+	}
+
+	private static int decodeWinner(int code) {
+		switch (code) {
+		case 1:
+			return 0;
+		case 2:
+			return 1;
+		case 3:
+			return BohnenspielBoardState.DRAW;
+		case 4:
+			return BohnenspielBoardState.CANCELLED0;
+		case 5:
+			return BohnenspielBoardState.CANCELLED1;
+		default:
+			return BohnenspielBoardState.NOBODY;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int side = 0; side < 2; side++) {
+			sb.append("Player ").append(side).append(": ");
+			for (int i = 0; i < PITS; i++) {
+				sb.append(i > 0 ? "," : "").append(this.pits[side][i]);
+			}
+			sb.append(" score ").append(this.score[side]).append(" credit ").append(this.credit[side]).append('\n');
+		}
+		sb.append("Next to play: ").append(this.turnPlayer).append(", turn ").append(this.turnNumber)
+				.append(", winner ").append(this.winner);
+		return sb.toString();
+	}
+
+}
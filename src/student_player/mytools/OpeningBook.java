@@ -0,0 +1,135 @@
+package student_player.mytools;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import bohnenspiel.BohnenspielBoardState;
+import bohnenspiel.BohnenspielMove;
+
+/**
+ * Book moves for positions early in the game, read from a file written by
+ * OpeningBookBuilder. The whole book is read into two sorted arrays when it
+ * is opened, so a probe is a binary search on the position's Zobrist key.
+ *
+ * File layout: MAGIC, then the number of entries, as ints, then each entry
+ * as a long key and an int data word, sorted by key. The data word is laid
+ * out as follows:
+ *
+ * <pre>
+ * bits  0-2  : book move (0-5 for a pit, MutableBoardState.SKIP for a skip)
+ * bits  8-15 : depth the move was searched to, or 0 if it comes only from
+ *              the game logs
+ * bits 16-31 : number of logged games that reached the position
+ * </pre>
+ *
+ * @author kstricks
+ *
+ */
+public class OpeningBook {
+
+	// where StudentPlayer looks for a book
+	public static final String DEFAULT_PATH = "data/opening.book";
+
+	public static final int MAGIC = 0x424F4F4B;
+
+	private static final long MOVE_MASK = 0x7L;
+	private static final int DEPTH_SHIFT = 8;
+	private static final long DEPTH_MASK = 0xFFL;
+	private static final int GAMES_SHIFT = 16;
+	private static final long GAMES_MASK = 0xFFFFL;
+
+	private final long[] keys;
+	private final int[] data;
+
+	private OpeningBook(long[] keys, int[] data) {
+		this.keys = keys;
+		this.data = data;
+	}
+
+	/**
+	 * Reads a book file
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 *             if the file cannot be read or is not a book
+	 */
+	public static OpeningBook open(String path) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(path + " is not an opening book");
+			}
+			int size = in.readInt();
+			long[] keys = new long[size];
+			int[] data = new int[size];
+			for (int i = 0; i < size; i++) {
+				keys[i] = in.readLong();
+				data[i] = in.readInt();
+				if (i > 0 && keys[i] <= keys[i - 1]) {
+					throw new IOException(path + " is not sorted");
+				}
+			}
+			return new OpeningBook(keys, data);
+		} finally {
+			in.close();
+		}
+	}
+
+	public int size() {
+		return this.keys.length;
+	}
+
+	/**
+	 * Returns the book move for a position, if there is a legal one
+	 *
+	 * @param boardState
+	 * @return the move, or null if the position is not in the book
+	 */
+	public BohnenspielMove probe(BohnenspielBoardState boardState) {
+		int entry = find(new MutableBoardState(boardState).getHashKey());
+		if (entry < 0) {
+			return null;
+		}
+		int player = boardState.getTurnPlayer();
+		BohnenspielMove bookMove = MutableBoardState.toMove(getMove(this.data[entry]), player);
+		// guards against a key collision with a position outside the book
+		return boardState.isLegal(bookMove) ? bookMove : null;
+	}
+
+	/**
+	 * Returns the index of the entry for a key, or a negative number if there
+	 * is none
+	 *
+	 * @param key
+	 * @return
+	 */
+	private int find(long key) {
+		return Arrays.binarySearch(this.keys, key);
+	}
+
+	// =========================================================================
+	// Entry encoding, shared with OpeningBookBuilder
+	// =========================================================================
+
+	static int encode(int move, int depth, int games) {
+		return (int) (move | (Math.min(depth, DEPTH_MASK) << DEPTH_SHIFT)
+				| (Math.min(games, GAMES_MASK) << GAMES_SHIFT));
+	}
+
+	public static int getMove(int data) {
+		return (int) (data & MOVE_MASK);
+	}
+
+	public static int getDepth(int data) {
+		return (int) ((data >>> DEPTH_SHIFT) & DEPTH_MASK);
+	}
+
+	public static int getGames(int data) {
+		return (int) ((data >>> GAMES_SHIFT) & GAMES_MASK);
+	}
+
+}
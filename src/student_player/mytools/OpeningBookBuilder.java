@@ -0,0 +1,260 @@
+package student_player.mytools;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+import bohnenspiel.BohnenspielMove;
+
+/**
+ * Writes an OpeningBook from two sources:
+ *
+ * <ol>
+ * <li>every position within searchPlies moves of the start of the game,
+ * searched to a fixed depth with the same utility function StudentPlayer
+ * uses</li>
+ * <li>the first logPlies moves of every game in the log directory, with the
+ * winner of each game taken from outcomes.txt. Positions that were not
+ * searched get the move that won most often from them, if it was played in
+ * at least MIN_GAMES games.</li>
+ * </ol>
+ *
+ * The server does not log skips, so a skip is put back in wherever the
+ * player to move does not match the next logged move.
+ *
+ * From the root directory of the project, run
+ *
+ * <pre>
+ *     java -cp bin student_player.mytools.OpeningBookBuilder [searchPlies] [depth] [logPlies] [logDir] [path]
+ * </pre>
+ *
+ * @author kstricks
+ *
+ */
+public class OpeningBookBuilder {
+
+	private static final int DEFAULT_SEARCH_PLIES = 4;
+	private static final int DEFAULT_DEPTH = 12;
+	private static final int DEFAULT_LOG_PLIES = 16;
+	private static final String DEFAULT_LOG_DIR = "logs";
+
+	// the utility function StudentPlayer searches with
+	private static final int UTILITY_FUNCTION = 5;
+	// the fewest games a logged move must have been played in to be used
+	private static final int MIN_GAMES = 2;
+	// the number of distinct move encodings (6 pits and the skip)
+	private static final int NUM_MOVES = 7;
+
+	// logged results for each position, indexed by [move] for games played
+	// and [NUM_MOVES + move] for games won by the player who made the move
+	private final Map<Long, int[]> logStats = new HashMap<Long, int[]>();
+	// searched moves, with the search depth
+	private final Map<Long, Integer> searchedMoves = new HashMap<Long, Integer>();
+
+	public static void main(String[] args) throws IOException {
+		int searchPlies = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SEARCH_PLIES;
+		int depth = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_DEPTH;
+		int logPlies = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_LOG_PLIES;
+		String logDir = args.length > 3 ? args[3] : DEFAULT_LOG_DIR;
+		String path = args.length > 4 ? args[4] : OpeningBook.DEFAULT_PATH;
+
+		OpeningBookBuilder builder = new OpeningBookBuilder();
+		int games = builder.readLogs(new File(logDir), logPlies);
+		System.out.println("read " + games + " games, " + builder.logStats.size() + " positions");
+		builder.searchOpenings(searchPlies, depth);
+		int size = builder.write(path, depth);
+		System.out.println("wrote " + size + " positions to " + path);
+	}
+
+	// =========================================================================
+	// Game logs
+	// =========================================================================
+
+	/**
+	 * Replays the first logPlies moves of every game log in a directory
+	 *
+	 * @param logDir
+	 * @param logPlies
+	 * @return the number of games read
+	 * @throws IOException
+	 */
+	private int readLogs(File logDir, int logPlies) throws IOException {
+		int games = 0;
+		for (GameLog game : GameLog.readAll(logDir)) {
+			if (readLog(game, logPlies)) {
+				games++;
+			}
+		}
+		return games;
+	}
+
+	/**
+	 * Records the result of each of the first logPlies moves of one game
+	 *
+	 * @param game
+	 * @param logPlies
+	 * @return whether the game was used; games with moves that cannot be
+	 *         replayed within the first logPlies are skipped
+	 */
+	private boolean readLog(GameLog game, int logPlies) {
+		if (!game.complete && game.moves.length < logPlies) {
+			return false;
+		}
+
+		MutableBoardState boardState = new MutableBoardState();
+		for (int i = 0; i < game.moves.length && i < logPlies; i++) {
+			int code = game.moves[i];
+			long key = boardState.getHashKey();
+			int[] stats = this.logStats.get(key);
+			if (stats == null) {
+				stats = new int[2 * NUM_MOVES];
+				this.logStats.put(key, stats);
+			}
+			stats[code]++;
+			if (boardState.getTurnPlayer() == game.winner) {
+				stats[NUM_MOVES + code]++;
+			}
+			boardState.apply(code);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the logged move that won most often, counting each move as
+	 * having won one and lost one extra game so that moves played only once
+	 * or twice do not look too good
+	 *
+	 * @param stats
+	 * @return the move, or TranspositionTable.NO_MOVE if no move was played in
+	 *         MIN_GAMES games
+	 */
+	private static int bestLoggedMove(int[] stats) {
+		int bestMove = TranspositionTable.NO_MOVE;
+		double bestRate = -1;
+		for (int move = 0; move < NUM_MOVES; move++) {
+			int games = stats[move];
+			if (games >= MIN_GAMES) {
+				double rate = (stats[NUM_MOVES + move] + 1.0) / (games + 2.0);
+				if (rate > bestRate) {
+					bestRate = rate;
+					bestMove = move;
+				}
+			}
+		}
+		return bestMove;
+	}
+
+	private static int totalGames(int[] stats) {
+		int games = 0;
+		for (int move = 0; move < NUM_MOVES; move++) {
+			games += stats[move];
+		}
+		return games;
+	}
+
+	// =========================================================================
+	// Searching
+	// =========================================================================
+
+	/**
+	 * Searches every position within searchPlies moves of the start of the
+	 * game to the given depth
+	 *
+	 * @param searchPlies
+	 * @param depth
+	 */
+	private void searchOpenings(int searchPlies, int depth) {
+		// one table per player, since tables hold scores for one player
+		TranspositionTable[] tables = { new TranspositionTable(), new TranspositionTable() };
+		MoveOrdering[] orderings = { new MoveOrdering(), new MoveOrdering() };
+
+		ArrayList<MutableBoardState> frontier = new ArrayList<MutableBoardState>();
+		HashSet<Long> seen = new HashSet<Long>();
+		MutableBoardState start = new MutableBoardState();
+		frontier.add(start);
+		seen.add(start.getHashKey());
+
+		long begin = System.currentTimeMillis();
+		for (int ply = 0; ply < searchPlies; ply++) {
+			ArrayList<MutableBoardState> next = new ArrayList<MutableBoardState>();
+			for (MutableBoardState boardState : frontier) {
+				int player = boardState.getTurnPlayer();
+				AlphaBetaMinimax search = new AlphaBetaMinimax(player, UTILITY_FUNCTION, tables[player]);
+				search.setMoveOrdering(orderings[player]);
+				BohnenspielMove move = search.minimaxDecision(boardState, depth).getMove();
+				if (move != null) {
+					int code = MutableBoardState.moveCode(move);
+					this.searchedMoves.put(boardState.getHashKey(), code);
+				}
+
+				for (BohnenspielMove child : boardState.getLegalMoves()) {
+					MutableBoardState childState = new MutableBoardState(boardState);
+					childState.apply(child);
+					if (!childState.gameOver() && seen.add(childState.getHashKey())) {
+						next.add(childState);
+					}
+				}
+			}
+			System.out.println("ply " + ply + ": searched " + frontier.size() + " positions, "
+					+ (System.currentTimeMillis() - begin) / 1000 + " s so far");
+			frontier = next;
+		}
+	}
+
+	// =========================================================================
+	// Writing
+	// =========================================================================
+
+	/**
+	 * Merges the searched and logged moves and writes them sorted by key
+	 *
+	 * @param path
+	 * @param depth
+	 *            - the depth the searched moves were searched to
+	 * @return the number of positions written
+	 * @throws IOException
+	 */
+	private int write(String path, int depth) throws IOException {
+		TreeMap<Long, Integer> entries = new TreeMap<Long, Integer>();
+		for (Map.Entry<Long, int[]> logged : this.logStats.entrySet()) {
+			int move = bestLoggedMove(logged.getValue());
+			if (move != TranspositionTable.NO_MOVE) {
+				entries.put(logged.getKey(), OpeningBook.encode(move, 0, totalGames(logged.getValue())));
+			}
+		}
+		for (Map.Entry<Long, Integer> searched : this.searchedMoves.entrySet()) {
+			int[] stats = this.logStats.get(searched.getKey());
+			int games = stats == null ? 0 : totalGames(stats);
+			// a deep search beats the logged games, most of which were
+			// played by weak players
+			entries.put(searched.getKey(), OpeningBook.encode(searched.getValue(), depth, games));
+		}
+
+		File file = new File(path);
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(OpeningBook.MAGIC);
+			out.writeInt(entries.size());
+			// TreeMap iterates in signed key order, which is the order
+			// Arrays.binarySearch expects
+			for (Map.Entry<Long, Integer> entry : entries.entrySet()) {
+				out.writeLong(entry.getKey());
+				out.writeInt(entry.getValue());
+			}
+		} finally {
+			out.close();
+		}
+		return entries.size();
+	}
+
+}
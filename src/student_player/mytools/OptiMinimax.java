@@ -1,354 +1,475 @@
 package student_player.mytools;
 
-import java.util.HashMap;
-
 import bohnenspiel.BohnenspielBoardState;
 import bohnenspiel.BohnenspielMove;
 
 /**
- * Minimax with memory
- * 
+ * Minimax with alpha-beta pruning and memory: the game tree is kept from one
+ * move to the next. Every node also records which of its children was best
+ * the last time it was searched, by keeping that child first, so a search
+ * that reaches the same position again tries the best move first and prunes
+ * far more.
+ *
+ * Nodes live in an arena of parallel arrays, with the children of a node next
+ * to each other, so a node is just the index of its first child, the number
+ * of children and the move leading to it. Board states are not stored; one
+ * state is updated and restored on the way down. When a new search starts
+ * from a position two moves below the old root (after our move and the
+ * opponent's reply), that subtree is copied to a second arena and the old one
+ * is dropped in one go, as in a copying garbage collector. Any other position
+ * starts a new tree. Nodes near the depth limit are not stored, and once the
+ * arena is full the search carries on below the nodes it has without storing
+ * any more.
+ *
  * @author kstricks
  *
  */
 public class OptiMinimax {
 
-	// need to keep a reference to the root of the game tree
-	private GameTreeNode root;
-
-	// need to maintain a hashmap of <board configurations, player turn> pairs
-	// GameTreeNodes in the tree
-	private HashMap<String, GameTreeNode> configs;
-
+	// 4M nodes, about 24 MB per arena
+	public static final int DEFAULT_CAPACITY = 1 << 22;
+
+	// firstChild of a node whose children have not been generated
+	private static final int UNEXPANDED = -1;
+	// stands in for a node once the arena is full
+	private static final int NO_NODE = -1;
+	private static final int ROOT = 0;
+	// nodes this close to the depth limit are searched without being stored.
+	// They make up most of the tree but carry little for the next search, and
+	// leaving them out keeps the arena small enough to stay in cache.
+	private static final int MIN_STORED_DEPTH = 3;
+
+	private final int capacity;
+
+	// the arena holding the tree, allocated by the first search
+	private int[] firstChild;
+	private byte[] numChildren;
+	// the move leading to each node, as a move code
+	private byte[] moves;
+	// the number of nodes in use
+	private int size;
+	// the arena the tree is copied into when it is rerooted
+	private int[] spareFirstChild;
+	private byte[] spareNumChildren;
+	private byte[] spareMoves;
+
+	// the position at the root of the tree, or null before the first search
+	private MutableBoardState rootState;
+	// the state updated in place as the search moves through the tree
+	private MutableBoardState state;
+
+	// the id of the max player
 	private int player;
 
+	// depth of the current search, so that ply = rootDepth - movesToGo
+	private int rootDepth;
+	// legal moves at each ply below the last node in the arena
+	private int[][] moveBuffers = new int[0][];
+	// legal moves of a node being added to the arena
+	private final int[] expandBuffer = new int[MutableBoardState.MAX_MOVES];
+	// the nodes and positions evaluated by the current search
+	private final SearchStats stats = new SearchStats();
+	// number of nodes kept from the previous search
+	private int reusedNodes;
+
 	public OptiMinimax() {
-		this.configs = new HashMap<String, GameTreeNode>();
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 *            - the most nodes the tree can hold
+	 */
+	public OptiMinimax(int capacity) {
+		if (capacity < 1 + MutableBoardState.MAX_MOVES) {
+			throw new IllegalArgumentException("capacity must be at least " + (1 + MutableBoardState.MAX_MOVES)
+					+ ", was " + capacity);
+		}
+		this.capacity = capacity;
 	}
 
+	/**
+	 * Chooses a move based on the minimax algorithm with alpha-beta pruning,
+	 * reusing the tree from the last search if the given state is in it
+	 *
+	 * @param boardState
+	 *            - a copy of the current board state
+	 * @param movesToGo
+	 *            - the number of moves to simulate
+	 * @return The best move or null if no moves are possible or if all moves
+	 *         result in us losing, along with whether no move results in us
+	 *         losing, the depth and the number of nodes searched
+	 */
 	public MinimaxResponse optiMinimaxDecision(BohnenspielBoardState boardState, int movesToGo) {
+		return optiMinimaxDecision(new MutableBoardState(boardState), movesToGo);
+	}
+
+	/**
+	 * Same as optiMinimaxDecision(BohnenspielBoardState, int), for a state
+	 * that is left unchanged
+	 *
+	 * @param boardState
+	 * @param movesToGo
+	 * @return
+	 */
+	public MinimaxResponse optiMinimaxDecision(MutableBoardState boardState, int movesToGo) {
 		if (movesToGo <= 0) {
 			throw new InvalidDepthException();
 		}
-		
+
+		if (!reroot(boardState)) {
+			setRootState(boardState);
+		}
+		this.state = new MutableBoardState(boardState);
+		this.stats.start();
+		this.stats.setDepth(movesToGo);
+		this.rootDepth = movesToGo;
+		if (movesToGo >= this.moveBuffers.length) {
+			this.moveBuffers = new int[movesToGo + 1][MutableBoardState.MAX_MOVES];
+		}
+
 		BohnenspielMove bestMove = null;
 		int bestScore = Integer.MIN_VALUE;
-
-		int projectedMoveScore;
+		int bestIndex = 0;
 		boolean fullSimulation = true;
 
-		// first, we check the tree for the node
-		// NOTE: this should never be null, however it very well could be in
-		// alpha beta pruning!
-		GameTreeNode currNode = this.getNodeCorrespondingToState(boardState);
-
-		// it is possible that currNode is null (if we didn't fully expand the
-		// tree along all paths in a previous step)
-		if (currNode == null) {
-			// we don't need to know the move taken to get here, nor the parent
-			// node, since we will not visit this node in the tree again
-			currNode = new GameTreeNode(boardState, null);
-			this.addNodeToConfigs(currNode);
-		}
+		int alpha = Integer.MIN_VALUE;
+		int beta = Integer.MAX_VALUE;
 
-		// if the children of the current node are null, then we perform regular
-		// minimax
-		if (currNode.getChildren() == null) {
-			for (BohnenspielMove move : boardState.getLegalMoves()) {
-				BohnenspielBoardState clonedBoardState = (BohnenspielBoardState) boardState.clone();
-				clonedBoardState.move(move);
-				// create a new GameTreeNode for the state
-				GameTreeNode n = new GameTreeNode(clonedBoardState, move);
-				// make this node a child of currNode
-				currNode.addChild(n);
-				// save the node in the map
-				this.configs.put(this.getKey(clonedBoardState), n);
-				// compute the score for traversing this path
-				projectedMoveScore = minValue(n, clonedBoardState, movesToGo - 1);
-				if (projectedMoveScore == Integer.MAX_VALUE) {
-					// this move results in us winning --> take it
-					return new MinimaxResponse(move, false, false);
-				} else if (projectedMoveScore == Integer.MIN_VALUE) {
-					// this move results in us losing --> move onto the next
-					// move
-					fullSimulation = false;
-					continue;
-				}
-				if (projectedMoveScore > bestScore) {
-					bestScore = projectedMoveScore;
-					bestMove = move;
-				}
+		int first = children(ROOT);
+		if (first == NO_NODE) {
+			// the tree kept from the last search filled the arena; a new tree
+			// always has room for the root's children
+			setRootState(boardState);
+			first = children(ROOT);
+		}
+		int projectedMoveScore;
+		for (int i = 0; i < this.numChildren[ROOT]; i++) {
+			int child = first + i;
+			long undo = this.state.apply(this.moves[child]);
+			projectedMoveScore = minValue(child, movesToGo - 1, alpha, beta);
+			this.state.undo(undo);
+			if (projectedMoveScore == Integer.MAX_VALUE) {
+				// this move results in us winning --> take it
+				moveToFront(first, i);
+				return new MinimaxResponse(MutableBoardState.toMove(this.moves[first], boardState.getTurnPlayer()), false,
+						false, getStats());
+			} else if (projectedMoveScore == Integer.MIN_VALUE) {
+				// this move results in us losing --> move onto the next move
+				fullSimulation = false;
+				continue;
 			}
-		} else {
-			// move through the tree from currNode to the leaves, keeping track
-			// of depth. once at the leaves, expand for movesToGo - depth
-			// additional moves
-			for (GameTreeNode n : currNode.getChildren()) {
-				projectedMoveScore = optiMinValue(n, movesToGo - 1);
-				if (projectedMoveScore == Integer.MAX_VALUE) {
-					// this move results in us winning --> take it
-					return new MinimaxResponse(n.getMove(), false, false);
-				} else if (projectedMoveScore == Integer.MIN_VALUE) {
-					// this move results in us losing --> move onto the next
-					// move
-					fullSimulation = false;
-					continue;
-				}
-				if (projectedMoveScore > bestScore) {
-					bestScore = projectedMoveScore;
-					bestMove = n.getMove();
-				}
+			if (projectedMoveScore > bestScore) {
+				bestScore = projectedMoveScore;
+				alpha = projectedMoveScore;
+				bestIndex = i;
+				bestMove = MutableBoardState.toMove(this.moves[child], boardState.getTurnPlayer());
 			}
 		}
+		moveToFront(first, bestIndex);
+
+		return new MinimaxResponse(bestMove, fullSimulation, bestMove == null ? true : false, getStats());
+	}
 
-		return new MinimaxResponse(bestMove, fullSimulation, bestMove == null ? true : false);
+	private SearchStats getStats() {
+		this.stats.stop();
+		return new SearchStats(this.stats);
 	}
 
 	/**
-	 * Like minValue in regular minimax except that we create GameTreeNodes for
-	 * each new state and save them in the map
-	 * 
-	 * @param boardState
+	 * Min player's move
+	 *
+	 * @param node
+	 *            - the node for the current state, or NO_NODE
 	 * @param movesToGo
+	 * @param alpha
+	 * @param beta
 	 * @return
 	 */
-	private int minValue(GameTreeNode parent, BohnenspielBoardState boardState, int movesToGo) {
-		if (boardState.gameOver()) {
-			if (boardState.getWinner() == this.player) {
+	private int minValue(int node, int movesToGo, int alpha, int beta) {
+		this.stats.nodes++;
+		if (this.state.gameOver()) {
+			if (this.state.getWinner() == this.player) {
 				return Integer.MAX_VALUE;
 			} else {
 				return Integer.MIN_VALUE;
 			}
 		} else if (movesToGo == 0) {
-			return getUtility(boardState);
+			this.stats.leafEvaluations++;
+			return getUtility(this.state);
 		}
 
+		int first = node == NO_NODE || movesToGo < MIN_STORED_DEPTH ? NO_NODE : children(node);
+		int[] buffer = this.moveBuffers[this.rootDepth - movesToGo];
+		int numMoves = first == NO_NODE ? this.state.getLegalMoves(buffer) : this.numChildren[node];
+
 		int bestScore = Integer.MAX_VALUE;
+		int bestIndex = 0;
 		int projectedMoveScore;
-		for (BohnenspielMove move : boardState.getLegalMoves()) {
-			BohnenspielBoardState clonedBoardState = (BohnenspielBoardState) boardState.clone();
-			clonedBoardState.move(move);
-			GameTreeNode n = new GameTreeNode(clonedBoardState, move);
-			parent.addChild(n);
-			this.configs.put(this.getKey(clonedBoardState), n);
-			projectedMoveScore = maxValue(n, clonedBoardState, movesToGo - 1);
+		for (int i = 0; i < numMoves; i++) {
+			int child = first == NO_NODE ? NO_NODE : first + i;
+			long undo = this.state.apply(child == NO_NODE ? buffer[i] : this.moves[child]);
+			projectedMoveScore = maxValue(child, movesToGo - 1, alpha, beta);
+			this.state.undo(undo);
 			if (projectedMoveScore == Integer.MAX_VALUE) {
 				// this move results in the min player losing --> try the next
 				// one
 				continue;
 			} else if (projectedMoveScore == Integer.MIN_VALUE) {
 				// this move results in the min player winning
-				return Integer.MIN_VALUE;
+				bestIndex = i;
+				bestScore = Integer.MIN_VALUE;
+				break;
 			}
+			// update the best score (and beta) if applicable
 			if (projectedMoveScore < bestScore) {
 				bestScore = projectedMoveScore;
+				beta = projectedMoveScore;
+				bestIndex = i;
+			}
+			// is it worth considering any other moves?
+			if (beta < alpha) {
+				// this path will not be allowed by the maximizer --> prune
+				break;
 			}
 		}
 
+		if (first != NO_NODE) {
+			moveToFront(first, bestIndex);
+		}
 		return bestScore;
 	}
 
-	private int maxValue(GameTreeNode parent, BohnenspielBoardState boardState, int movesToGo) {
-		if (boardState.gameOver()) {
-			if (boardState.getWinner() == this.player) {
+	/**
+	 * Max player's move
+	 *
+	 * @param node
+	 *            - the node for the current state, or NO_NODE
+	 * @param movesToGo
+	 * @param alpha
+	 * @param beta
+	 * @return
+	 */
+	private int maxValue(int node, int movesToGo, int alpha, int beta) {
+		this.stats.nodes++;
+		if (this.state.gameOver()) {
+			if (this.state.getWinner() == this.player) {
 				return Integer.MAX_VALUE;
 			} else {
 				return Integer.MIN_VALUE;
 			}
 		} else if (movesToGo == 0) {
-			return getUtility(boardState);
+			this.stats.leafEvaluations++;
+			return getUtility(this.state);
 		}
 
+		int first = node == NO_NODE || movesToGo < MIN_STORED_DEPTH ? NO_NODE : children(node);
+		int[] buffer = this.moveBuffers[this.rootDepth - movesToGo];
+		int numMoves = first == NO_NODE ? this.state.getLegalMoves(buffer) : this.numChildren[node];
+
 		int bestScore = Integer.MIN_VALUE;
+		int bestIndex = 0;
 		int projectedMoveScore;
-		for (BohnenspielMove move : boardState.getLegalMoves()) {
-			BohnenspielBoardState clonedBoardState = (BohnenspielBoardState) boardState.clone();
-			clonedBoardState.move(move);
-			GameTreeNode n = new GameTreeNode(clonedBoardState, move);
-			parent.addChild(n);
-			this.configs.put(this.getKey(clonedBoardState), n);
-			projectedMoveScore = minValue(n, clonedBoardState, movesToGo - 1);
+		for (int i = 0; i < numMoves; i++) {
+			int child = first == NO_NODE ? NO_NODE : first + i;
+			long undo = this.state.apply(child == NO_NODE ? buffer[i] : this.moves[child]);
+			projectedMoveScore = minValue(child, movesToGo - 1, alpha, beta);
+			this.state.undo(undo);
 			if (projectedMoveScore == Integer.MAX_VALUE) {
 				// this move results in the max player winning --> take it
-				return Integer.MAX_VALUE;
+				bestIndex = i;
+				bestScore = Integer.MAX_VALUE;
+				break;
 			} else if (projectedMoveScore == Integer.MIN_VALUE) {
 				// this move results in the min player winning --> try a
 				// different move
 				continue;
 			}
+			// update the best score and alpha if applicable
 			if (projectedMoveScore > bestScore) {
 				bestScore = projectedMoveScore;
+				alpha = projectedMoveScore;
+				bestIndex = i;
+			}
+			// is it worth considering any other moves?
+			if (alpha > beta) {
+				// this path will not be allowed by the minimizer --> prune
+				break;
 			}
 		}
 
+		if (first != NO_NODE) {
+			moveToFront(first, bestIndex);
+		}
 		return bestScore;
 	}
 
-	private int optiMinValue(GameTreeNode node, int movesToGo) {
-		if (node.getBoardState().gameOver()) {
-			if (node.getBoardState().getWinner() == this.player) {
-				return Integer.MAX_VALUE;
-			} else {
-				return Integer.MIN_VALUE;
-			}
-		} else if (movesToGo == 0) {
-			return getUtility(node.getBoardState());
-		}
-
-		int bestScore = Integer.MAX_VALUE;
-
-		int projectedMoveScore;
+	// =========================================================================
+	// The arena
+	// =========================================================================
 
-		// if the children of the node are null, then we perform regular minimax
-		if (node.getChildren() == null) {
-			for (BohnenspielMove move : node.getBoardState().getLegalMoves()) {
-				BohnenspielBoardState clonedBoardState = (BohnenspielBoardState) node.getBoardState().clone();
-				clonedBoardState.move(move);
-				// create a new GameTreeNode for the state
-				GameTreeNode n = new GameTreeNode(clonedBoardState, move);
-				// make this node a child of the node
-				node.addChild(n);
-				// save the node in the map
-				this.configs.put(this.getKey(clonedBoardState), n);
-				// compute the score for traversing this path
-				projectedMoveScore = maxValue(n, clonedBoardState, movesToGo - 1);
-				if (projectedMoveScore == Integer.MAX_VALUE) {
-					// this move results in the min player losing
-					continue;
-				} else if (projectedMoveScore == Integer.MIN_VALUE) {
-					// this move results in the min player winning
-					return Integer.MIN_VALUE;
-				}
-				if (projectedMoveScore < bestScore) {
-					bestScore = projectedMoveScore;
-				}
+	/**
+	 * Returns the index of a node's first child, adding a child for each
+	 * legal move in the current state if that has not been done yet
+	 *
+	 * @param node
+	 * @return the index, or NO_NODE if there is no room for the children
+	 */
+	private int children(int node) {
+		if (this.firstChild[node] == UNEXPANDED) {
+			int[] buffer = this.expandBuffer;
+			int numMoves = this.state.getLegalMoves(buffer);
+			if (this.size + numMoves > this.capacity) {
+				return NO_NODE;
 			}
-		} else {
-			for (GameTreeNode n : node.getChildren()) {
-				projectedMoveScore = optiMaxValue(n, movesToGo - 1);
-				if (projectedMoveScore == Integer.MAX_VALUE) {
-					// this move results in the min player losing
-					continue;
-				} else if (projectedMoveScore == Integer.MIN_VALUE) {
-					// this move results in the min player winning
-					return Integer.MIN_VALUE;
-				}
-				if (projectedMoveScore < bestScore) {
-					bestScore = projectedMoveScore;
-				}
+			this.firstChild[node] = this.size;
+			this.numChildren[node] = (byte) numMoves;
+			for (int i = 0; i < numMoves; i++) {
+				newNode(this.size++, buffer[i]);
 			}
 		}
+		return this.firstChild[node];
+	}
 
-		return bestScore;
+	private void newNode(int node, int move) {
+		this.firstChild[node] = UNEXPANDED;
+		this.numChildren[node] = 0;
+		this.moves[node] = (byte) move;
 	}
 
 	/**
-	 * We know node is not null, but we don't know whether or not we have
-	 * already computed node's children or not
-	 * 
-	 * @param node
-	 * @param movesToGo
-	 * @return
+	 * Moves the child at the given index to the front of its siblings,
+	 * keeping the others in order, so that it is searched first next time
+	 *
+	 * @param first
+	 *            - the first of the siblings
+	 * @param index
 	 */
-	private int optiMaxValue(GameTreeNode node, int movesToGo) {
-		if (node.getBoardState().gameOver()) {
-			if (node.getBoardState().getWinner() == this.player) {
-				return Integer.MAX_VALUE;
-			} else {
-				return Integer.MIN_VALUE;
-			}
-		} else if (movesToGo == 0) {
-			return getUtility(node.getBoardState());
+	private void moveToFront(int first, int index) {
+		if (index == 0) {
+			return;
 		}
+		int from = first + index;
+		int childFirst = this.firstChild[from];
+		byte childCount = this.numChildren[from];
+		byte move = this.moves[from];
+		System.arraycopy(this.firstChild, first, this.firstChild, first + 1, index);
+		System.arraycopy(this.numChildren, first, this.numChildren, first + 1, index);
+		System.arraycopy(this.moves, first, this.moves, first + 1, index);
+		this.firstChild[first] = childFirst;
+		this.numChildren[first] = childCount;
+		this.moves[first] = move;
+	}
 
-		int bestScore = Integer.MIN_VALUE;
-
-		int projectedMoveScore;
-
-		// if the children of the node are null, then we perform regular minimax
-		if (node.getChildren() == null) {
-			for (BohnenspielMove move : node.getBoardState().getLegalMoves()) {
-				BohnenspielBoardState clonedBoardState = (BohnenspielBoardState) node.getBoardState().clone();
-				clonedBoardState.move(move);
-				// create a new GameTreeNode for the state
-				GameTreeNode n = new GameTreeNode(clonedBoardState, move);
-				// make this node a child of the node
-				node.addChild(n);
-				// save the node in the map
-				this.configs.put(this.getKey(clonedBoardState), n);
-				// compute the score for traversing this path
-				projectedMoveScore = minValue(n, clonedBoardState, movesToGo - 1);
-				if (projectedMoveScore == Integer.MAX_VALUE) {
-					// this move results in us winning --> take it
-					return Integer.MAX_VALUE;
-				} else if (projectedMoveScore == Integer.MIN_VALUE) {
-					// this move results in us losing --> move onto the next
-					// move
-					continue;
-				}
-				if (projectedMoveScore > bestScore) {
-					bestScore = projectedMoveScore;
-				}
-			}
-		} else {
-			for (GameTreeNode n : node.getChildren()) {
-				projectedMoveScore = optiMinValue(n, movesToGo - 1);
-				if (projectedMoveScore == Integer.MAX_VALUE) {
-					// this move results in us winning --> take it
-					return Integer.MAX_VALUE;
-				} else if (projectedMoveScore == Integer.MIN_VALUE) {
-					// this move results in us losing --> move onto the next
-					continue;
-				}
-				if (projectedMoveScore > bestScore) {
-					bestScore = projectedMoveScore;
+	/**
+	 * Makes the given state the root of the tree, if it is the current root,
+	 * one of its children or one of its grandchildren. Everything outside the
+	 * new root's subtree is released.
+	 *
+	 * @param boardState
+	 * @return whether the state was found
+	 */
+	private boolean reroot(MutableBoardState boardState) {
+		if (this.rootState == null) {
+			return false;
+		}
+		long key = boardState.getHashKey();
+		int newRoot = NO_NODE;
+		if (this.rootState.getHashKey() == key) {
+			newRoot = ROOT;
+		} else if (this.firstChild[ROOT] >= 0) {
+			MutableBoardState search = new MutableBoardState(this.rootState);
+			int first = this.firstChild[ROOT];
+			for (int child = first; newRoot == NO_NODE && child < first + this.numChildren[ROOT]; child++) {
+				long undo = search.apply(this.moves[child]);
+				if (search.getHashKey() == key) {
+					newRoot = child;
+				} else if (this.firstChild[child] >= 0) {
+					int grandFirst = this.firstChild[child];
+					for (int grandchild = grandFirst; grandchild < grandFirst + this.numChildren[child]; grandchild++) {
+						long grandUndo = search.apply(this.moves[grandchild]);
+						boolean found = search.getHashKey() == key;
+						search.undo(grandUndo);
+						if (found) {
+							newRoot = grandchild;
+							break;
+						}
+					}
 				}
+				search.undo(undo);
 			}
 		}
+		if (newRoot == NO_NODE) {
+			return false;
+		} else if (newRoot == ROOT) {
+			this.reusedNodes = this.size;
+			return true;
+		}
 
-		return bestScore;
-	}
-
-	private GameTreeNode getNodeCorrespondingToState(BohnenspielBoardState boardState) {
-		return this.configs.get(this.getKey(boardState));
+		copySubtree(newRoot);
+		this.rootState = new MutableBoardState(boardState);
+		return true;
 	}
 
 	/**
-	 * Add a node directly to configs
-	 * 
+	 * Copies the subtree below the given node into the spare arena, breadth
+	 * first so that siblings stay next to each other, and swaps the arenas
+	 *
 	 * @param node
 	 */
-	private void addNodeToConfigs(GameTreeNode node) {
-		this.configs.put(this.getKey(node.getBoardState()), node);
+	private void copySubtree(int node) {
+		int[] toFirstChild = this.spareFirstChild;
+		byte[] toNumChildren = this.spareNumChildren;
+		byte[] toMoves = this.spareMoves;
+
+		// until a copied node is scanned, its firstChild holds the index of
+		// the node it was copied from
+		toFirstChild[ROOT] = node;
+		toNumChildren[ROOT] = this.numChildren[node];
+		toMoves[ROOT] = this.moves[node];
+		int newSize = 1;
+		for (int scan = 0; scan < newSize; scan++) {
+			int from = toFirstChild[scan];
+			int fromFirst = this.firstChild[from];
+			if (fromFirst == UNEXPANDED) {
+				toFirstChild[scan] = UNEXPANDED;
+				continue;
+			}
+			toFirstChild[scan] = newSize;
+			for (int child = fromFirst; child < fromFirst + this.numChildren[from]; child++) {
+				toFirstChild[newSize] = child;
+				toNumChildren[newSize] = this.numChildren[child];
+				toMoves[newSize] = this.moves[child];
+				newSize++;
+			}
+		}
+
+		this.spareFirstChild = this.firstChild;
+		this.spareNumChildren = this.numChildren;
+		this.spareMoves = this.moves;
+		this.firstChild = toFirstChild;
+		this.numChildren = toNumChildren;
+		this.moves = toMoves;
+		this.size = newSize;
+		this.reusedNodes = newSize;
 	}
 
 	/**
-	 * The key to configs is a string of the following form: the number of seeds
-	 * in each pit, followed by the player id
-	 * 
-	 * @param state
-	 * @return
+	 * Allocates both arenas the first time a tree is built, so that players
+	 * who never use this search do not pay for them
 	 */
-	private String getKey(BohnenspielBoardState state) {
-		StringBuffer buff = new StringBuffer();
-		int[][] pits = state.getPits();
-		for (int i = 0; i < 6; i++) {
-			if (pits[0][i] < 10) {
-				buff.append('0');
-			}
-			buff.append(pits[0][i]);
-			if (pits[1][i] < 10) {
-				buff.append('0');
-			}
-			buff.append(pits[1][i]);
+	private void allocate() {
+		if (this.firstChild == null) {
+			this.firstChild = new int[this.capacity];
+			this.numChildren = new byte[this.capacity];
+			this.moves = new byte[this.capacity];
+			this.spareFirstChild = new int[this.capacity];
+			this.spareNumChildren = new byte[this.capacity];
+			this.spareMoves = new byte[this.capacity];
 		}
-		// to handle the fact that the same board configuration could be
-		// possible on either player's turn, we add the turn to the key
-		buff.append(state.getTurnPlayer());
-		return buff.toString();
 	}
 
-	private int getUtility(BohnenspielBoardState boardState) {
+	private int getUtility(MutableBoardState boardState) {
 		return scoreDifference(boardState);
 	}
 
@@ -359,24 +480,50 @@ public class OptiMinimax {
 	/**
 	 * Returns the difference in score between the two players in this board
 	 * state
-	 * 
+	 *
 	 * @param boardState
 	 * @return
 	 */
-	private int scoreDifference(BohnenspielBoardState boardState) {
+	private int scoreDifference(MutableBoardState boardState) {
 		return boardState.getScore(this.player) - boardState.getScore(1 - this.player);
 	}
 
 	// GETTERS AND SETTERS
 
+	/**
+	 * Starts a new tree rooted at the given state, releasing the old one
+	 *
+	 * @param state
+	 */
 	public void setRootState(BohnenspielBoardState state) {
-		this.root = new GameTreeNode(state, null);
-		// add the root to configs
-		this.addNodeToConfigs(this.root);
+		setRootState(new MutableBoardState(state));
+	}
+
+	/**
+	 * Same as setRootState(BohnenspielBoardState), for a state that is copied
+	 *
+	 * @param state
+	 */
+	public void setRootState(MutableBoardState state) {
+		allocate();
+		this.rootState = new MutableBoardState(state);
+		newNode(ROOT, MutableBoardState.SKIP);
+		this.size = 1;
+		this.reusedNodes = 0;
 	}
 
 	public void setPlayer(int player) {
 		this.player = player;
 	}
 
+	/** The number of nodes in the tree */
+	public int getSize() {
+		return this.size;
+	}
+
+	/** The number of nodes the last search kept from the one before */
+	public int getReusedNodes() {
+		return this.reusedNodes;
+	}
+
 }
@@ -0,0 +1,476 @@
+package student_player.mytools;
+
+import bohnenspiel.BohnenspielBoardState;
+import bohnenspiel.BohnenspielMove;
+
+/**
+ * A compact encoding of a full Bohnenspiel game state in two longs, so that
+ * search code can copy and modify states without touching the heap.
+ *
+ * Each long holds one side of the board:
+ *
+ * <pre>
+ * bits  0-41 : the side's six pits, 7 bits each (pit i at bit 7 * i)
+ * bits 42-48 : the side's score
+ * bits 49-50 : the side's skip credit
+ * bit     51 : the side's turnsToSkip flag
+ * </pre>
+ *
+ * As in MutableBoardState, the turnsToSkip flag is only ever set for a side
+ * with skip credit, since without credit it changes nothing, so equal
+ * positions always pack to the same two longs.
+ *
+ * The remaining high bits of lo hold the turn player (bit 52) and the winner
+ * (bits 53-55), and the remaining high bits of hi hold the turn number (bits
+ * 52-59). There are only 72 beans in the game, so 7 bits is enough for any
+ * pit or score.
+ *
+ * Moves are encoded as in MutableBoardState: 0-5 to sow from that pit and
+ * MutableBoardState.SKIP to skip.
+ *
+ * @author kstricks
+ *
+ */
+public final class PackedBoardState {
+
+	private static final int PITS = 6;
+	private static final int CYCLE = 2 * PITS;
+	private static final int PIT_BITS = 7;
+	private static final long PIT_MASK = 0x7FL;
+	// all six pit fields of a side
+	private static final long PITS_MASK = (1L << (PITS * PIT_BITS)) - 1;
+	// a one in each of the six pit fields of a side
+	private static final long ONE_PER_PIT = 0x810204081L;
+
+	private static final int SCORE_SHIFT = 42;
+	private static final int CREDIT_SHIFT = 49;
+	private static final long CREDIT_MASK = 0x3L;
+	private static final int SKIP_SHIFT = 51;
+	private static final int TURN_PLAYER_SHIFT = 52;
+	private static final int WINNER_SHIFT = 53;
+	private static final long WINNER_MASK = 0x7L;
+	private static final int TURN_NUMBER_SHIFT = 52;
+	private static final long TURN_NUMBER_MASK = 0xFFL;
+
+	// winner codes, chosen so that an unfinished game has a zero winner field
+	private static final int CODE_NOBODY = 0;
+	private static final int CODE_PLAYER0 = 1;
+	private static final int CODE_PLAYER1 = 2;
+	private static final int CODE_DRAW = 3;
+	private static final int CODE_CANCELLED0 = 4;
+	private static final int CODE_CANCELLED1 = 5;
+
+	// player 0's side plus the turn player and the winner
+	private long lo;
+	// player 1's side plus the turn number
+	private long hi;
+
+	/**
+	 * Creates the initial state of a game: six beans in every pit and two
+	 * skips each, with player 0 to move.
+	 */
+	public PackedBoardState() {
+		long side = 6 * ONE_PER_PIT | (2L << CREDIT_SHIFT);
+		this.lo = side;
+		this.hi = side;
+	}
+
+	public PackedBoardState(long lo, long hi) {
+		this.lo = lo;
+		this.hi = hi;
+	}
+
+	public PackedBoardState(PackedBoardState other) {
+		this.lo = other.lo;
+		this.hi = other.hi;
+	}
+
+	public PackedBoardState(BohnenspielBoardState boardState) {
+		this.set(boardState);
+	}
+
+	// =========================================================================
+	// Conversions
+	// =========================================================================
+
+	/**
+	 * Overwrites this state with the given board state. BohnenspielBoardState
+	 * only shows a pending skip through whether the player to move may skip,
+	 * so that is where it is read from. The player who just moved never has
+	 * one, since moving clears it and skipping needs it clear.
+	 *
+	 * @param boardState
+	 */
+	public void set(BohnenspielBoardState boardState) {
+		int[][] pits = boardState.getPits();
+		int turnPlayer = boardState.getTurnPlayer();
+		int turnsToSkip = boardState.getCredit(turnPlayer) > 0
+				&& !boardState.isLegal(new BohnenspielMove("skip", turnPlayer)) ? 1 : 0;
+		this.lo = packSide(pits[0], boardState.getScore(0), boardState.getCredit(0), turnPlayer == 0 ? turnsToSkip : 0)
+				| ((long) turnPlayer << TURN_PLAYER_SHIFT)
+				| ((long) encodeWinner(boardState.getWinner()) << WINNER_SHIFT);
+		this.hi = packSide(pits[1], boardState.getScore(1), boardState.getCredit(1), turnPlayer == 1 ? turnsToSkip : 0)
+				| ((long) boardState.getTurnNumber() << TURN_NUMBER_SHIFT);
+	}
+
+	/**
+	 * Overwrites this state with another packed state
+	 *
+	 * @param other
+	 */
+	public void set(PackedBoardState other) {
+		this.lo = other.lo;
+		this.hi = other.hi;
+	}
+
+	/**
+	 * Overwrites this state with the given packed words
+	 *
+	 * @param lo
+	 * @param hi
+	 */
+	public void set(long lo, long hi) {
+		this.lo = lo;
+		this.hi = hi;
+	}
+
+	/**
+	 * Overwrites this state with an unfinished game in the given position
+	 *
+	 * @param pits
+	 *            - indexed by [player][pit]
+	 * @param score
+	 * @param credit
+	 * @param turnsToSkip
+	 * @param turnPlayer
+	 * @param turnNumber
+	 */
+	public void set(int[][] pits, int[] score, int[] credit, int[] turnsToSkip, int turnPlayer, int turnNumber) {
+		this.lo = packSide(pits[0], score[0], credit[0], turnsToSkip[0]) | ((long) turnPlayer << TURN_PLAYER_SHIFT);
+		this.hi = packSide(pits[1], score[1], credit[1], turnsToSkip[1]) | ((long) turnNumber << TURN_NUMBER_SHIFT);
+	}
+
+	/**
+	 * Unpacks this state into a new BohnenspielBoardState
+	 *
+	 * @return
+	 */
+	public BohnenspielBoardState toBoardState() {
+		int[][] pits = new int[2][PITS];
+		for (int i = 0; i < PITS; i++) {
+			pits[0][i] = getPit(0, i);
+			pits[1][i] = getPit(1, i);
+		}
+		int[] score = { getScore(0), getScore(1) };
+		int[] skipCredit = { getCredit(0), getCredit(1) };
+		int[] turnsToSkip = { getTurnsToSkip(0), getTurnsToSkip(1) };
+		return new BohnenspielBoardState(pits, getTurnNumber(), getWinner(), getTurnPlayer(), 0, score, skipCredit,
+				turnsToSkip);
+	}
+
+	private static long packSide(int[] pits, int score, int credit, int turnsToSkip) {
+		long side = 0;
+		for (int i = 0; i < PITS; i++) {
+			side |= (long) pits[i] << (PIT_BITS * i);
+		}
+		return side | ((long) score << SCORE_SHIFT) | ((long) credit << CREDIT_SHIFT)
+				| ((long) turnsToSkip << SKIP_SHIFT);
+	}
+
+	private static int encodeWinner(int winner) {
+		switch (winner) {
+		case 0:
+			return CODE_PLAYER0;
+		case 1:
+			return CODE_PLAYER1;
+		case BohnenspielBoardState.DRAW:
+			return CODE_DRAW;
+		case BohnenspielBoardState.CANCELLED0:
+			return CODE_CANCELLED0;
+		case BohnenspielBoardState.CANCELLED1:
+			return CODE_CANCELLED1;
+		default:
+			return CODE_NOBODY;
+		}
+	}
+
+	private static int decodeWinner(int code) {
+		switch (code) {
+		case CODE_PLAYER0:
+			return 0;
+		case CODE_PLAYER1:
+			return 1;
+		case CODE_DRAW:
+			return BohnenspielBoardState.DRAW;
+		case CODE_CANCELLED0:
+			return BohnenspielBoardState.CANCELLED0;
+		case CODE_CANCELLED1:
+			return BohnenspielBoardState.CANCELLED1;
+		default:
+			return BohnenspielBoardState.NOBODY;
+		}
+	}
+
+	// =========================================================================
+	// Accessors
+	// =========================================================================
+
+	public long getLo() {
+		return this.lo;
+	}
+
+	public long getHi() {
+		return this.hi;
+	}
+
+	public int getPit(int player, int pit) {
+		return (int) ((side(player) >>> (PIT_BITS * pit)) & PIT_MASK);
+	}
+
+	/**
+	 * Returns the total number of beans in the given player's pits
+	 *
+	 * @param player
+	 * @return
+	 */
+	public int getBeans(int player) {
+		return sumPits(side(player));
+	}
+
+	public int getScore(int player) {
+		return (int) ((side(player) >>> SCORE_SHIFT) & PIT_MASK);
+	}
+
+	public int getCredit(int player) {
+		return (int) ((side(player) >>> CREDIT_SHIFT) & CREDIT_MASK);
+	}
+
+	public int getTurnsToSkip(int player) {
+		return (int) ((side(player) >>> SKIP_SHIFT) & 1L);
+	}
+
+	public int getTurnPlayer() {
+		return (int) ((this.lo >>> TURN_PLAYER_SHIFT) & 1L);
+	}
+
+	public int getTurnNumber() {
+		return (int) ((this.hi >>> TURN_NUMBER_SHIFT) & TURN_NUMBER_MASK);
+	}
+
+	public int getWinner() {
+		return decodeWinner((int) ((this.lo >>> WINNER_SHIFT) & WINNER_MASK));
+	}
+
+	public boolean gameOver() {
+		return ((this.lo >>> WINNER_SHIFT) & WINNER_MASK) != CODE_NOBODY;
+	}
+
+	private long side(int player) {
+		return player == 0 ? this.lo : this.hi;
+	}
+
+	private static int sumPits(long side) {
+		int sum = 0;
+		for (int i = 0; i < PITS; i++) {
+			sum += (int) (side & PIT_MASK);
+			side >>>= PIT_BITS;
+		}
+		return sum;
+	}
+
+	// =========================================================================
+	// Move generation
+	// =========================================================================
+
+	/**
+	 * Returns whether the given move is legal for the player whose turn it is
+	 *
+	 * @param move
+	 *            - a pit (0-5) or MutableBoardState.SKIP
+	 * @return
+	 */
+	public boolean isLegal(int move) {
+		int turnPlayer = getTurnPlayer();
+		if (move == MutableBoardState.SKIP) {
+			return getCredit(turnPlayer) > 0 && getTurnsToSkip(turnPlayer) == 0;
+		}
+		return move >= 0 && move < PITS && getPit(turnPlayer, move) > 0;
+	}
+
+	/**
+	 * Writes the legal moves for the player whose turn it is into moves, in
+	 * the same order as BohnenspielBoardState.getLegalMoves
+	 *
+	 * @param moves
+	 *            - a buffer of at least MutableBoardState.MAX_MOVES ints
+	 * @return the number of moves written
+	 */
+	public int getLegalMoves(int[] moves) {
+		int turnPlayer = getTurnPlayer();
+		long side = side(turnPlayer);
+		int count = 0;
+		for (int i = 0; i < PITS; i++) {
+			if (((side >>> (PIT_BITS * i)) & PIT_MASK) != 0) {
+				moves[count++] = i;
+			}
+		}
+		if (((side >>> CREDIT_SHIFT) & CREDIT_MASK) > 0 && ((side >>> SKIP_SHIFT) & 1L) == 0) {
+			moves[count++] = MutableBoardState.SKIP;
+		}
+		return count;
+	}
+
+	// =========================================================================
+	// Applying moves
+	// =========================================================================
+
+	/**
+	 * Applies a legal move in place, following the same rules as
+	 * BohnenspielBoardState.move. Callers that need the previous state back
+	 * should save getLo() and getHi() first.
+	 *
+	 * @param move
+	 *            - a pit (0-5) or MutableBoardState.SKIP
+	 */
+	public void apply(int move) {
+		int mover = getTurnPlayer();
+		int opponent = 1 - mover;
+
+		if (move == MutableBoardState.SKIP) {
+			addToSide(mover, -(1L << CREDIT_SHIFT));
+			// a pending skip only matters to a player with credit, so as in
+			// MutableBoardState it is left clear for one without
+			if (getCredit(opponent) > 0) {
+				setSide(opponent, side(opponent) | (1L << SKIP_SHIFT));
+			}
+		} else {
+			sow(mover, move);
+			setSide(mover, side(mover) & ~(1L << SKIP_SHIFT));
+		}
+
+		if (mover == 1) {
+			this.hi += 1L << TURN_NUMBER_SHIFT;
+		}
+		this.lo ^= 1L << TURN_PLAYER_SHIFT;
+		updateWinner(opponent);
+	}
+
+	/**
+	 * Sows the beans in the given pit counter-clockwise around all twelve pits
+	 * and then captures backwards from the last pit sown while pits hold 2, 4
+	 * or 6 beans
+	 */
+	private void sow(int mover, int pit) {
+		int start = mover * PITS + pit;
+		int beans = getPit(mover, pit);
+		addToPit(start, -beans);
+
+		// every full lap adds one bean to every pit
+		long laps = beans / CYCLE;
+		if (laps > 0) {
+			this.lo += laps * ONE_PER_PIT;
+			this.hi += laps * ONE_PER_PIT;
+		}
+		int pos = start;
+		for (int i = beans % CYCLE; i > 0; i--) {
+			pos = pos == CYCLE - 1 ? 0 : pos + 1;
+			addToPit(pos, 1);
+		}
+
+		int captured = 0;
+		while (true) {
+			int beansInPit = getPitAt(pos);
+			if (beansInPit != 2 && beansInPit != 4 && beansInPit != 6) {
+				break;
+			}
+			captured += beansInPit;
+			addToPit(pos, -beansInPit);
+			pos = pos == 0 ? CYCLE - 1 : pos - 1;
+		}
+		if (captured > 0) {
+			addToSide(mover, (long) captured << SCORE_SHIFT);
+		}
+	}
+
+	/**
+	 * Ends the game if the player about to move has no legal moves (the mover
+	 * then collects every remaining bean) or if the turn limit has been passed
+	 */
+	private void updateWinner(int nextToPlay) {
+		if (gameOver()) {
+			return;
+		}
+
+		long next = side(nextToPlay);
+		if (((next >>> CREDIT_SHIFT) & CREDIT_MASK) == 0 && (next & PITS_MASK) == 0) {
+			int remaining = sumPits(this.lo) + sumPits(this.hi);
+			this.lo &= ~PITS_MASK;
+			this.hi &= ~PITS_MASK;
+			addToSide(1 - nextToPlay, (long) remaining << SCORE_SHIFT);
+			declareWinner();
+		} else if (getTurnNumber() > BohnenspielBoardState.MAX_TURN) {
+			declareWinner();
+		}
+	}
+
+	private void declareWinner() {
+		int score0 = getScore(0);
+		int score1 = getScore(1);
+		int code = score0 == score1 ? CODE_DRAW : (score0 > score1 ? CODE_PLAYER0 : CODE_PLAYER1);
+		this.lo = (this.lo & ~(WINNER_MASK << WINNER_SHIFT)) | ((long) code << WINNER_SHIFT);
+	}
+
+	/** Position 0-11 on the sowing cycle: player 0's pits, then player 1's */
+	private int getPitAt(int pos) {
+		return pos < PITS ? getPit(0, pos) : getPit(1, pos - PITS);
+	}
+
+	private void addToPit(int pos, int beans) {
+		if (pos < PITS) {
+			this.lo += (long) beans << (PIT_BITS * pos);
+		} else {
+			this.hi += (long) beans << (PIT_BITS * (pos - PITS));
+		}
+	}
+
+	private void addToSide(int player, long delta) {
+		if (player == 0) {
+			this.lo += delta;
+		} else {
+			this.hi += delta;
+		}
+	}
+
+	private void setSide(int player, long side) {
+		if (player == 0) {
+			this.lo = side;
+		} else {
+			this.hi = side;
+		}
+	}
+
+	// =========================================================================
+	// Object methods
+	// =========================================================================
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof PackedBoardState)) {
+			return false;
+		}
+		PackedBoardState other = (PackedBoardState) o;
+		return this.lo == other.lo && this.hi == other.hi;
+	}
+
+	@Override
+	public int hashCode() {
+		long h = this.lo * 0x9E3779B97F4A7C15L ^ this.hi;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PackedBoardState[%016x, %016x]", this.lo, this.hi);
+	}
+
+}
@@ -0,0 +1,517 @@
+package student_player.mytools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import bohnenspiel.BohnenspielBoardState;
+import bohnenspiel.BohnenspielMove;
+
+/**
+ * Alpha-beta search that splits the moves at the root between several
+ * threads. Each iteration of iterative deepening searches the first root move
+ * on its own to get a good alpha, within an aspiration window around the last
+ * iteration's score if one is set, then hands the remaining root moves out to
+ * the workers one at a time. The best score found so far is shared between
+ * the workers, so a worker starting on a move uses the tightest alpha
+ * available.
+ *
+ * The workers share one transposition table, as LazySmpMinimax's threads do,
+ * but each has its own AlphaBetaMinimax, copy of the board and move ordering,
+ * since none of these are thread safe. Below the root they search as
+ * AlphaBetaMinimax does with the same settings; MTD(f) is a way of searching
+ * the root, so it is not used here. With one thread everything runs on the
+ * calling thread and the search is deterministic, which is useful when
+ * debugging.
+ *
+ * @author kstricks
+ *
+ */
+public class ParallelAlphaBetaMinimax {
+
+	// the deepest iterative deepening will search
+	private static final int MAX_DEPTH = 64;
+	// deadline used when searching to a fixed depth
+	private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	private final int numThreads;
+	private final TranspositionTable table;
+	private final AlphaBetaMinimax[] workers;
+	// null when running on a single thread
+	private final ExecutorService pool;
+	// asked before each iteration whether there is time for it, or null
+	private TimeManager timeManager;
+	// half the width of the window the first root move is searched with, or
+	// 0 for none
+	private int aspirationWindow;
+
+	// the iteration being searched, shared with the workers
+	private MutableBoardState[] workerStates;
+	private ArrayList<BohnenspielMove> rootMoves;
+	private int[] rootScores;
+	private int[] rootAlphas;
+	private int iterationDepth;
+	// the score of the best move of the last iteration
+	private int rootScore;
+	private final AtomicInteger nextMove = new AtomicInteger();
+	private final AtomicInteger sharedAlpha = new AtomicInteger();
+	private final AtomicBoolean foundWin = new AtomicBoolean();
+
+	/**
+	 * Creates a search using one thread per available processor and a table of
+	 * the default size
+	 *
+	 * @param player
+	 * @param utilityFunction
+	 */
+	public ParallelAlphaBetaMinimax(int player, int utilityFunction) {
+		this(player, utilityFunction, Runtime.getRuntime().availableProcessors(), new TranspositionTable());
+	}
+
+	/**
+	 * Creates a search using the given number of threads. The threads are
+	 * started here and reused for every search, so create one of these per
+	 * player rather than one per move.
+	 *
+	 * @param player
+	 * @param utilityFunction
+	 * @param numThreads
+	 *            - at least 1
+	 * @param table
+	 *            - the table shared by all the threads
+	 */
+	public ParallelAlphaBetaMinimax(int player, int utilityFunction, int numThreads, TranspositionTable table) {
+		this(player, Evaluator.forUtilityFunction(utilityFunction), numThreads, table);
+	}
+
+	/**
+	 * Same as above, scoring positions with the given evaluator
+	 *
+	 * @param player
+	 * @param evaluator
+	 *            - shared by all the threads
+	 * @param numThreads
+	 *            - at least 1
+	 * @param table
+	 *            - the table shared by all the threads
+	 */
+	public ParallelAlphaBetaMinimax(int player, Evaluator evaluator, int numThreads, TranspositionTable table) {
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("numThreads must be at least 1, was " + numThreads);
+		}
+		this.numThreads = numThreads;
+		this.table = table;
+		this.workers = new AlphaBetaMinimax[numThreads];
+		for (int i = 0; i < numThreads; i++) {
+			this.workers[i] = new AlphaBetaMinimax(player, evaluator, table);
+			this.workers[i].setMoveOrdering(new MoveOrdering());
+		}
+		this.pool = numThreads == 1 ? null : Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "alpha-beta-worker");
+				// never keep the client alive once the game is over
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public int getNumThreads() {
+		return this.numThreads;
+	}
+
+	/**
+	 * Sets the tablebase looked up by every thread
+	 *
+	 * @param tablebase
+	 */
+	public void setTablebase(EndgameTablebase tablebase) {
+		for (AlphaBetaMinimax worker : this.workers) {
+			worker.setTablebase(tablebase);
+		}
+	}
+
+	/**
+	 * Turns principal variation search on or off on every thread
+	 *
+	 * @param pvs
+	 */
+	public void setPvs(boolean pvs) {
+		for (AlphaBetaMinimax worker : this.workers) {
+			worker.setPvs(pvs);
+		}
+	}
+
+	/**
+	 * Sets the aspiration window the first root move of each iteration is
+	 * searched with
+	 *
+	 * @param aspirationWindow
+	 *            - or 0 for none
+	 */
+	public void setAspirationWindow(int aspirationWindow) {
+		this.aspirationWindow = aspirationWindow;
+	}
+
+	/**
+	 * Sets how many captures every thread searches past the horizon
+	 *
+	 * @param quiescence
+	 *            - or 0 for no quiescence search
+	 */
+	public void setQuiescence(int quiescence) {
+		for (AlphaBetaMinimax worker : this.workers) {
+			worker.setQuiescence(quiescence);
+		}
+	}
+
+	/**
+	 * Turns late move reductions on or off on every thread
+	 *
+	 * @param lateMoveReductions
+	 */
+	public void setLateMoveReductions(boolean lateMoveReductions) {
+		for (AlphaBetaMinimax worker : this.workers) {
+			worker.setLateMoveReductions(lateMoveReductions);
+		}
+	}
+
+	/**
+	 * Turns futility pruning on or off on every thread
+	 *
+	 * @param futilityPruning
+	 */
+	public void setFutilityPruning(boolean futilityPruning) {
+		for (AlphaBetaMinimax worker : this.workers) {
+			worker.setFutilityPruning(futilityPruning);
+		}
+	}
+
+	/**
+	 * Turns null move pruning on or off on every thread
+	 *
+	 * @param nullMovePruning
+	 */
+	public void setNullMovePruning(boolean nullMovePruning) {
+		for (AlphaBetaMinimax worker : this.workers) {
+			worker.setNullMovePruning(nullMovePruning);
+		}
+	}
+
+	/**
+	 * Sets the time manager asked before each iteration whether there is time
+	 * to search one move deeper, and told about each iteration completed
+	 *
+	 * @param timeManager
+	 */
+	public void setTimeManager(TimeManager timeManager) {
+		this.timeManager = timeManager;
+	}
+
+	/**
+	 * Chooses a move by searching to a fixed depth
+	 *
+	 * @param boardState
+	 *            - a copy of the current board state
+	 * @param movesToGo
+	 *            - the number of moves to simulate
+	 * @return The best move or null if no moves are possible or if all moves
+	 *         result in us losing
+	 */
+	public MinimaxResponse minimaxDecision(BohnenspielBoardState boardState, int movesToGo) {
+		if (movesToGo <= 0) {
+			throw new InvalidDepthException();
+		}
+
+		startSearch(boardState, NO_DEADLINE);
+		BohnenspielMove bestMove = searchIteration(boardState.getLegalMoves(), movesToGo, false);
+		return new MinimaxResponse(bestMove, false, bestMove == null ? true : false, getStats(movesToGo));
+	}
+
+	/**
+	 * Chooses a move by searching one move deeper at a time until the given
+	 * deadline passes, as AlphaBetaMinimax.iterativeDeepeningDecision does
+	 *
+	 * @param boardState
+	 *            - a copy of the current board state
+	 * @param deadline
+	 *            - the System.nanoTime() by which we must have a move
+	 * @return The best move from the deepest completed search, along with the
+	 *         depth reached and the number of nodes searched by all threads
+	 */
+	public MinimaxResponse iterativeDeepeningDecision(BohnenspielBoardState boardState, long deadline) {
+		startSearch(boardState, deadline);
+
+		ArrayList<BohnenspielMove> moves = boardState.getLegalMoves();
+		BohnenspielMove bestMove = null;
+		int depthReached = 0;
+		for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+			if (this.timeManager != null && !this.timeManager.shouldStartIteration()) {
+				// the iteration would not finish in time
+				break;
+			}
+			long nodesBefore = getNodes();
+			BohnenspielMove move = searchIteration(moves, depth, depthReached > 0);
+			if (isAborted()) {
+				break;
+			}
+			bestMove = move;
+			depthReached = depth;
+			if (this.timeManager != null) {
+				this.timeManager.iterationDone(move, getNodes() - nodesBefore);
+			}
+			if (move == null || this.foundWin.get() || !reachedHorizon()) {
+				// we have lost, won, or seen every line through to the end of
+				// the game, so searching deeper will not change anything
+				break;
+			}
+			// search the best move first next time
+			moves.remove(move);
+			moves.add(0, move);
+		}
+
+		if (depthReached == 0 && !moves.isEmpty()) {
+			// not even one move deep in time; play something legal
+			bestMove = moves.get(0);
+		}
+
+		return new MinimaxResponse(bestMove, false, bestMove == null ? true : false, getStats(depthReached));
+	}
+
+	/**
+	 * Stops the worker threads. The search cannot be used afterwards.
+	 */
+	public void shutdown() {
+		if (this.pool != null) {
+			this.pool.shutdownNow();
+		}
+	}
+
+	private void startSearch(BohnenspielBoardState boardState, long deadline) {
+		this.table.newSearch();
+		this.workerStates = new MutableBoardState[this.numThreads];
+		for (int i = 0; i < this.numThreads; i++) {
+			this.workers[i].startWorker(deadline);
+			this.workerStates[i] = new MutableBoardState(boardState);
+		}
+	}
+
+	/**
+	 * Searches every root move to the given depth
+	 *
+	 * @param moves
+	 *            - the legal moves, in the order to search them
+	 * @param movesToGo
+	 * @param aspiration
+	 *            - whether to search the first move within the aspiration
+	 *            window around the last iteration's score
+	 * @return The best move or null if all moves result in us losing. The
+	 *         result is meaningless if the search was aborted.
+	 */
+	private BohnenspielMove searchIteration(ArrayList<BohnenspielMove> moves, int movesToGo, boolean aspiration) {
+		int size = moves.size();
+		this.rootMoves = moves;
+		this.rootScores = new int[size];
+		this.rootAlphas = new int[size];
+		this.iterationDepth = movesToGo;
+		this.foundWin.set(false);
+		for (AlphaBetaMinimax worker : this.workers) {
+			worker.startIteration();
+		}
+		if (size == 0) {
+			return null;
+		}
+
+		// search the first (and hopefully best) move alone, so that the other
+		// moves are searched with a useful alpha
+		this.sharedAlpha.set(Integer.MIN_VALUE);
+		int firstScore = searchFirstMove(moves.get(0), movesToGo, aspiration);
+		if (isAborted()) {
+			return null;
+		}
+		this.rootScores[0] = firstScore;
+		this.rootAlphas[0] = Integer.MIN_VALUE;
+		if (firstScore == Integer.MAX_VALUE) {
+			this.foundWin.set(true);
+		} else if (firstScore != Integer.MIN_VALUE) {
+			raiseAlpha(firstScore);
+		}
+
+		// then the rest in parallel
+		if (size > 1 && !this.foundWin.get()) {
+			this.nextMove.set(1);
+			if (this.pool == null) {
+				new RootWorker(0, size).call();
+			} else {
+				List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(this.numThreads);
+				for (int i = 0; i < this.numThreads; i++) {
+					tasks.add(new RootWorker(i, size));
+				}
+				try {
+					for (Future<Void> result : this.pool.invokeAll(tasks)) {
+						result.get();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+			}
+			if (isAborted()) {
+				return null;
+			}
+		}
+
+		// pick the best move, preferring earlier moves on ties as searchRoot
+		// does. Only the first move and moves that beat the alpha they were
+		// searched with have exact scores; the others are no better than the
+		// best move.
+		BohnenspielMove bestMove = null;
+		int bestScore = Integer.MIN_VALUE;
+		for (int i = 0; i < size; i++) {
+			int score = this.rootScores[i];
+			if (score == Integer.MAX_VALUE) {
+				// this move results in us winning --> take it
+				this.rootScore = score;
+				return moves.get(i);
+			} else if (score == Integer.MIN_VALUE || (i > 0 && score <= this.rootAlphas[i])) {
+				continue;
+			}
+			if (score > bestScore) {
+				bestScore = score;
+				bestMove = moves.get(i);
+			}
+		}
+		this.rootScore = bestScore;
+		return bestMove;
+	}
+
+	/**
+	 * Scores the first root move on the calling thread, first within the
+	 * aspiration window if asked to, and again with a full window if the
+	 * score falls outside it
+	 *
+	 * @param move
+	 * @param movesToGo
+	 * @param aspiration
+	 * @return The exact score of the move, which is meaningless if the search
+	 *         was aborted
+	 */
+	private int searchFirstMove(BohnenspielMove move, int movesToGo, boolean aspiration) {
+		AlphaBetaMinimax worker = this.workers[0];
+		MutableBoardState boardState = this.workerStates[0];
+		if (aspiration && this.aspirationWindow > 0 && this.rootScore != Integer.MIN_VALUE
+				&& this.rootScore != Integer.MAX_VALUE) {
+			// long arithmetic, so that a window wider than the range of scores
+			// becomes a full one rather than overflowing
+			int alpha = (int) Math.max(Integer.MIN_VALUE, (long) this.rootScore - this.aspirationWindow);
+			int beta = (int) Math.min(Integer.MAX_VALUE, (long) this.rootScore + this.aspirationWindow);
+			int score = worker.searchRootMove(boardState, move, movesToGo, alpha, beta);
+			if (worker.isAborted() || (score > alpha && score < beta)) {
+				return score;
+			}
+		}
+		return worker.searchRootMove(boardState, move, movesToGo, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Searches root moves handed out by nextMove until there are none left,
+	 * the deadline passes or another worker finds a win
+	 */
+	private class RootWorker implements Callable<Void> {
+
+		private final int index;
+		private final int end;
+
+		RootWorker(int index, int end) {
+			this.index = index;
+			this.end = end;
+		}
+
+		public Void call() {
+			AlphaBetaMinimax worker = workers[this.index];
+			MutableBoardState boardState = workerStates[this.index];
+			int i;
+			while (!foundWin.get() && (i = nextMove.getAndIncrement()) < this.end) {
+				int alpha = sharedAlpha.get();
+				int score = worker.searchRootMove(boardState, rootMoves.get(i), iterationDepth, alpha,
+						Integer.MAX_VALUE);
+				if (worker.isAborted()) {
+					return null;
+				}
+				rootScores[i] = score;
+				rootAlphas[i] = alpha;
+				if (score == Integer.MAX_VALUE) {
+					foundWin.set(true);
+				} else if (score != Integer.MIN_VALUE && score > alpha) {
+					raiseAlpha(score);
+				}
+			}
+			return null;
+		}
+
+	}
+
+	private void raiseAlpha(int score) {
+		int current;
+		while (score > (current = this.sharedAlpha.get()) && !this.sharedAlpha.compareAndSet(current, score)) {
+			// another worker raised alpha first; try again
+		}
+	}
+
+	private boolean isAborted() {
+		for (AlphaBetaMinimax worker : this.workers) {
+			if (worker.isAborted()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the nodes all the workers have visited in the current search
+	 */
+	private long getNodes() {
+		long nodes = 0;
+		for (AlphaBetaMinimax worker : this.workers) {
+			nodes += worker.getNodes();
+		}
+		return nodes;
+	}
+
+	private boolean reachedHorizon() {
+		for (AlphaBetaMinimax worker : this.workers) {
+			if (worker.getReachedHorizon()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the counts of all the workers added together, timed by the
+	 * first worker. Every worker searches part of each iteration, so the nodes
+	 * of an iteration are not known and no branching factor is given.
+	 *
+	 * @param depth
+	 *            - the depth reached
+	 * @return
+	 */
+	private SearchStats getStats(int depth) {
+		SearchStats stats = this.workers[0].getStats();
+		for (int i = 1; i < this.numThreads; i++) {
+			stats.add(this.workers[i].getStats());
+		}
+		stats.setDepth(depth);
+		return stats;
+	}
+
+}
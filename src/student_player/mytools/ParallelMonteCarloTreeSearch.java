@@ -0,0 +1,390 @@
+package student_player.mytools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import bohnenspiel.BohnenspielBoardState;
+import bohnenspiel.BohnenspielMove;
+
+/**
+ * Tree-parallel Monte Carlo tree search: several threads run playouts down one
+ * shared tree at the same time. The tree is laid out as in
+ * MonteCarloTreeSearch, but the counters are atomic so that no locks are
+ * needed. Rollouts run on each thread's own state and generator.
+ *
+ * Threads left to themselves would all follow the same path down the tree,
+ * so a thread adds VIRTUAL_LOSS visits to each node on its way down and only
+ * takes them off again when its rollout is done. Until then the node looks
+ * like it lost those playouts, and the other threads are steered towards
+ * other branches.
+ *
+ * A node is expanded by whichever thread first swaps its firstChild from
+ * UNEXPANDED to EXPANDING. Other threads reaching the node meanwhile treat it
+ * as a leaf, and see its children only once firstChild is set to the first of
+ * them, which is done last.
+ *
+ * @author kstricks
+ *
+ */
+public class ParallelMonteCarloTreeSearch {
+
+	// each node on a thread's path counts as this many lost playouts until the
+	// thread's rollout finishes
+	private static final int VIRTUAL_LOSS = 3;
+
+	// firstChild of a node that has not been expanded, or that a thread is
+	// expanding
+	private static final int UNEXPANDED = -1;
+	private static final int EXPANDING = -2;
+	private static final int ROOT = 0;
+
+	// rewards are counted in half points so that a draw is a whole number
+	private static final int WIN_REWARD = 2;
+	private static final int DRAW_REWARD = 1;
+
+	private static final int MAX_PATH = 2 * (BohnenspielBoardState.MAX_TURN + 2);
+
+	private final int numThreads;
+	private final int capacity;
+	private final double exploration;
+
+	// the same arrays as MonteCarloTreeSearch, with wins in half points
+	private final AtomicIntegerArray visits;
+	private final AtomicIntegerArray wins;
+	private final AtomicIntegerArray firstChild;
+	// written before the node's firstChild is published, and read after it
+	private final byte[] numChildren;
+	private final byte[] moves;
+	private final AtomicInteger size = new AtomicInteger();
+
+	// workers[0] runs on the calling thread
+	private final Worker[] workers;
+	// null when running on a single thread
+	private final ExecutorService pool;
+
+	// the root of the current search, set before the workers start
+	private long rootLo;
+	private long rootHi;
+	private int rootPlayer;
+
+	/**
+	 * Creates a search using one thread per available processor
+	 */
+	public ParallelMonteCarloTreeSearch() {
+		this(Runtime.getRuntime().availableProcessors(), MonteCarloTreeSearch.DEFAULT_CAPACITY,
+				MonteCarloTreeSearch.DEFAULT_EXPLORATION, System.nanoTime());
+	}
+
+	/**
+	 * Creates a search using the given number of threads. The threads are
+	 * started here and reused for every search, so create one of these per
+	 * player rather than one per move.
+	 *
+	 * @param numThreads
+	 *            - at least 1
+	 * @param capacity
+	 *            - the most nodes the tree can hold
+	 * @param exploration
+	 *            - the exploration constant C in the UCT formula
+	 * @param seed
+	 *            - seeds the random moves played in rollouts
+	 */
+	public ParallelMonteCarloTreeSearch(int numThreads, int capacity, double exploration, long seed) {
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("numThreads must be at least 1, was " + numThreads);
+		}
+		if (capacity < 1 + MutableBoardState.MAX_MOVES) {
+			throw new IllegalArgumentException("capacity must be at least " + (1 + MutableBoardState.MAX_MOVES)
+					+ ", was " + capacity);
+		}
+		this.numThreads = numThreads;
+		this.capacity = capacity;
+		this.exploration = exploration;
+		this.visits = new AtomicIntegerArray(capacity);
+		this.wins = new AtomicIntegerArray(capacity);
+		this.firstChild = new AtomicIntegerArray(capacity);
+		this.numChildren = new byte[capacity];
+		this.moves = new byte[capacity];
+		this.workers = new Worker[numThreads];
+		for (int i = 0; i < numThreads; i++) {
+			this.workers[i] = new Worker(Rollout.seed(seed, i));
+		}
+		this.pool = numThreads == 1 ? null : Executors.newFixedThreadPool(numThreads - 1, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "mcts-worker");
+				// never keep the client alive once the game is over
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public int getNumThreads() {
+		return this.numThreads;
+	}
+
+	/**
+	 * Runs playouts from the given state on every thread until the deadline
+	 * passes
+	 *
+	 * @param boardState
+	 *            - the current board state, which is not modified
+	 * @param deadline
+	 *            - the System.nanoTime() by which we must have a move
+	 * @return The most visited move at the root, the deepest the tree reached
+	 *         as the depth and the number of playouts on all threads as the
+	 *         nodes
+	 */
+	public MinimaxResponse search(BohnenspielBoardState boardState, final long deadline) {
+		SearchStats stats = new SearchStats();
+		stats.start();
+		PackedBoardState root = new PackedBoardState(boardState);
+		this.rootLo = root.getLo();
+		this.rootHi = root.getHi();
+		this.rootPlayer = root.getTurnPlayer();
+
+		this.size.set(1);
+		newNode(ROOT, MutableBoardState.SKIP);
+		for (Worker worker : this.workers) {
+			worker.playouts = 0;
+			worker.maxDepth = 0;
+		}
+		Worker main = this.workers[0];
+		main.state.set(root);
+		if (root.gameOver() || main.expand(ROOT) <= 0) {
+			return new MinimaxResponse(null, false, true, 0, 0);
+		}
+
+		// with only one legal move there is nothing to search
+		if (this.numChildren[ROOT] > 1) {
+			List<Future<?>> helpers = new ArrayList<Future<?>>(this.numThreads - 1);
+			for (int i = 1; i < this.numThreads; i++) {
+				final Worker helper = this.workers[i];
+				helpers.add(this.pool.submit(new Runnable() {
+					public void run() {
+						helper.run(deadline);
+					}
+				}));
+			}
+			main.run(deadline);
+			try {
+				for (Future<?> helper : helpers) {
+					helper.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+
+		long playouts = 0;
+		int maxDepth = 0;
+		for (Worker worker : this.workers) {
+			playouts += worker.playouts;
+			maxDepth = Math.max(maxDepth, worker.maxDepth);
+		}
+		BohnenspielMove bestMove = MutableBoardState.toMove(bestMove(), this.rootPlayer);
+		// every playout ends in one scored position
+		stats.nodes = playouts;
+		stats.leafEvaluations = playouts;
+		stats.setDepth(maxDepth);
+		stats.stop();
+		return new MinimaxResponse(bestMove, false, false, stats);
+	}
+
+	/**
+	 * Returns the move at the root that has been played out the most
+	 *
+	 * @return
+	 */
+	private int bestMove() {
+		int first = this.firstChild.get(ROOT);
+		int best = first;
+		for (int child = first + 1; child < first + this.numChildren[ROOT]; child++) {
+			if (this.visits.get(child) > this.visits.get(best)) {
+				best = child;
+			}
+		}
+		return this.moves[best];
+	}
+
+	/** The number of nodes in the tree after the last search */
+	public int getSize() {
+		return this.size.get();
+	}
+
+	/**
+	 * Stops the worker threads. The search cannot be used afterwards.
+	 */
+	public void shutdown() {
+		if (this.pool != null) {
+			this.pool.shutdownNow();
+		}
+	}
+
+	private void newNode(int node, int move) {
+		this.visits.set(node, 0);
+		this.wins.set(node, 0);
+		this.numChildren[node] = 0;
+		this.moves[node] = (byte) move;
+		this.firstChild.set(node, UNEXPANDED);
+	}
+
+	/**
+	 * Reserves space for count nodes
+	 *
+	 * @param count
+	 * @return the index of the first node, or -1 if the tree is full
+	 */
+	private int allocate(int count) {
+		while (true) {
+			int first = this.size.get();
+			if (first + count > this.capacity) {
+				return -1;
+			}
+			if (this.size.compareAndSet(first, first + count)) {
+				return first;
+			}
+		}
+	}
+
+	// =========================================================================
+	// Workers
+	// =========================================================================
+
+	/**
+	 * The state one thread needs to run playouts
+	 */
+	private class Worker {
+
+		private final PackedBoardState state = new PackedBoardState();
+		private final int[] path = new int[MAX_PATH];
+		private final int[] moveBuffer = new int[MutableBoardState.MAX_MOVES];
+		private final Rollout rollout;
+
+		// statistics for the last search
+		private long playouts;
+		private int maxDepth;
+
+		Worker(long seed) {
+			this.rollout = new Rollout(seed);
+		}
+
+		void run(long deadline) {
+			do {
+				this.state.set(rootLo, rootHi);
+				playout();
+			} while (System.nanoTime() < deadline);
+		}
+
+		/**
+		 * Runs one playout from the state, which must hold the root position
+		 */
+		private void playout() {
+			// selection, adding a virtual loss to every node on the way
+			int node = ROOT;
+			int depth = 0;
+			this.path[0] = ROOT;
+			visits.addAndGet(ROOT, VIRTUAL_LOSS);
+			int first;
+			while ((first = firstChild.get(node)) >= 0 && !this.state.gameOver()) {
+				node = select(node, first);
+				visits.addAndGet(node, VIRTUAL_LOSS);
+				this.state.apply(moves[node]);
+				this.path[++depth] = node;
+			}
+
+			// expansion, once a node has had a playout finish through it
+			if (first == UNEXPANDED && !this.state.gameOver() && visits.get(node) > VIRTUAL_LOSS
+					&& expand(node) > 0) {
+				node = firstChild.get(node) + this.rollout.nextInt(numChildren[node]);
+				visits.addAndGet(node, VIRTUAL_LOSS);
+				this.state.apply(moves[node]);
+				this.path[++depth] = node;
+			}
+			if (depth > this.maxDepth) {
+				this.maxDepth = depth;
+			}
+
+			int winner = this.rollout.play(this.state);
+
+			// backpropagation, taking the virtual losses back off
+			for (int i = depth; i >= 0; i--) {
+				int n = this.path[i];
+				int mover = (i & 1) == 1 ? rootPlayer : 1 - rootPlayer;
+				if (winner == mover) {
+					wins.addAndGet(n, WIN_REWARD);
+				} else if (winner == BohnenspielBoardState.DRAW) {
+					wins.addAndGet(n, DRAW_REWARD);
+				}
+				visits.addAndGet(n, 1 - VIRTUAL_LOSS);
+			}
+			this.playouts++;
+		}
+
+		/**
+		 * Returns the child of a node with the highest upper confidence bound,
+		 * counting virtual losses. Children that have never been visited come
+		 * first.
+		 */
+		private int select(int node, int first) {
+			int end = first + numChildren[node];
+			double logVisits = Math.log(visits.get(node));
+			int best = first;
+			double bestBound = Double.NEGATIVE_INFINITY;
+			for (int child = first; child < end; child++) {
+				int childVisits = visits.get(child);
+				if (childVisits == 0) {
+					return child;
+				}
+				double bound = wins.get(child) / (double) (WIN_REWARD * childVisits)
+						+ exploration * Math.sqrt(logVisits / childVisits);
+				if (bound > bestBound) {
+					bestBound = bound;
+					best = child;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * Adds a child to a node for each legal move in the state, unless
+		 * another thread is already doing so
+		 *
+		 * @param node
+		 * @return the number of children added, 0 if the player to move is
+		 *         stuck or the tree is full, or -1 if another thread got there
+		 *         first
+		 */
+		int expand(int node) {
+			if (!firstChild.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+				return -1;
+			}
+			int numMoves = this.state.getLegalMoves(this.moveBuffer);
+			int first = numMoves == 0 ? -1 : allocate(numMoves);
+			if (first < 0) {
+				// a player who cannot move stays a leaf, and so does everything
+				// once the tree is full
+				firstChild.set(node, UNEXPANDED);
+				return 0;
+			}
+			for (int i = 0; i < numMoves; i++) {
+				newNode(first + i, this.moveBuffer[i]);
+			}
+			numChildren[node] = (byte) numMoves;
+			// publishes the children to the other threads
+			firstChild.set(node, first);
+			return numMoves;
+		}
+	}
+
+}
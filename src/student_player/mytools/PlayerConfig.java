@@ -0,0 +1,270 @@
+package student_player.mytools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Properties;
+
+/**
+ * The values of the engine parameters a player reads at runtime, so that one
+ * player class can be run, compared and tuned with any of them instead of
+ * needing a copy of the class per setting.
+ *
+ * Every parameter is an int declared in Parameter, with its default and the
+ * range it may take. Values are read from a text file with one
+ * "NAME = value" line per parameter; parameters left out keep their default.
+ * A system property player.NAME overrides both, so that a single run can be
+ * started with, say, -Dplayer.MAX_TIME=500.
+ *
+ * @author kstricks
+ *
+ */
+public final class PlayerConfig {
+
+	public static final String DEFAULT_PATH = "data/player.config";
+
+	// prefix of the system properties that override the file
+	private static final String PROPERTY_PREFIX = "player.";
+
+	/**
+	 * The engine parameters, each with its default and the range of values it
+	 * may take. Flags are 0 for off and 1 for on.
+	 */
+	public enum Parameter {
+		// the maximum amount of time in milliseconds that we have to make a
+		// move
+		MAX_TIME(700, 100, 1000),
+		// the same for the first move, which the server gives longer
+		FIRST_MOVE_TIME(10000, 100, 30000),
+		// the least amount of time in milliseconds to leave to spare on every
+		// move; more is left if delays have been observed
+		BUFFER_TIME(100, 0, 500),
+		// the percentage of the time a move may take that is used when the
+		// best move stays the same from one depth to the next
+		STABLE_MOVE_PERCENT(70, 10, 100),
+		// the number of threads to search with
+		SEARCH_THREADS(1, 1, 64),
+		// how alpha-beta search uses those threads: 0 for Lazy SMP, which
+		// only runs when there is more than one, or 1 to split the root moves
+		// between them (ParallelAlphaBetaMinimax), even on one thread
+		SEARCH_MODE(0, 0, 1),
+		// whether to search the opponent's replies while they are thinking;
+		// for local play only, since tournament players must not leave
+		// threads running once their turn is over
+		PONDER(0, 0, 1),
+		// the utility function to search with
+		UTILITY_FUNCTION(5, 0, 7),
+		// whether to search with LinearEvaluator weights from their file
+		USE_WEIGHTS_FILE(0, 0, 1),
+		// whether to use principal variation search
+		PVS(1, 0, 1),
+		// half the width of the window around the last iteration's score that
+		// each iteration of iterative deepening starts with, or 0 for none
+		ASPIRATION_WINDOW(8, 0, 1000),
+		// the most captures quiescence search plays past the search horizon,
+		// or 0 to evaluate positions at the horizon as they are
+		QUIESCENCE(2, 0, 32),
+		// whether to search the root by MTD(f) instead of with an aspiration
+		// window
+		MTDF(0, 0, 1),
+		// whether to search late quiet moves to a reduced depth first
+		LATE_MOVE_REDUCTIONS(0, 0, 1),
+		// whether to skip moves next to the horizon that cannot reach the
+		// window
+		FUTILITY_PRUNING(0, 0, 1),
+		// whether to cut off nodes where skipping a turn is already good
+		// enough
+		NULL_MOVE_PRUNING(0, 0, 1),
+		// whether to append the statistics of every search to the search log
+		SEARCH_LOG(0, 0, 1);
+
+		public final int defaultValue;
+		public final int min;
+		public final int max;
+
+		private Parameter(int defaultValue, int min, int max) {
+			this.defaultValue = defaultValue;
+			this.min = min;
+			this.max = max;
+		}
+	}
+
+	private final int[] values;
+
+	/**
+	 * Creates a configuration with every parameter at its default
+	 */
+	public PlayerConfig() {
+		this.values = new int[Parameter.values().length];
+		for (Parameter parameter : Parameter.values()) {
+			this.values[parameter.ordinal()] = parameter.defaultValue;
+		}
+	}
+
+	/**
+	 * Creates a copy of a configuration
+	 *
+	 * @param config
+	 */
+	public PlayerConfig(PlayerConfig config) {
+		this.values = config.values.clone();
+	}
+
+	/**
+	 * Reads the configuration file at DEFAULT_PATH, if there is one, and
+	 * applies any system property overrides. Never fails: anything that cannot
+	 * be read is left at its default. Unlike open, an entry that names a
+	 * parameter that does not exist or has a value that is not a number in
+	 * range is skipped, and the rest of the file still applies.
+	 *
+	 * @return
+	 */
+	public static PlayerConfig load() {
+		PlayerConfig config = new PlayerConfig();
+		try {
+			Properties properties = readProperties(DEFAULT_PATH);
+			for (String name : properties.stringPropertyNames()) {
+				try {
+					config.set(name, properties.getProperty(name));
+				} catch (IllegalArgumentException e) {
+					// keep the default
+				}
+			}
+		} catch (IOException e) {
+			// no file: every parameter keeps its default
+		}
+		config.applyOverrides(System.getProperties());
+		return config;
+	}
+
+	/**
+	 * Reads a configuration file
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 *             if the file cannot be read, names a parameter that does not
+	 *             exist or has a value that is not a number in range
+	 */
+	public static PlayerConfig open(String path) throws IOException {
+		Properties properties = readProperties(path);
+		PlayerConfig config = new PlayerConfig();
+		for (String name : properties.stringPropertyNames()) {
+			try {
+				config.set(name, properties.getProperty(name));
+			} catch (IllegalArgumentException e) {
+				// also covers NumberFormatException
+				throw new IOException(path + ": " + name + " = " + properties.getProperty(name) + ": " + e.getMessage());
+			}
+		}
+		return config;
+	}
+
+	private static Properties readProperties(String path) throws IOException {
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(path);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		return properties;
+	}
+
+	/**
+	 * Sets a parameter from a file entry
+	 *
+	 * @param name
+	 * @param value
+	 * @throws IllegalArgumentException
+	 *             if there is no such parameter or the value is not a number
+	 *             in range
+	 */
+	private void set(String name, String value) {
+		set(Parameter.valueOf(name), Integer.parseInt(value.trim()));
+	}
+
+	/**
+	 * Writes the configuration to a file that open can read back
+	 *
+	 * @param path
+	 * @param comment
+	 *            - written at the top of the file, or null
+	 * @throws IOException
+	 */
+	public void save(String path, String comment) throws IOException {
+		File file = new File(path);
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		PrintWriter out = new PrintWriter(file, "UTF-8");
+		try {
+			if (comment != null) {
+				out.println("# " + comment);
+			}
+			for (Parameter parameter : Parameter.values()) {
+				out.println(parameter.name() + " = " + get(parameter));
+			}
+		} finally {
+			out.close();
+		}
+		if (out.checkError()) {
+			throw new IOException("Could not write " + path);
+		}
+	}
+
+	/**
+	 * Sets every parameter that has a player.NAME property. Properties that
+	 * are not numbers in range are ignored.
+	 *
+	 * @param properties
+	 */
+	private void applyOverrides(Properties properties) {
+		for (Parameter parameter : Parameter.values()) {
+			String value = properties.getProperty(PROPERTY_PREFIX + parameter.name());
+			if (value != null) {
+				try {
+					set(parameter, Integer.parseInt(value.trim()));
+				} catch (IllegalArgumentException e) {
+					// keep the value from the file
+				}
+			}
+		}
+	}
+
+	public int get(Parameter parameter) {
+		return this.values[parameter.ordinal()];
+	}
+
+	public boolean isOn(Parameter parameter) {
+		return get(parameter) != 0;
+	}
+
+	/**
+	 * @param parameter
+	 * @param value
+	 * @throws IllegalArgumentException
+	 *             if the value is out of the parameter's range
+	 */
+	public void set(Parameter parameter, int value) {
+		if (value < parameter.min || value > parameter.max) {
+			throw new IllegalArgumentException(parameter.name() + " must be between " + parameter.min + " and "
+					+ parameter.max + ", was " + value);
+		}
+		this.values[parameter.ordinal()] = value;
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Parameter parameter : Parameter.values()) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(parameter.name()).append('=').append(get(parameter));
+		}
+		return sb.toString();
+	}
+
+}
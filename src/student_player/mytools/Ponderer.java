@@ -0,0 +1,247 @@
+package student_player.mytools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import bohnenspiel.BohnenspielBoardState;
+
+/**
+ * Searches on the opponent's time. Once we have moved, start is given the
+ * position the opponent has to move from, and a background thread searches
+ * the position after each of their replies, one move deeper at a time in
+ * turn, starting with the reply our own search expected. Everything it finds
+ * goes into the transposition table shared with our own search, so when the
+ * opponent's actual move comes in, the search for our reply starts with a
+ * warm table. The deepest finished result for each reply is also kept, and
+ * can be played as is if it saw every line through to the end of the game.
+ *
+ * There are at most seven replies, so no guessing is needed: all of them are
+ * searched. The expected reply is searched first, and EXPECTED_LEAD moves
+ * deeper than the rest, since the opponent usually plays it.
+ *
+ * This is for local play only. The course rules require a player to halt all
+ * of its threads when its turn ends, which pondering by definition does not,
+ * so StudentPlayer only creates a Ponderer when PONDER is turned on.
+ *
+ * @author kstricks
+ *
+ */
+public class Ponderer {
+
+	// the deepest any reply will be searched
+	private static final int MAX_DEPTH = 64;
+	// how much deeper than the others the expected reply is searched
+	private static final int EXPECTED_LEAD = 2;
+
+	private final TranspositionTable table;
+	private final AlphaBetaMinimax search;
+	private final ExecutorService thread;
+
+	// the current background search, or null
+	private Future<?> task;
+	// the deepest finished result for the position after each reply, keyed by
+	// hash key. Only touched by the background thread while it runs.
+	private final HashMap<Long, MinimaxResponse> results = new HashMap<Long, MinimaxResponse>();
+
+	/**
+	 * @param player
+	 *            - the player we are, who moves after the replies searched
+	 * @param utilityFunction
+	 * @param table
+	 *            - the table our own search uses
+	 * @param tablebase
+	 *            - the tablebase our own search uses, or null
+	 */
+	public Ponderer(int player, int utilityFunction, TranspositionTable table, EndgameTablebase tablebase) {
+		this(player, Evaluator.forUtilityFunction(utilityFunction), table, tablebase);
+	}
+
+	/**
+	 * @param player
+	 *            - the player we are, who moves after the replies searched
+	 * @param evaluator
+	 *            - the evaluator our own search uses
+	 * @param table
+	 *            - the table our own search uses
+	 * @param tablebase
+	 *            - the tablebase our own search uses, or null
+	 */
+	public Ponderer(int player, Evaluator evaluator, TranspositionTable table, EndgameTablebase tablebase) {
+		this.table = table;
+		this.search = new AlphaBetaMinimax(player, evaluator, table);
+		// killers and history of our own, since our own search may use its
+		// ordering while this one winds down
+		this.search.setMoveOrdering(new MoveOrdering());
+		this.search.setTablebase(tablebase);
+		this.thread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "ponder");
+				// never keep the client alive once the game is over
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Turns principal variation search on or off for the replies searched.
+	 * Only call this while no search is running.
+	 *
+	 * @param pvs
+	 */
+	public void setPvs(boolean pvs) {
+		this.search.setPvs(pvs);
+	}
+
+	/**
+	 * Sets how many captures the replies are searched past the horizon. Only
+	 * call this while no search is running.
+	 *
+	 * @param quiescence
+	 *            - or 0 for no quiescence search
+	 */
+	public void setQuiescence(int quiescence) {
+		this.search.setQuiescence(quiescence);
+	}
+
+	/**
+	 * Turns late move reductions, futility pruning and null move pruning on or
+	 * off for the replies searched. Only call this while no search is running.
+	 *
+	 * @param lateMoveReductions
+	 * @param futilityPruning
+	 * @param nullMovePruning
+	 */
+	public void setSelectiveSearch(boolean lateMoveReductions, boolean futilityPruning, boolean nullMovePruning) {
+		this.search.setLateMoveReductions(lateMoveReductions);
+		this.search.setFutilityPruning(futilityPruning);
+		this.search.setNullMovePruning(nullMovePruning);
+	}
+
+	/**
+	 * Starts searching the replies to our last move in the background,
+	 * stopping any search already running
+	 *
+	 * @param boardState
+	 *            - the position with the opponent to move
+	 */
+	public void start(BohnenspielBoardState boardState) {
+		stop();
+		this.results.clear();
+		MutableBoardState state = new MutableBoardState(boardState);
+
+		// the reply our own search expected, if it is in the table
+		long entry = this.table.probe(state.getHashKey());
+		int expected = entry == 0 ? TranspositionTable.NO_MOVE : TranspositionTable.getMove(entry);
+
+		final List<MutableBoardState> replies = new ArrayList<MutableBoardState>();
+		boolean foundExpected = false;
+		int[] moves = new int[MutableBoardState.MAX_MOVES];
+		int numMoves = state.getLegalMoves(moves);
+		for (int i = 0; i < numMoves; i++) {
+			MutableBoardState reply = new MutableBoardState(state);
+			reply.apply(moves[i]);
+			if (reply.gameOver()) {
+				continue;
+			}
+			if (moves[i] == expected) {
+				replies.add(0, reply);
+				foundExpected = true;
+			} else {
+				replies.add(reply);
+			}
+		}
+
+		final int lead = foundExpected ? EXPECTED_LEAD : 0;
+		this.search.setStopped(false);
+		this.task = this.thread.submit(new Runnable() {
+			public void run() {
+				ponder(replies, lead);
+			}
+		});
+	}
+
+	/**
+	 * Searches the positions one move deeper at a time in turn, until every
+	 * one is finished or the search is stopped
+	 *
+	 * @param replies
+	 * @param lead
+	 *            - how much deeper than the others to search the first
+	 *            position
+	 */
+	private void ponder(List<MutableBoardState> replies, int lead) {
+		boolean[] finished = new boolean[replies.size()];
+		for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+			boolean searched = false;
+			for (int i = 0; i < replies.size(); i++) {
+				if (finished[i]) {
+					continue;
+				}
+				MutableBoardState reply = replies.get(i);
+				MinimaxResponse mresp = this.search.ponderDecision(reply, Math.min(MAX_DEPTH,
+						i == 0 ? depth + lead : depth));
+				if (mresp == null) {
+					// stopped
+					return;
+				}
+				this.results.put(reply.getHashKey(), mresp);
+				// searching deeper will not change a line seen to the end or a
+				// position where every move loses
+				finished[i] = mresp.getFullSimulation() || mresp.getMove() == null;
+				searched = true;
+			}
+			if (!searched) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Stops the background search, if there is one, and waits for it to
+	 * finish. Whatever it found stays in the table.
+	 */
+	public void stop() {
+		if (this.task == null) {
+			return;
+		}
+		this.search.setStopped(true);
+		try {
+			this.task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		this.task = null;
+	}
+
+	/**
+	 * Stops the background search and returns the deepest result it finished
+	 * for the given position
+	 *
+	 * @param boardState
+	 *            - the position after the opponent's reply
+	 * @return the result, or null if the position was not searched
+	 */
+	public MinimaxResponse getResult(BohnenspielBoardState boardState) {
+		stop();
+		return this.results.get(new MutableBoardState(boardState).getHashKey());
+	}
+
+	/**
+	 * Stops the background thread. The ponderer cannot be used afterwards.
+	 */
+	public void shutdown() {
+		stop();
+		this.thread.shutdownNow();
+	}
+
+}
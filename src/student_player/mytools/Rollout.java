@@ -0,0 +1,72 @@
+package student_player.mytools;
+
+/**
+ * Plays uniformly random moves to the end of the game for Monte Carlo tree
+ * search. Each instance has its own xorshift generator and move buffer, so
+ * a rollout allocates nothing and threads can each have their own.
+ *
+ * @author kstricks
+ *
+ */
+final class Rollout {
+
+	private final int[] moveBuffer = new int[MutableBoardState.MAX_MOVES];
+	// state of the xorshift generator
+	private long random;
+
+	Rollout(long seed) {
+		setSeed(seed);
+	}
+
+	void setSeed(long seed) {
+		// xorshift gets stuck at zero
+		this.random = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+	}
+
+	/**
+	 * Plays random moves from the given state to the end of the game
+	 *
+	 * @param state
+	 *            - modified in place
+	 * @return the winner, or BohnenspielBoardState.DRAW
+	 */
+	int play(PackedBoardState state) {
+		while (!state.gameOver()) {
+			int numMoves = state.getLegalMoves(this.moveBuffer);
+			if (numMoves == 0) {
+				// the player to move is stuck, and so has lost
+				return 1 - state.getTurnPlayer();
+			}
+			state.apply(this.moveBuffer[nextInt(numMoves)]);
+		}
+		return state.getWinner();
+	}
+
+	/**
+	 * Returns a pseudorandom int from 0 (inclusive) to bound (exclusive)
+	 */
+	int nextInt(int bound) {
+		long x = this.random;
+		x ^= x << 13;
+		x ^= x >>> 7;
+		x ^= x << 17;
+		this.random = x;
+		return (int) ((x >>> 33) % bound);
+	}
+
+	/**
+	 * Derives a different seed for each of several generators from one seed,
+	 * so that they do not all play the same rollouts
+	 *
+	 * @param seed
+	 * @param index
+	 * @return
+	 */
+	static long seed(long seed, int index) {
+		long x = seed + index * 0x9E3779B97F4A7C15L;
+		x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+		x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+		return x ^ (x >>> 31);
+	}
+
+}
@@ -0,0 +1,20 @@
+package student_player.mytools;
+
+/**
+ * Utility function 1. The more beans we have on our side, the more control we
+ * have, and the more likely it is that our opponent can't make a move. Thus,
+ * we might want to factor in the number of beans on either side.
+ * 
+ * @author kstricks
+ *
+ */
+public final class ScoreAndBeanDifference implements Evaluator {
+
+	@Override
+	public int evaluate(MutableBoardState boardState, int player) {
+		int myBeans = boardState.getSeedsOnSide(player);
+		int yourBeans = boardState.getSeedsOnSide(1 - player);
+		return (boardState.getScore(player) - boardState.getScore(1 - player)) + (myBeans - yourBeans);
+	}
+
+}
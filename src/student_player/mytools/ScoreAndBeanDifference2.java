@@ -0,0 +1,20 @@
+package student_player.mytools;
+
+/**
+ * Utility function 2. Same as ScoreAndBeanDifference except we don't value
+ * bean difference as highly.
+ * 
+ * @author kstricks
+ *
+ */
+public final class ScoreAndBeanDifference2 implements Evaluator {
+
+	@Override
+	public int evaluate(MutableBoardState boardState, int player) {
+		int myBeans = boardState.getSeedsOnSide(player);
+		int yourBeans = boardState.getSeedsOnSide(1 - player);
+		return (boardState.getScore(player) - boardState.getScore(1 - player))
+				+ (int) (0.5 * (myBeans - yourBeans));
+	}
+
+}
@@ -0,0 +1,24 @@
+package student_player.mytools;
+
+/**
+ * Utility function 3. Same as ScoreAndBeanDifference2 but now we also factor
+ * in the number of beans left. The fewer beans left, the closer we are to
+ * winning (assuming we are ahead).
+ * 
+ * @author kstricks
+ *
+ */
+public final class ScoreAndBeanDifferenceWithBeansLeft implements Evaluator {
+
+	private static final int MAX_BEANS = 72;
+
+	@Override
+	public int evaluate(MutableBoardState boardState, int player) {
+		int myBeans = boardState.getSeedsOnSide(player);
+		int yourBeans = boardState.getSeedsOnSide(1 - player);
+		return (MAX_BEANS - (myBeans + yourBeans))
+				* (boardState.getScore(player) - boardState.getScore(1 - player))
+				+ (int) (0.5 * (myBeans - yourBeans));
+	}
+
+}
@@ -0,0 +1,23 @@
+package student_player.mytools;
+
+/**
+ * Utility function 4. Similar to ScoreAndBeanDifferenceWithBeansLeft, but we
+ * group the bean difference with the score difference
+ * 
+ * @author kstricks
+ *
+ */
+public final class ScoreAndBeanDifferenceWithBeansLeft2 implements Evaluator {
+
+	private static final int MAX_BEANS = 72;
+
+	@Override
+	public int evaluate(MutableBoardState boardState, int player) {
+		int myBeans = boardState.getSeedsOnSide(player);
+		int yourBeans = boardState.getSeedsOnSide(1 - player);
+		return (MAX_BEANS - (myBeans + yourBeans))
+				* (3 * (boardState.getScore(player) - boardState.getScore(1 - player))
+						+ (myBeans - yourBeans));
+	}
+
+}
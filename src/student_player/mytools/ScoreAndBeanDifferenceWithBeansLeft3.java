@@ -0,0 +1,35 @@
+package student_player.mytools;
+
+/**
+ * Utility function 5. Similar to ScoreAndBeanDifferenceWithBeansLeft2, but we
+ * multiply by the ratio of total beans to beans left rather than total beans
+ * used up
+ * 
+ * @author kstricks
+ *
+ */
+public final class ScoreAndBeanDifferenceWithBeansLeft3 implements Evaluator {
+
+	private static final int MAX_BEANS = 72;
+
+	@Override
+	public int evaluate(MutableBoardState boardState, int player) {
+		int myBeans = boardState.getSeedsOnSide(player);
+		int yourBeans = boardState.getSeedsOnSide(1 - player);
+		return (MAX_BEANS / Math.max(myBeans + yourBeans, 1))
+				* (3 * (boardState.getScore(player) - boardState.getScore(1 - player))
+						+ (myBeans - yourBeans));
+	}
+
+	/**
+	 * The capture fixes the number of beans left and the score difference,
+	 * and at best leaves every bean on the player's side
+	 */
+	@Override
+	public int getCaptureBound(MutableBoardState boardState, int player, int seeds) {
+		int beansLeft = boardState.getSeedsLeft() - seeds;
+		int scoreDifference = boardState.getScore(player) - boardState.getScore(1 - player) + seeds;
+		return (MAX_BEANS / Math.max(beansLeft, 1)) * (3 * scoreDifference + beansLeft);
+	}
+
+}
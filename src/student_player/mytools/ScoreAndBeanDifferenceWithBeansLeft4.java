@@ -0,0 +1,23 @@
+package student_player.mytools;
+
+/**
+ * Utility function 6. Similar to ScoreAndBeanDifferenceWithBeansLeft2 except
+ * we now multiply the score difference by 2
+ * 
+ * @author kstricks
+ *
+ */
+public final class ScoreAndBeanDifferenceWithBeansLeft4 implements Evaluator {
+
+	private static final int MAX_BEANS = 72;
+
+	@Override
+	public int evaluate(MutableBoardState boardState, int player) {
+		int myBeans = boardState.getSeedsOnSide(player);
+		int yourBeans = boardState.getSeedsOnSide(1 - player);
+		return (MAX_BEANS - (myBeans + yourBeans))
+				* (2 * (boardState.getScore(player) - boardState.getScore(1 - player))
+						+ (int) (0.5 * (myBeans - yourBeans)));
+	}
+
+}
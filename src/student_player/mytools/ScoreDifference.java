@@ -0,0 +1,21 @@
+package student_player.mytools;
+
+/**
+ * Utility function 0: the difference in score between the two players
+ * 
+ * @author kstricks
+ *
+ */
+public final class ScoreDifference implements Evaluator {
+
+	@Override
+	public int evaluate(MutableBoardState boardState, int player) {
+		return boardState.getScore(player) - boardState.getScore(1 - player);
+	}
+
+	@Override
+	public int getCaptureBound(MutableBoardState boardState, int player, int seeds) {
+		return evaluate(boardState, player) + seeds;
+	}
+
+}
@@ -0,0 +1,22 @@
+package student_player.mytools;
+
+/**
+ * Utility function 7. Same as ScoreAndBeanDifferenceWithBeansLeft, but we
+ * don't consider the bean difference
+ * 
+ * @author kstricks
+ *
+ */
+public final class ScoreDifferenceWithBeansLeft implements Evaluator {
+
+	private static final int MAX_BEANS = 72;
+
+	@Override
+	public int evaluate(MutableBoardState boardState, int player) {
+		int myBeans = boardState.getSeedsOnSide(player);
+		int yourBeans = boardState.getSeedsOnSide(1 - player);
+		return (MAX_BEANS - (myBeans + yourBeans))
+				* (boardState.getScore(player) - boardState.getScore(1 - player));
+	}
+
+}
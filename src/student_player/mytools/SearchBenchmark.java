@@ -0,0 +1,211 @@
+package student_player.mytools;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import bohnenspiel.BohnenspielBoardState;
+import bohnenspiel.BohnenspielMove;
+
+/**
+ * Searches a fixed suite of positions to a fixed depth with different search
+ * configurations and prints the nodes searched and the time taken by each, so
+ * that search changes can be compared on equal terms, along with the share of
+ * cutoffs made by the first move, the transposition table hit rate and the
+ * estimated time spent generating moves, making moves and evaluating.
+ *
+ * Each position is also searched one move shallower, untimed, and the median
+ * difference between the two scores is printed as the swing; the median,
+ * since a few positions near the end of the game, where the evaluation is
+ * scaled up by the few beans left, would swamp a mean. The less the
+ * score of a position swings from one depth to the next, the more the search
+ * can be trusted to have judged it rather than to have stopped in the middle
+ * of an exchange of captures.
+ *
+ * From the root directory of the project, run
+ *
+ * <pre>
+ *     java -cp bin student_player.mytools.SearchBenchmark [depth] [positions] [evaluator]
+ * </pre>
+ *
+ * where evaluator is either the number of a utility function or the path of a
+ * weights file for LinearEvaluator.
+ *
+ * @author kstricks
+ *
+ */
+public class SearchBenchmark {
+
+	private static final int DEFAULT_DEPTH = 9;
+	private static final int DEFAULT_POSITIONS = 40;
+	// the same seed every run, so every run searches the same positions
+	private static final long SUITE_SEED = 424;
+	// the utility function to search with if none is given
+	private static final int UTILITY_FUNCTION = 5;
+	// small enough to clear quickly between positions
+	private static final int TABLE_SIZE_MB = 8;
+
+	// half width of the aspiration window in the configurations using one
+	private static final int ASPIRATION_WINDOW = PlayerConfig.Parameter.ASPIRATION_WINDOW.defaultValue;
+	// the most captures searched past the horizon in the configurations using
+	// quiescence search
+	private static final int QUIESCENCE = PlayerConfig.Parameter.QUIESCENCE.defaultValue;
+
+	// configurations searching by deepening search every depth up to the
+	// given one in turn, as a timed search would
+	private static final String[] CONFIGURATIONS = { "plain", "table", "ordering", "table+ordering",
+			"table+ordering+pvs", "table+ordering+quiescence", "table+ordering+pvs+quiescence", "deepening",
+			"deepening+pvs", "deepening+aspiration", "deepening+pvs+aspiration", "deepening+pvs+aspiration+quiescence",
+			"table+ordering+mtdf", "deepening+mtdf", "deepening+pvs+mtdf", "deepening+pvs+mtdf+quiescence",
+			"deepening+pvs+aspiration+quiescence+futility", "deepening+pvs+aspiration+quiescence+lmr",
+			"deepening+pvs+aspiration+quiescence+lmr+futility", "deepening+pvs+aspiration+quiescence+null",
+			"deepening+pvs+aspiration+quiescence+lmr+futility+null" };
+
+	public static void main(String[] args) throws IOException {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+		int numPositions = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_POSITIONS;
+		Evaluator evaluator = args.length > 2 ? parseEvaluator(args[2])
+				: Evaluator.forUtilityFunction(UTILITY_FUNCTION);
+
+		ArrayList<BohnenspielBoardState> positions = positionSuite(numPositions, SUITE_SEED);
+		TranspositionTable table = new TranspositionTable(TABLE_SIZE_MB);
+
+		System.out.println("depth " + depth + ", " + positions.size() + " positions, "
+				+ evaluator.getClass().getSimpleName());
+		System.out.println(String.format("%-54s %12s %10s %8s %10s %7s %7s %9s %9s %8s %8s %7s %7s %7s %8s",
+				"configuration", "nodes", "qnodes", "ms", "nodes/ms", "first%", "ttHit%", "research", "reduced",
+				"futile", "nullCut", "genMs", "applyMs", "evalMs", "swing"));
+		for (String configuration : CONFIGURATIONS) {
+			SearchStats stats = new SearchStats();
+			long nanos = 0;
+			ArrayList<Integer> swings = new ArrayList<Integer>();
+			for (BohnenspielBoardState position : positions) {
+				table.clear();
+				AlphaBetaMinimax search = createSearch(configuration, position.getTurnPlayer(), evaluator, table);
+				long start = System.nanoTime();
+				MinimaxResponse mresp = search(search, configuration, position, depth);
+				nanos += System.nanoTime() - start;
+				stats.add(mresp.getStats());
+				int score = search.getRootScore();
+
+				if (depth > 1) {
+					table.clear();
+					search = createSearch(configuration, position.getTurnPlayer(), evaluator, table);
+					search(search, configuration, position, depth - 1);
+					int shallowScore = search.getRootScore();
+					if (!isWinOrLoss(score) && !isWinOrLoss(shallowScore)) {
+						swings.add(Math.abs(score - shallowScore));
+					}
+				}
+			}
+			long millis = Math.max(1, nanos / 1000000);
+			long nodes = stats.getNodes();
+			double hitRate = stats.getTableProbes() == 0 ? 0 : stats.getTableHits() / (double) stats.getTableProbes();
+			System.out.println(String.format("%-54s %12d %10d %8d %10d %7.1f %7.1f %9d %9d %8d %8d %7d %7d %7d %8.1f",
+					configuration, nodes, stats.getQuiescenceNodes(), millis, nodes / millis,
+					100 * stats.getFirstMoveCutoffRate(), 100 * hitRate, stats.getResearches(),
+					stats.getReductions(), stats.getFutilityPrunes(), stats.getNullMoveCutoffs(),
+					stats.getMoveGenerationNanos() / 1000000, stats.getApplyNanos() / 1000000,
+					stats.getEvaluationNanos() / 1000000, median(swings)));
+		}
+	}
+
+	private static MinimaxResponse search(AlphaBetaMinimax search, String configuration,
+			BohnenspielBoardState position, int depth) {
+		return configuration.contains("deepening") ? search.deepeningDecision(new MutableBoardState(position), depth)
+				: search.minimaxDecision(position, depth);
+	}
+
+	private static boolean isWinOrLoss(int score) {
+		return score == Integer.MAX_VALUE || score == Integer.MIN_VALUE;
+	}
+
+	private static double median(ArrayList<Integer> values) {
+		if (values.isEmpty()) {
+			return 0;
+		}
+		Collections.sort(values);
+		int middle = values.size() / 2;
+		return values.size() % 2 == 1 ? values.get(middle) : (values.get(middle - 1) + values.get(middle)) / 2.0;
+	}
+
+	/**
+	 * Creates a search with the named configuration
+	 *
+	 * @param configuration
+	 * @param player
+	 * @param evaluator
+	 * @param table
+	 *            - an empty table for configurations that use one
+	 * @return
+	 */
+	private static AlphaBetaMinimax createSearch(String configuration, int player, Evaluator evaluator,
+			TranspositionTable table) {
+		// deepening relies on the table and ordering to carry results from one
+		// depth to the next
+		boolean deepening = configuration.contains("deepening");
+		boolean useTable = deepening || configuration.contains("table");
+		AlphaBetaMinimax search = new AlphaBetaMinimax(player, evaluator, useTable ? table : null);
+		if (deepening || configuration.contains("ordering")) {
+			search.setMoveOrdering(new MoveOrdering());
+		}
+		search.setPvs(configuration.contains("pvs"));
+		if (configuration.contains("aspiration")) {
+			search.setAspirationWindow(ASPIRATION_WINDOW);
+		}
+		if (configuration.contains("quiescence")) {
+			search.setQuiescence(QUIESCENCE);
+		}
+		search.setMtdf(configuration.contains("mtdf"));
+		search.setLateMoveReductions(configuration.contains("lmr"));
+		search.setFutilityPruning(configuration.contains("futility"));
+		search.setNullMovePruning(configuration.contains("null"));
+		return search;
+	}
+
+	/**
+	 * Returns the evaluator for a utility function number, or read from a
+	 * weights file
+	 *
+	 * @param arg
+	 * @return
+	 * @throws IOException
+	 */
+	static Evaluator parseEvaluator(String arg) throws IOException {
+		try {
+			return Evaluator.forUtilityFunction(Integer.parseInt(arg));
+		} catch (NumberFormatException e) {
+			return LinearEvaluator.open(arg);
+		}
+	}
+
+	/**
+	 * Returns positions reached by playing random moves from the start of the
+	 * game, skipping any where the game is already over
+	 *
+	 * @param count
+	 * @param seed
+	 * @return
+	 */
+	public static ArrayList<BohnenspielBoardState> positionSuite(int count, long seed) {
+		Random rand = new Random(seed);
+		ArrayList<BohnenspielBoardState> positions = new ArrayList<BohnenspielBoardState>();
+		while (positions.size() < count) {
+			BohnenspielBoardState boardState = new BohnenspielBoardState();
+			int plies = 4 + rand.nextInt(56);
+			for (int i = 0; i < plies && !boardState.gameOver(); i++) {
+				ArrayList<BohnenspielMove> moves = boardState.getLegalMoves();
+				if (moves.isEmpty()) {
+					break;
+				}
+				boardState.move(moves.get(rand.nextInt(moves.size())));
+			}
+			if (!boardState.gameOver() && !boardState.getLegalMoves().isEmpty()) {
+				positions.add(boardState);
+			}
+		}
+		return positions;
+	}
+
+}
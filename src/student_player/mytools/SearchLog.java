@@ -0,0 +1,68 @@
+package student_player.mytools;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import bohnenspiel.BohnenspielMove;
+
+/**
+ * Appends the search statistics of every move a player searches to a file,
+ * one JSON object per line, so that games can be looked at move by move
+ * afterwards. For example:
+ *
+ * <pre>
+ * {"turn":12,"player":0,"move":3,"depth":11,"nodes":1843210,...}
+ * </pre>
+ *
+ * where move is the pit played, or -1 for a skip. The rest of the fields are
+ * those of SearchStats.toJson. Lines are flushed as they are written, so the
+ * log is complete even if the player is killed at the end of the game.
+ *
+ * @author kstricks
+ *
+ */
+public final class SearchLog {
+
+	public static final String DEFAULT_PATH = "logs/search.jsonl";
+
+	private final PrintWriter out;
+
+	private SearchLog(PrintWriter out) {
+		this.out = out;
+	}
+
+	/**
+	 * Opens a log for appending, creating it if it does not exist
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static SearchLog open(String path) throws IOException {
+		return new SearchLog(new PrintWriter(new FileWriter(path, true)));
+	}
+
+	/**
+	 * Writes one line for a searched move
+	 *
+	 * @param turn
+	 *            - the turn number of the position searched
+	 * @param player
+	 * @param move
+	 *            - the move played, or null if there was none
+	 * @param stats
+	 */
+	public void write(int turn, int player, BohnenspielMove move, SearchStats stats) {
+		int pit = move == null || move.getMoveType() == BohnenspielMove.MoveType.SKIP ? -1 : move.getPit();
+		// splice the move into the statistics' own object
+		this.out.println("{\"turn\":" + turn + ",\"player\":" + player + ",\"move\":" + pit + ","
+				+ stats.toJson().substring(1));
+		this.out.flush();
+	}
+
+	public void close() {
+		this.out.close();
+	}
+
+}
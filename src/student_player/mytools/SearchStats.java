@@ -0,0 +1,361 @@
+package student_player.mytools;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Counts what a search did, so that searches can be compared and tuned on
+ * what they actually cost rather than on how long a move took.
+ *
+ * Every search object owns one of these and is only ever run by one thread
+ * at a time, so the counters are plain longs incremented in place, with no
+ * synchronization. Searches that run on several threads add their threads'
+ * counts together once the threads have stopped.
+ *
+ * Reading System.nanoTime() around every move generation, move and
+ * evaluation would cost more than the work itself, so only one in every
+ * TIMING_SAMPLE_MASK + 1 of each is timed and the time reported is scaled
+ * up from those. The clock itself takes tens of nanoseconds to read, about
+ * as long as making a move, so the time it takes is measured once and taken
+ * off every sample.
+ *
+ * @author kstricks
+ *
+ */
+public final class SearchStats {
+
+	// one in every TIMING_SAMPLE_MASK + 1 operations of each kind is timed
+	static final long TIMING_SAMPLE_MASK = 0x3F;
+	// the time in nanoseconds between two back-to-back reads of the clock
+	private static final long CLOCK_OVERHEAD = measureClockOverhead();
+	// a sample taking longer than this was interrupted, by the scheduler or
+	// the garbage collector, and is counted as taking this long so that one
+	// interruption is not scaled up into milliseconds
+	private static final long MAX_SAMPLE_NANOS = 10000;
+
+	// the counters are incremented directly by the searches in this package
+
+	// positions visited, and those of them visited by quiescence search
+	long nodes;
+	long quiescenceNodes;
+	// positions scored by the evaluator at the search horizon
+	long leafEvaluations;
+	// positions whose legal moves were generated
+	long moveGenerations;
+	// moves made
+	long applies;
+	// beta cutoffs, and those caused by the first move searched
+	long cutoffs;
+	long firstMoveCutoffs;
+	// moves and roots searched again with a wider window after a null or
+	// aspiration window search, or to the full depth after a reduced one
+	long researches;
+	// moves searched to a reduced depth by late move reductions, and moves
+	// not made at all by futility pruning
+	long reductions;
+	long futilityPrunes;
+	// skips searched by null move pruning, and those that cut off the node
+	long nullMoves;
+	long nullMoveCutoffs;
+	// transposition table lookups, lookups that found the position, and
+	// results stored
+	long tableProbes;
+	long tableHits;
+	long tableStores;
+	// time in nanoseconds spent on the sampled operations of each kind
+	long moveGenerationNanos;
+	long applyNanos;
+	long evaluationNanos;
+
+	// the deepest completed iteration, and the nodes of the last two
+	// completed iterations, the latest first
+	private int depth;
+	private long lastIterationNodes;
+	private long previousIterationNodes;
+	// System.nanoTime() at which the search started, and how long it took
+	private long start;
+	private long elapsedNanos;
+
+	public SearchStats() {
+	}
+
+	/**
+	 * Creates a copy of another search's counts
+	 *
+	 * @param stats
+	 */
+	public SearchStats(SearchStats stats) {
+		this.nodes = stats.nodes;
+		this.quiescenceNodes = stats.quiescenceNodes;
+		this.leafEvaluations = stats.leafEvaluations;
+		this.moveGenerations = stats.moveGenerations;
+		this.applies = stats.applies;
+		this.cutoffs = stats.cutoffs;
+		this.firstMoveCutoffs = stats.firstMoveCutoffs;
+		this.researches = stats.researches;
+		this.reductions = stats.reductions;
+		this.futilityPrunes = stats.futilityPrunes;
+		this.nullMoves = stats.nullMoves;
+		this.nullMoveCutoffs = stats.nullMoveCutoffs;
+		this.tableProbes = stats.tableProbes;
+		this.tableHits = stats.tableHits;
+		this.tableStores = stats.tableStores;
+		this.moveGenerationNanos = stats.moveGenerationNanos;
+		this.applyNanos = stats.applyNanos;
+		this.evaluationNanos = stats.evaluationNanos;
+		this.depth = stats.depth;
+		this.lastIterationNodes = stats.lastIterationNodes;
+		this.previousIterationNodes = stats.previousIterationNodes;
+		this.start = stats.start;
+		this.elapsedNanos = stats.elapsedNanos;
+	}
+
+	/**
+	 * Creates the counts of a search that only counted the nodes it visited
+	 *
+	 * @param depth
+	 * @param nodes
+	 */
+	public SearchStats(int depth, long nodes) {
+		this.depth = depth;
+		this.nodes = nodes;
+	}
+
+	/**
+	 * Clears the counts and starts timing a new search
+	 */
+	void start() {
+		this.nodes = 0;
+		this.quiescenceNodes = 0;
+		this.leafEvaluations = 0;
+		this.moveGenerations = 0;
+		this.applies = 0;
+		this.cutoffs = 0;
+		this.firstMoveCutoffs = 0;
+		this.researches = 0;
+		this.reductions = 0;
+		this.futilityPrunes = 0;
+		this.nullMoves = 0;
+		this.nullMoveCutoffs = 0;
+		this.tableProbes = 0;
+		this.tableHits = 0;
+		this.tableStores = 0;
+		this.moveGenerationNanos = 0;
+		this.applyNanos = 0;
+		this.evaluationNanos = 0;
+		this.depth = 0;
+		this.lastIterationNodes = 0;
+		this.previousIterationNodes = 0;
+		this.start = System.nanoTime();
+		this.elapsedNanos = 0;
+	}
+
+	/**
+	 * Records a completed iteration of iterative deepening
+	 *
+	 * @param depth
+	 * @param nodes
+	 *            - the nodes visited by the iteration alone
+	 */
+	void iterationDone(int depth, long nodes) {
+		this.depth = depth;
+		this.previousIterationNodes = this.lastIterationNodes;
+		this.lastIterationNodes = nodes;
+	}
+
+	/**
+	 * Sets the depth reached by a search that is not deepened one iteration at
+	 * a time by this object
+	 *
+	 * @param depth
+	 */
+	void setDepth(int depth) {
+		this.depth = depth;
+	}
+
+	/**
+	 * Stops timing the search
+	 */
+	void stop() {
+		this.elapsedNanos = System.nanoTime() - this.start;
+	}
+
+	/**
+	 * Adds the counts of a search run alongside this one, such as another
+	 * thread's. The depth, branching factor and time are left as they are.
+	 *
+	 * @param stats
+	 */
+	void add(SearchStats stats) {
+		this.nodes += stats.nodes;
+		this.quiescenceNodes += stats.quiescenceNodes;
+		this.leafEvaluations += stats.leafEvaluations;
+		this.moveGenerations += stats.moveGenerations;
+		this.applies += stats.applies;
+		this.cutoffs += stats.cutoffs;
+		this.firstMoveCutoffs += stats.firstMoveCutoffs;
+		this.researches += stats.researches;
+		this.reductions += stats.reductions;
+		this.futilityPrunes += stats.futilityPrunes;
+		this.nullMoves += stats.nullMoves;
+		this.nullMoveCutoffs += stats.nullMoveCutoffs;
+		this.tableProbes += stats.tableProbes;
+		this.tableHits += stats.tableHits;
+		this.tableStores += stats.tableStores;
+		this.moveGenerationNanos += stats.moveGenerationNanos;
+		this.applyNanos += stats.applyNanos;
+		this.evaluationNanos += stats.evaluationNanos;
+	}
+
+	/**
+	 * Returns the time since start of a sampled operation, less the time it
+	 * takes to read the clock and capped at MAX_SAMPLE_NANOS
+	 *
+	 * @param start
+	 *            - System.nanoTime() before the operation
+	 * @return
+	 */
+	static long timeSince(long start) {
+		return Math.min(MAX_SAMPLE_NANOS, Math.max(0, System.nanoTime() - start - CLOCK_OVERHEAD));
+	}
+
+	/**
+	 * @return the median time between two back-to-back reads of the clock
+	 */
+	private static long measureClockOverhead() {
+		long[] samples = new long[1001];
+		for (int i = 0; i < samples.length; i++) {
+			long start = System.nanoTime();
+			samples[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(samples);
+		return samples[samples.length / 2];
+	}
+
+	public long getNodes() {
+		return this.nodes;
+	}
+
+	public long getQuiescenceNodes() {
+		return this.quiescenceNodes;
+	}
+
+	public long getLeafEvaluations() {
+		return this.leafEvaluations;
+	}
+
+	public int getDepth() {
+		return this.depth;
+	}
+
+	public long getElapsedNanos() {
+		return this.elapsedNanos;
+	}
+
+	/**
+	 * @return the nodes visited per second, or 0 if the search was not timed
+	 */
+	public long getNodesPerSecond() {
+		return this.elapsedNanos == 0 ? 0 : (long) (this.nodes * 1e9 / this.elapsedNanos);
+	}
+
+	/**
+	 * Returns the effective branching factor: the ratio of the nodes visited
+	 * by the last completed iteration to those visited by the one before
+	 *
+	 * @return the ratio, or 0 if fewer than two iterations were completed
+	 */
+	public double getBranchingFactor() {
+		return this.previousIterationNodes == 0 ? 0 : this.lastIterationNodes / (double) this.previousIterationNodes;
+	}
+
+	/**
+	 * @return the fraction of beta cutoffs caused by the first move searched,
+	 *         a measure of how good the move ordering is
+	 */
+	public double getFirstMoveCutoffRate() {
+		return this.cutoffs == 0 ? 0 : this.firstMoveCutoffs / (double) this.cutoffs;
+	}
+
+	public long getCutoffs() {
+		return this.cutoffs;
+	}
+
+	public long getResearches() {
+		return this.researches;
+	}
+
+	public long getReductions() {
+		return this.reductions;
+	}
+
+	public long getFutilityPrunes() {
+		return this.futilityPrunes;
+	}
+
+	public long getNullMoves() {
+		return this.nullMoves;
+	}
+
+	public long getNullMoveCutoffs() {
+		return this.nullMoveCutoffs;
+	}
+
+	public long getTableProbes() {
+		return this.tableProbes;
+	}
+
+	public long getTableHits() {
+		return this.tableHits;
+	}
+
+	public long getTableStores() {
+		return this.tableStores;
+	}
+
+	/**
+	 * @return the estimated time in nanoseconds spent generating moves
+	 */
+	public long getMoveGenerationNanos() {
+		return this.moveGenerationNanos * (TIMING_SAMPLE_MASK + 1);
+	}
+
+	/**
+	 * @return the estimated time in nanoseconds spent making moves
+	 */
+	public long getApplyNanos() {
+		return this.applyNanos * (TIMING_SAMPLE_MASK + 1);
+	}
+
+	/**
+	 * @return the estimated time in nanoseconds spent evaluating positions
+	 */
+	public long getEvaluationNanos() {
+		return this.evaluationNanos * (TIMING_SAMPLE_MASK + 1);
+	}
+
+	/**
+	 * Returns the counts as a single line JSON object, with times in
+	 * microseconds
+	 *
+	 * @return
+	 */
+	public String toJson() {
+		return String.format(Locale.ROOT,
+				"{\"depth\":%d,\"nodes\":%d,\"qnodes\":%d,\"leaves\":%d,\"nps\":%d,\"us\":%d,\"ebf\":%.2f,"
+						+ "\"cutoffs\":%d,\"firstCutoffRate\":%.3f,\"researches\":%d,\"reductions\":%d,"
+						+ "\"futile\":%d,\"nullMoves\":%d,\"nullCutoffs\":%d,\"ttProbes\":%d,\"ttHits\":%d,"
+						+ "\"ttStores\":%d,\"genUs\":%d,\"applyUs\":%d,\"evalUs\":%d}",
+				this.depth, this.nodes, this.quiescenceNodes, this.leafEvaluations, getNodesPerSecond(),
+				this.elapsedNanos / 1000, getBranchingFactor(), this.cutoffs, getFirstMoveCutoffRate(),
+				this.researches, this.reductions, this.futilityPrunes, this.nullMoves, this.nullMoveCutoffs,
+				this.tableProbes, this.tableHits, this.tableStores, getMoveGenerationNanos() / 1000,
+				getApplyNanos() / 1000, getEvaluationNanos() / 1000);
+	}
+
+	@Override
+	public String toString() {
+		return toJson();
+	}
+
+}
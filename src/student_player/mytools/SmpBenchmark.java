@@ -0,0 +1,89 @@
+package student_player.mytools;
+
+import java.util.ArrayList;
+
+import bohnenspiel.BohnenspielBoardState;
+
+/**
+ * Searches a fixed suite of positions for a fixed time with LazySmpMinimax and
+ * with ParallelAlphaBetaMinimax on 1, 2, 4, ... threads and prints the
+ * average depth reached and the nodes searched with each thread count.
+ *
+ * From the root directory of the project, run
+ *
+ * <pre>
+ *     java -cp bin student_player.mytools.SmpBenchmark [millis] [positions] [maxThreads]
+ * </pre>
+ *
+ * @author kstricks
+ *
+ */
+public class SmpBenchmark {
+
+	// the time a player has for a move, less the buffer StudentPlayer leaves
+	private static final int DEFAULT_MILLIS = 600;
+	private static final int DEFAULT_POSITIONS = 20;
+	// the same suite SearchBenchmark uses
+	private static final long SUITE_SEED = 424;
+	private static final int UTILITY_FUNCTION = 5;
+
+	public static void main(String[] args) {
+		int millis = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MILLIS;
+		int numPositions = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_POSITIONS;
+		int maxThreads = args.length > 2 ? Integer.parseInt(args[2])
+				: Math.max(4, Runtime.getRuntime().availableProcessors());
+
+		ArrayList<BohnenspielBoardState> positions = SearchBenchmark.positionSuite(numPositions, SUITE_SEED);
+
+		System.out.println(millis + " ms per position, " + positions.size() + " positions, "
+				+ Runtime.getRuntime().availableProcessors() + " processors");
+		System.out.println(String.format("%-12s %-8s %10s %12s %10s", "search", "threads", "avg depth", "nodes",
+				"nodes/ms"));
+		for (boolean rootSplit : new boolean[] { false, true }) {
+			for (int threads = 1; threads <= maxThreads; threads *= 2) {
+				int totalDepth = 0;
+				long nodes = 0;
+				long start = System.nanoTime();
+				for (BohnenspielBoardState position : positions) {
+					MinimaxResponse mresp = search(position, rootSplit, threads, millis);
+					totalDepth += mresp.getDepth();
+					nodes += mresp.getNodes();
+				}
+				long elapsed = Math.max(1, (System.nanoTime() - start) / 1000000);
+				System.out.println(String.format("%-12s %-8d %10.2f %12d %10d", rootSplit ? "root split" : "lazy smp",
+						threads, (double) totalDepth / positions.size(), nodes, nodes / elapsed));
+			}
+		}
+	}
+
+	/**
+	 * Searches a position for the given time with a fresh table, so that
+	 * earlier positions do not help
+	 *
+	 * @param position
+	 * @param rootSplit
+	 *            - whether to search with ParallelAlphaBetaMinimax rather than
+	 *            LazySmpMinimax
+	 * @param threads
+	 * @param millis
+	 * @return
+	 */
+	private static MinimaxResponse search(BohnenspielBoardState position, boolean rootSplit, int threads,
+			int millis) {
+		BohnenspielBoardState boardState = (BohnenspielBoardState) position.clone();
+		long deadline = System.nanoTime() + millis * 1000000L;
+		if (rootSplit) {
+			ParallelAlphaBetaMinimax search = new ParallelAlphaBetaMinimax(position.getTurnPlayer(),
+					UTILITY_FUNCTION, threads, new TranspositionTable());
+			MinimaxResponse mresp = search.iterativeDeepeningDecision(boardState, deadline);
+			search.shutdown();
+			return mresp;
+		}
+		LazySmpMinimax search = new LazySmpMinimax(position.getTurnPlayer(), UTILITY_FUNCTION, threads,
+				new TranspositionTable());
+		MinimaxResponse mresp = search.iterativeDeepeningDecision(boardState, deadline);
+		search.shutdown();
+		return mresp;
+	}
+
+}
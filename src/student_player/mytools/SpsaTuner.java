@@ -0,0 +1,219 @@
+package student_player.mytools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import student_player.mytools.PlayerConfig.Parameter;
+
+/**
+ * Tunes PlayerConfig parameters by simultaneous perturbation stochastic
+ * approximation (SPSA). Each iteration moves every tuned parameter up or down
+ * at random by the same fraction of its range, giving two configurations, and
+ * plays StudentPlayer with one against StudentPlayer with the other. Every
+ * pair of games starts from the same random opening with the sides swapped.
+ * The result estimates the gradient of playing strength along the
+ * perturbation, and each parameter is stepped along it. Steps and
+ * perturbations shrink over the iterations with the usual gain sequences
+ * a / (A + k + 1)^0.602 and c / (k + 1)^0.101.
+ *
+ * Games are played in this process by Match.playGame, with the server's
+ * timeouts: a player loses if a move takes longer than Server.DEFAULT_TIMEOUT,
+ * or its first move longer than Server.FIRST_MOVE_TIMEOUT. The pairs of each
+ * iteration are played in parallel, one per thread. Moves are timed, so use
+ * no more threads than there are cores. Pondering is turned off in these games, since both
+ * players share the same cores, and the first move is given no longer than
+ * the others, so FIRST_MOVE_TIME cannot be tuned this way.
+ *
+ * The configuration is read from path, or the defaults if there is no file,
+ * and the tuned values are written back to it after every iteration.
+ *
+ * From the root directory of the project, run
+ *
+ * <pre>
+ *     java -cp bin student_player.mytools.SpsaTuner [iterations] [threads] [path] [PARAMETER ...]
+ * </pre>
+ *
+ * @author kstricks
+ *
+ */
+public class SpsaTuner {
+
+	private static final int DEFAULT_ITERATIONS = 100;
+	private static final Parameter[] DEFAULT_PARAMETERS = { Parameter.MAX_TIME, Parameter.BUFFER_TIME };
+	private static final long SEED = 424;
+
+	// exponents of the gain sequences
+	private static final double ALPHA = 0.602;
+	private static final double GAMMA = 0.101;
+	// the first perturbation, as a fraction of each parameter's range
+	private static final double FIRST_PERTURBATION = 0.1;
+	// the first step, as a fraction of each parameter's range, if every game
+	// of an iteration goes the same way
+	private static final double FIRST_STEP = 0.05;
+	// A, as a fraction of the number of iterations
+	private static final double STABILITY_FRACTION = 0.1;
+
+	private final PlayerConfig base;
+	private final Parameter[] parameters;
+	private final ExecutorService pool;
+	private final int numThreads;
+
+	// the tuned parameters, each as a fraction of its range
+	private final double[] theta;
+
+	private SpsaTuner(PlayerConfig base, Parameter[] parameters, int numThreads) {
+		this.base = new PlayerConfig(base);
+		this.parameters = parameters;
+		this.numThreads = numThreads;
+		this.theta = new double[parameters.length];
+		for (int i = 0; i < parameters.length; i++) {
+			Parameter parameter = parameters[i];
+			this.theta[i] = (base.get(parameter) - parameter.min) / (double) (parameter.max - parameter.min);
+		}
+		this.pool = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "spsa");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public static void main(String[] args) throws IOException {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+		int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		String path = args.length > 2 ? args[2] : PlayerConfig.DEFAULT_PATH;
+		Parameter[] parameters = DEFAULT_PARAMETERS;
+		if (args.length > 3) {
+			parameters = new Parameter[args.length - 3];
+			for (int i = 3; i < args.length; i++) {
+				parameters[i - 3] = Parameter.valueOf(args[i]);
+			}
+		}
+
+		PlayerConfig config = new File(path).exists() ? PlayerConfig.open(path) : new PlayerConfig();
+		SpsaTuner tuner = new SpsaTuner(config, parameters, numThreads);
+		System.out.println("tuning from " + tuner.current());
+		tuner.run(iterations, path);
+		tuner.pool.shutdown();
+	}
+
+	/**
+	 * Runs the given number of iterations, writing the configuration to path
+	 * after each
+	 *
+	 * @param iterations
+	 * @param path
+	 * @throws IOException
+	 */
+	private void run(int iterations, String path) throws IOException {
+		Random random = new Random(SEED);
+		double stability = STABILITY_FRACTION * iterations;
+		// a perfect result gives a gradient of 1 / c for each parameter
+		double a = FIRST_STEP * FIRST_PERTURBATION * Math.pow(stability + 1, ALPHA);
+
+		for (int k = 0; k < iterations; k++) {
+			double ak = a / Math.pow(stability + k + 1, ALPHA);
+			double ck = FIRST_PERTURBATION / Math.pow(k + 1, GAMMA);
+
+			int[] delta = new int[this.parameters.length];
+			double[] plus = new double[this.parameters.length];
+			double[] minus = new double[this.parameters.length];
+			for (int i = 0; i < this.parameters.length; i++) {
+				delta[i] = random.nextBoolean() ? 1 : -1;
+				plus[i] = this.theta[i] + ck * delta[i];
+				minus[i] = this.theta[i] - ck * delta[i];
+			}
+
+			int score = playPairs(Match.forGames(toConfig(plus)), Match.forGames(toConfig(minus)), random.nextLong());
+			int games = 2 * this.numThreads;
+			// from -1, every game lost by plus, to 1, every game won
+			double result = score / (double) games;
+			for (int i = 0; i < this.parameters.length; i++) {
+				double gradient = result / (2 * ck * delta[i]);
+				this.theta[i] = Math.min(1, Math.max(0, this.theta[i] + ak * gradient));
+			}
+
+			PlayerConfig current = current();
+			System.out.println("iteration " + k + ": plus scored " + score + " over " + games + " games, "
+					+ describe(current));
+			current.save(path, "SPSA, " + (k + 1) + " iterations");
+		}
+	}
+
+	/**
+	 * @return the base configuration with the tuned parameters set to theta
+	 */
+	private PlayerConfig current() {
+		return toConfig(this.theta);
+	}
+
+	private PlayerConfig toConfig(double[] fractions) {
+		PlayerConfig config = new PlayerConfig(this.base);
+		for (int i = 0; i < this.parameters.length; i++) {
+			Parameter parameter = this.parameters[i];
+			double fraction = Math.min(1, Math.max(0, fractions[i]));
+			config.set(parameter, (int) Math.round(parameter.min + fraction * (parameter.max - parameter.min)));
+		}
+		return config;
+	}
+
+	private String describe(PlayerConfig config) {
+		StringBuilder sb = new StringBuilder();
+		for (Parameter parameter : this.parameters) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(parameter.name()).append('=').append(config.get(parameter));
+		}
+		return sb.toString();
+	}
+
+	// =========================================================================
+	// Games
+	// =========================================================================
+
+	/**
+	 * Plays one pair of games per thread between two configurations
+	 *
+	 * @param plus
+	 * @param minus
+	 * @param seed
+	 * @return plus's wins less its losses
+	 */
+	private int playPairs(final PlayerConfig plus, final PlayerConfig minus, long seed) {
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		for (int pair = 0; pair < this.numThreads; pair++) {
+			final long pairSeed = Rollout.seed(seed, pair);
+			tasks.add(new Callable<Integer>() {
+				public Integer call() {
+					int first = Match.playGame(plus, minus, new Random(pairSeed));
+					int second = 2 - Match.playGame(minus, plus, new Random(pairSeed));
+					return first + second - 2;
+				}
+			});
+		}
+		int score = 0;
+		try {
+			for (Future<Integer> future : this.pool.invokeAll(tasks)) {
+				score += future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		return score;
+	}
+
+}
@@ -0,0 +1,359 @@
+package student_player.mytools;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes an EndgameTablebase by retrograde analysis. Captures only ever take
+ * beans off the board, so the positions with n beans on the board can be
+ * solved once every position with fewer beans is known: a move from one of
+ * them either captures and leaves a solved position, ends the game, or moves
+ * to another position with n beans. The last kind of move can go round in
+ * circles, so each level is solved as a graph rather than by plain minimax.
+ *
+ * Within a level, values are worked out from player 0's point of view. For
+ * each threshold t from the highest margin down to 1, player 0 can force a
+ * margin of at least t from exactly the positions from which they can force
+ * their way to a move worth at least t, since going round in circles forever
+ * is worth 0. These sets only grow as t falls, so they are all computed in a
+ * single pass that remembers, for each position where player 1 moves, how
+ * many of their moves are already known to reach the set. Margins of 0 and
+ * below are worked out the same way from player 1's point of view.
+ *
+ * From the root directory of the project, run
+ *
+ * <pre>
+ *     java -Xmx1g -cp bin student_player.mytools.TablebaseGenerator [maxSeeds] [path]
+ * </pre>
+ *
+ * @author kstricks
+ *
+ */
+public class TablebaseGenerator {
+
+	// 1,336,616 bytes; each seed more roughly triples the size, and 8 seeds
+	// comes to 9,069,848, too close to the 10 MB allowed for data files
+	private static final int DEFAULT_MAX_SEEDS = 6;
+	// keeps the file well within what a byte array can hold
+	private static final int MAX_SEEDS = 12;
+
+	private static final int PITS = 6;
+	private static final int AUX_STATES = EndgameTablebase.AUX_STATES;
+	private static final int FORCED_WIN = EndgameTablebase.FORCED_WIN;
+	private static final int FORCED_LOSS = EndgameTablebase.FORCED_LOSS;
+	// marks a move that stays on the same level rather than leaving it
+	private static final int NO_EXIT = Integer.MIN_VALUE;
+
+	private final int maxSeeds;
+	// values[seeds][index], from player 0's point of view
+	private final byte[][] values;
+
+	// scratch space for unpacking positions
+	private final int[][] pits = new int[2][PITS];
+	private final int[] zeros = new int[2];
+	private final int[] credit = new int[2];
+	private final int[] turnsToSkip = new int[2];
+	private final int[] moves = new int[MutableBoardState.MAX_MOVES];
+	private final int[] childMoves = new int[MutableBoardState.MAX_MOVES];
+	private final PackedBoardState state = new PackedBoardState();
+
+	// the result of the last call to followMove: either an exit value or the
+	// index of a position on the same level
+	private int exitValue;
+	private int childIndex;
+
+	public static void main(String[] args) throws IOException {
+		int maxSeeds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MAX_SEEDS;
+		String path = args.length > 1 ? args[1] : EndgameTablebase.DEFAULT_PATH;
+		if (maxSeeds < 0 || maxSeeds > MAX_SEEDS) {
+			throw new IllegalArgumentException("maxSeeds must be between 0 and " + MAX_SEEDS + ", was " + maxSeeds);
+		}
+
+		TablebaseGenerator generator = new TablebaseGenerator(maxSeeds);
+		for (int seeds = 0; seeds <= maxSeeds; seeds++) {
+			long start = System.currentTimeMillis();
+			generator.solveLevel(seeds);
+			System.out.println(seeds + " beans: " + EndgameTablebase.levelSize(seeds) + " positions in "
+					+ (System.currentTimeMillis() - start) + " ms");
+		}
+		generator.write(path);
+		System.out.println("wrote " + path);
+	}
+
+	private TablebaseGenerator(int maxSeeds) {
+		this.maxSeeds = maxSeeds;
+		this.values = new byte[maxSeeds + 1][];
+	}
+
+	/**
+	 * Solves every position with the given number of beans on the board,
+	 * assuming every level below it is solved
+	 *
+	 * @param seeds
+	 */
+	private void solveLevel(int seeds) {
+		int size = (int) EndgameTablebase.levelSize(seeds);
+		byte[] levelValues = new byte[size];
+		this.values[seeds] = levelValues;
+
+		// first pass: count moves, predecessors on this level and exits by
+		// value, so that the second pass can fill flat arrays
+		byte[] moveCounts = new byte[size];
+		int[] predecessorStart = new int[size + 1];
+		// exits are bucketed by value + FORCED_WIN, covering FORCED_LOSS up to
+		// FORCED_WIN
+		int numBuckets = 2 * FORCED_WIN + 1;
+		int[] exitStart = new int[numBuckets + 1];
+		boolean[] stuck = new boolean[size];
+		for (int index = 0; index < size; index++) {
+			if (!isCanonical(index)) {
+				continue;
+			}
+			int numMoves = loadPosition(seeds, index);
+			moveCounts[index] = (byte) numMoves;
+			stuck[index] = numMoves == 0;
+			for (int i = 0; i < numMoves; i++) {
+				followMove(seeds, this.moves[i]);
+				if (this.exitValue == NO_EXIT) {
+					predecessorStart[this.childIndex + 1]++;
+				} else {
+					exitStart[this.exitValue + FORCED_WIN + 1]++;
+				}
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			predecessorStart[i + 1] += predecessorStart[i];
+		}
+		for (int i = 0; i < numBuckets; i++) {
+			exitStart[i + 1] += exitStart[i];
+		}
+
+		// second pass: fill in predecessors and exits
+		int[] predecessors = new int[predecessorStart[size]];
+		int[] predecessorFill = new int[size];
+		int[] exits = new int[exitStart[numBuckets]];
+		int[] exitFill = new int[numBuckets];
+		for (int index = 0; index < size; index++) {
+			if (!isCanonical(index)) {
+				continue;
+			}
+			int numMoves = loadPosition(seeds, index);
+			for (int i = 0; i < numMoves; i++) {
+				followMove(seeds, this.moves[i]);
+				if (this.exitValue == NO_EXIT) {
+					predecessors[predecessorStart[this.childIndex] + predecessorFill[this.childIndex]++] = index;
+				} else {
+					int bucket = this.exitValue + FORCED_WIN;
+					exits[exitStart[bucket] + exitFill[bucket]++] = index;
+				}
+			}
+		}
+
+		boolean[] solved = new boolean[size];
+		int[] queue = new int[size];
+
+		// player 0 forcing at least t, for t from FORCED_WIN down to 1. A
+		// stuck player 1 has lost outright.
+		byte[] remaining = moveCounts.clone();
+		for (int t = FORCED_WIN; t >= 1; t--) {
+			int tail = 0;
+			if (t == FORCED_WIN) {
+				for (int index = 0; index < size; index++) {
+					if (stuck[index] && turnPlayer(index) == 1) {
+						solved[index] = true;
+						levelValues[index] = (byte) t;
+						queue[tail++] = index;
+					}
+				}
+			}
+			int bucket = t + FORCED_WIN;
+			for (int i = exitStart[bucket]; i < exitStart[bucket + 1]; i++) {
+				tail = reach(exits[i], 0, t, remaining, solved, levelValues, queue, tail);
+			}
+			for (int head = 0; head < tail; head++) {
+				int index = queue[head];
+				for (int i = predecessorStart[index]; i < predecessorStart[index + 1]; i++) {
+					tail = reach(predecessors[i], 0, t, remaining, solved, levelValues, queue, tail);
+				}
+			}
+		}
+
+		// player 1 forcing at most u, for u from FORCED_LOSS up to -1. A stuck
+		// player 0 has lost outright.
+		remaining = moveCounts;
+		for (int u = FORCED_LOSS; u <= -1; u++) {
+			int tail = 0;
+			if (u == FORCED_LOSS) {
+				for (int index = 0; index < size; index++) {
+					if (stuck[index] && turnPlayer(index) == 0) {
+						solved[index] = true;
+						levelValues[index] = (byte) u;
+						queue[tail++] = index;
+					}
+				}
+			}
+			int bucket = u + FORCED_WIN;
+			for (int i = exitStart[bucket]; i < exitStart[bucket + 1]; i++) {
+				tail = reach(exits[i], 1, u, remaining, solved, levelValues, queue, tail);
+			}
+			for (int head = 0; head < tail; head++) {
+				int index = queue[head];
+				for (int i = predecessorStart[index]; i < predecessorStart[index + 1]; i++) {
+					tail = reach(predecessors[i], 1, u, remaining, solved, levelValues, queue, tail);
+				}
+			}
+		}
+
+		// neither player can force anything better than going round in
+		// circles, which is worth 0; the array already holds 0 for these, and
+		// for the positions that are never reached
+	}
+
+	/**
+	 * Notes that one of the moves from a position reaches the set of positions
+	 * the given player can force to value, and adds the position to the set
+	 * if that player moves there or if all of the other player's moves now
+	 * reach the set.
+	 *
+	 * @return the new tail of the queue
+	 */
+	private int reach(int index, int player, int value, byte[] remaining, boolean[] solved, byte[] levelValues,
+			int[] queue, int tail) {
+		if (solved[index]) {
+			return tail;
+		}
+		if (turnPlayer(index) == player || --remaining[index] == 0) {
+			solved[index] = true;
+			levelValues[index] = (byte) value;
+			queue[tail++] = index;
+		}
+		return tail;
+	}
+
+	private static int turnPlayer(int index) {
+		return (index % AUX_STATES) / (AUX_STATES / 2);
+	}
+
+	/**
+	 * Returns whether a position can come up in a game. MutableBoardState and
+	 * PackedBoardState only keep a pending skip for the player to move, and
+	 * only if they have skip credit, so the other positions in the file are
+	 * never probed or reached and are left unsolved.
+	 */
+	private static boolean isCanonical(int index) {
+		int aux = index % AUX_STATES;
+		int turnsToSkip1 = aux % 2;
+		aux /= 2;
+		int turnsToSkip0 = aux % 2;
+		aux /= 2;
+		int credit1 = aux % 3;
+		aux /= 3;
+		int credit0 = aux % 3;
+		aux /= 3;
+		if (aux == 0) {
+			return turnsToSkip1 == 0 && (turnsToSkip0 == 0 || credit0 > 0);
+		}
+		return turnsToSkip0 == 0 && (turnsToSkip1 == 0 || credit1 > 0);
+	}
+
+	/**
+	 * Unpacks a position into state and generates its legal moves into moves
+	 *
+	 * @return the number of legal moves
+	 */
+	private int loadPosition(int seeds, int index) {
+		EndgameTablebase.unrank(index / AUX_STATES, seeds, this.pits);
+		int aux = index % AUX_STATES;
+		this.turnsToSkip[1] = aux % 2;
+		aux /= 2;
+		this.turnsToSkip[0] = aux % 2;
+		aux /= 2;
+		this.credit[1] = aux % 3;
+		aux /= 3;
+		this.credit[0] = aux % 3;
+		aux /= 3;
+		// scores start at zero, so afterwards they are the beans captured
+		this.state.set(this.pits, this.zeros, this.credit, this.turnsToSkip, aux, 0);
+		return this.state.getLegalMoves(this.moves);
+	}
+
+	/**
+	 * Makes a move from the loaded position and records where it leads in
+	 * exitValue and childIndex. The position is restored afterwards.
+	 */
+	private void followMove(int seeds, int move) {
+		long lo = this.state.getLo();
+		long hi = this.state.getHi();
+		this.state.apply(move);
+
+		// beans captured by each player, including any swept up at the end
+		int margin = this.state.getScore(0) - this.state.getScore(1);
+		int childSeeds = seeds - this.state.getScore(0) - this.state.getScore(1);
+
+		if (this.state.gameOver()) {
+			this.exitValue = margin;
+		} else {
+			int childTurnPlayer = this.state.getTurnPlayer();
+			int index = index(childSeeds);
+			if (this.state.getLegalMoves(this.childMoves) == 0) {
+				// the player to move has a credit they cannot use and nothing
+				// to sow, and cannot move at all
+				this.exitValue = childTurnPlayer == 0 ? FORCED_LOSS : FORCED_WIN;
+			} else if (childSeeds < seeds) {
+				int childValue = this.values[childSeeds][index];
+				if (childValue == FORCED_WIN || childValue == FORCED_LOSS) {
+					this.exitValue = childValue;
+				} else {
+					this.exitValue = margin + childValue;
+				}
+			} else {
+				this.exitValue = NO_EXIT;
+				this.childIndex = index;
+			}
+		}
+
+		this.state.set(lo, hi);
+	}
+
+	/**
+	 * Returns the index of the current state within its level
+	 */
+	private int index(int seeds) {
+		for (int i = 0; i < PITS; i++) {
+			this.pits[0][i] = this.state.getPit(0, i);
+			this.pits[1][i] = this.state.getPit(1, i);
+		}
+		long rank = EndgameTablebase.rank(this.pits, seeds);
+		return (int) (rank * AUX_STATES) + EndgameTablebase.auxIndex(this.state.getTurnPlayer(),
+				this.state.getCredit(0), this.state.getCredit(1), this.state.getTurnsToSkip(0),
+				this.state.getTurnsToSkip(1));
+	}
+
+	/**
+	 * Writes the solved levels, converting each value to the point of view of
+	 * the player to move
+	 */
+	private void write(String path) throws IOException {
+		File file = new File(path);
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(EndgameTablebase.MAGIC);
+			out.writeInt(this.maxSeeds);
+			for (int seeds = 0; seeds <= this.maxSeeds; seeds++) {
+				byte[] levelValues = this.values[seeds];
+				for (int index = 0; index < levelValues.length; index++) {
+					out.writeByte(turnPlayer(index) == 0 ? levelValues[index] : -levelValues[index]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+}
@@ -0,0 +1,266 @@
+package student_player.mytools;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+import boardgame.Server;
+import bohnenspiel.BohnenspielMove;
+
+/**
+ * Decides how long each move may take and, during iterative deepening,
+ * whether there is time to search one move deeper.
+ *
+ * The server gives every move its own timeout, Server.FIRST_MOVE_TIMEOUT on
+ * the first turn and Server.DEFAULT_TIMEOUT after that, and plays a random
+ * move for a player who takes longer. Nothing is carried over from one move
+ * to the next, so the budget for a move is its timeout, capped by the
+ * player's own limit, less a safety margin. The margin is the larger of a
+ * fixed minimum and what has recently been observed to eat into the budget
+ * without the search knowing: how far moves have run past their deadline,
+ * garbage collection pauses, and the time between returning a move and the
+ * server echoing it back.
+ *
+ * An iteration that runs out of time is thrown away, so an iteration is only
+ * started if it is predicted to finish. The time it will take is predicted
+ * from the last iteration's time and the effective branching factor measured
+ * over the last iterations. A move whose best move is stable stops once it
+ * reaches its stable share of the budget, leaving the rest to pondering,
+ * while a move whose best move changed in one of the last iterations may use
+ * all of it.
+ *
+ * @author kstricks
+ *
+ */
+public final class TimeManager {
+
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	// how much each observed delay is remembered from one move to the next,
+	// so that a one-off spike is forgotten over a few dozen moves
+	private static final double PEAK_DECAY = 0.9;
+	// the margin kept is this many times the delays observed
+	private static final double MARGIN_FACTOR = 1.5;
+	// the margin never takes more than this fraction of the timeout
+	private static final double MAX_MARGIN_FRACTION = 0.5;
+
+	// branching factor assumed until two iterations have been measured
+	private static final double DEFAULT_BRANCHING = 4;
+	// bounds on the measured branching factor; at most 7 moves are legal
+	private static final double MIN_BRANCHING = 1.5;
+	private static final double MAX_BRANCHING = 7;
+	// iterations taking fewer nodes than this are too small to measure the
+	// branching factor from
+	private static final long MIN_MEASURED_NODES = 1000;
+	// a best move that changed within this many iterations is unstable
+	private static final int UNSTABLE_ITERATIONS = 2;
+
+	// the most time in milliseconds a move may take, and for the first move
+	private final int maxTime;
+	private final int firstMoveTime;
+	// the least margin in milliseconds to leave on every move
+	private final int minMargin;
+	// percentage of the budget a move with a stable best move may take
+	private final int stablePercent;
+
+	// the largest recent delays in nanoseconds, each decayed by PEAK_DECAY
+	// per move
+	private double overrunPeak;
+	private double gcPeak;
+	private double latencyPeak;
+
+	// System.nanoTime() at which the current move started
+	private long start;
+	// the current move's budget, in nanoseconds from start
+	private long budget;
+	// total garbage collection pause time in milliseconds when the move
+	// started
+	private long gcTimeAtStart;
+
+	// the time and nodes of the last two completed iterations, the latest
+	// first
+	private final long[] iterationTimes = new long[2];
+	private final long[] iterationNodes = new long[2];
+	private int iterations;
+	// when the last completed iteration finished, in System.nanoTime()
+	private long lastIterationEnd;
+	// the best move of the last completed iteration, and how many iterations
+	// ago it last changed
+	private BohnenspielMove bestMove;
+	private int iterationsSinceChange;
+
+	/**
+	 * @param maxTime
+	 *            - the most time in milliseconds a move may take; capped at
+	 *            Server.DEFAULT_TIMEOUT
+	 * @param firstMoveTime
+	 *            - the same for the first move; capped at
+	 *            Server.FIRST_MOVE_TIMEOUT
+	 * @param minMargin
+	 *            - the least time in milliseconds to leave to spare on every
+	 *            move
+	 * @param stablePercent
+	 *            - the percentage of the budget a move with a stable best move
+	 *            may take
+	 */
+	public TimeManager(int maxTime, int firstMoveTime, int minMargin, int stablePercent) {
+		this.maxTime = Math.min(maxTime, Server.DEFAULT_TIMEOUT);
+		this.firstMoveTime = Math.min(firstMoveTime, Server.FIRST_MOVE_TIMEOUT);
+		this.minMargin = minMargin;
+		this.stablePercent = stablePercent;
+	}
+
+	/**
+	 * Starts timing a move
+	 *
+	 * @param firstMove
+	 *            - whether this is the first turn of the game, which the
+	 *            server gives longer
+	 * @param start
+	 *            - the System.nanoTime() at which we were asked for the move
+	 */
+	public void startMove(boolean firstMove, long start) {
+		this.start = start;
+		this.gcTimeAtStart = getGcTime();
+		this.iterations = 0;
+		this.bestMove = null;
+		this.iterationsSinceChange = 0;
+
+		long timeout = (firstMove ? this.firstMoveTime : this.maxTime) * NANOS_PER_MILLI;
+		this.budget = Math.max(0, timeout - getMargin(timeout));
+		this.lastIterationEnd = start;
+	}
+
+	/**
+	 * @param timeout
+	 *            - in nanoseconds
+	 * @return the time to leave to spare, in nanoseconds
+	 */
+	private long getMargin(long timeout) {
+		double observed = MARGIN_FACTOR * (this.overrunPeak + this.gcPeak + this.latencyPeak);
+		long margin = Math.max(this.minMargin * NANOS_PER_MILLI, (long) observed);
+		return Math.min(margin, (long) (MAX_MARGIN_FRACTION * timeout));
+	}
+
+	/**
+	 * @return the System.nanoTime() by which the current move's search must
+	 *         finish
+	 */
+	public long getDeadline() {
+		return this.start + this.budget;
+	}
+
+	/**
+	 * Records a completed iteration of iterative deepening
+	 *
+	 * @param move
+	 *            - the best move it found
+	 * @param nodes
+	 *            - the nodes it visited
+	 */
+	public void iterationDone(BohnenspielMove move, long nodes) {
+		long now = System.nanoTime();
+		this.iterationTimes[1] = this.iterationTimes[0];
+		this.iterationNodes[1] = this.iterationNodes[0];
+		this.iterationTimes[0] = now - this.lastIterationEnd;
+		this.iterationNodes[0] = nodes;
+		this.lastIterationEnd = now;
+		this.iterations++;
+
+		if (this.bestMove != null && move != null && (move.getMoveType() != this.bestMove.getMoveType()
+				|| move.getPit() != this.bestMove.getPit())) {
+			this.iterationsSinceChange = 0;
+		} else {
+			this.iterationsSinceChange++;
+		}
+		this.bestMove = move;
+	}
+
+	/**
+	 * Returns whether the next iteration is predicted to finish within the
+	 * time the current move may take. The first iteration is always started.
+	 *
+	 * @return
+	 */
+	public boolean shouldStartIteration() {
+		if (this.iterations == 0) {
+			return true;
+		}
+		long elapsed = System.nanoTime() - this.start;
+		long limit = isUnstable() ? this.budget : this.budget * this.stablePercent / 100;
+		return elapsed + predictNextIteration() <= limit;
+	}
+
+	/**
+	 * @return whether the best move changed in one of the last few iterations
+	 */
+	private boolean isUnstable() {
+		return this.iterationsSinceChange < UNSTABLE_ITERATIONS;
+	}
+
+	/**
+	 * @return the predicted time of the next iteration in nanoseconds
+	 */
+	private long predictNextIteration() {
+		return (long) (this.iterationTimes[0] * getBranchingFactor());
+	}
+
+	/**
+	 * Returns the effective branching factor, the ratio of the nodes of the
+	 * last iteration to those of the one before, or DEFAULT_BRANCHING if that
+	 * has not been measured
+	 *
+	 * @return
+	 */
+	public double getBranchingFactor() {
+		if (this.iterations < 2 || this.iterationNodes[1] < MIN_MEASURED_NODES) {
+			return DEFAULT_BRANCHING;
+		}
+		double branching = this.iterationNodes[0] / (double) this.iterationNodes[1];
+		return Math.min(MAX_BRANCHING, Math.max(MIN_BRANCHING, branching));
+	}
+
+	/**
+	 * Finishes timing a move, learning how far it ran past its deadline and
+	 * how long garbage collection paused it
+	 */
+	public void endMove() {
+		long overrun = Math.max(0, System.nanoTime() - getDeadline());
+		long gcPause = (getGcTime() - this.gcTimeAtStart) * NANOS_PER_MILLI;
+		this.overrunPeak = Math.max(overrun, this.overrunPeak * PEAK_DECAY);
+		this.gcPeak = Math.max(gcPause, this.gcPeak * PEAK_DECAY);
+		this.latencyPeak *= PEAK_DECAY;
+	}
+
+	/**
+	 * Records the time between a move being returned and the server playing
+	 * it, which is twice the network latency the server's timer sees
+	 *
+	 * @param nanos
+	 */
+	public void observeLatency(long nanos) {
+		this.latencyPeak = Math.max(this.latencyPeak, nanos);
+	}
+
+	/**
+	 * @return the margin the next ordinary move will leave, in milliseconds
+	 */
+	public long getMarginMillis() {
+		return getMargin(this.maxTime * NANOS_PER_MILLI) / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @return the total time in milliseconds the collectors that stop the
+	 *         application have paused it for
+	 */
+	private static long getGcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			// concurrent cycles run alongside the search rather than pausing it
+			if (!collector.getName().contains("Concurrent") && collector.getCollectionTime() > 0) {
+				time += collector.getCollectionTime();
+			}
+		}
+		return time;
+	}
+
+}
@@ -0,0 +1,184 @@
+package student_player.mytools;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size transposition table keyed by Zobrist hash keys. All entries
+ * are allocated up front in one primitive array so that probing and storing
+ * never allocate. Each slot holds two words: the packed data word, and the
+ * full key XORed with the data word, used to detect index collisions. The
+ * data word is laid out as follows:
+ *
+ * <pre>
+ * bits  0-31 : score
+ * bits 32-39 : depth (moves to go) the score was searched to
+ * bits 40-41 : bound type (EXACT, LOWER_BOUND or UPPER_BOUND)
+ * bits 42-44 : best move (0-5 for a pit, 6 for a skip, NO_MOVE for none)
+ * bits 45-52 : generation of the search that stored the entry
+ * </pre>
+ *
+ * When two positions map to the same slot the deeper search is kept, unless
+ * the entry in the slot was stored by an earlier search, so entries survive
+ * from one move to the next but stale deep entries do not clog the table.
+ *
+ * The table is lock-free and can be shared between threads. The two words of
+ * a slot are written separately, so a slot can be left holding one thread's
+ * key and another's data; the XOR makes such a torn slot fail to match any
+ * key, so probe reports a miss rather than returning the wrong data. Only one
+ * thread should call newSearch and clear, while no search is running.
+ *
+ * Scores are stored as given, so a table must only be shared between
+ * searches for the same player with the same utility function.
+ *
+ * @author kstricks
+ *
+ */
+public class TranspositionTable {
+
+	// the default size of a table in megabytes
+	public static final int DEFAULT_SIZE_MB = 32;
+	// hard cap on the size of a table in megabytes, well within the 520m heap
+	// the players run with
+	public static final int MAX_SIZE_MB = 128;
+	// each entry is a check word and a data word
+	private static final int BYTES_PER_ENTRY = 16;
+
+	// bound types
+	public static final int EXACT = 1;
+	public static final int LOWER_BOUND = 2;
+	public static final int UPPER_BOUND = 3;
+
+	// best move recorded when there is none
+	public static final int NO_MOVE = 7;
+
+	private static final int DEPTH_SHIFT = 32;
+	private static final long DEPTH_MASK = 0xFFL;
+	private static final int BOUND_SHIFT = 40;
+	private static final long BOUND_MASK = 0x3L;
+	private static final int MOVE_SHIFT = 42;
+	private static final long MOVE_MASK = 0x7L;
+	private static final int GENERATION_SHIFT = 45;
+	private static final long GENERATION_MASK = 0xFFL;
+
+	// slot i is held in words 2i (key ^ data) and 2i + 1 (data)
+	private final AtomicLongArray slots;
+	private final int mask;
+
+	// incremented by newSearch, so entries from earlier searches can be
+	// recognized and replaced
+	private volatile int generation;
+
+	public TranspositionTable() {
+		this(DEFAULT_SIZE_MB);
+	}
+
+	/**
+	 * Allocates a table using at most the given number of megabytes, rounded
+	 * down to a power of two number of entries and capped at MAX_SIZE_MB
+	 *
+	 * @param sizeInMegabytes
+	 */
+	public TranspositionTable(int sizeInMegabytes) {
+		long bytes = (long) Math.max(1, Math.min(sizeInMegabytes, MAX_SIZE_MB)) << 20;
+		int entries = Integer.highestOneBit((int) (bytes / BYTES_PER_ENTRY));
+		this.slots = new AtomicLongArray(2 * entries);
+		this.mask = entries - 1;
+	}
+
+	/**
+	 * Marks the start of a new search. Entries stored by earlier searches are
+	 * still returned by probe but may be replaced by shallower ones.
+	 */
+	public void newSearch() {
+		this.generation = (this.generation + 1) & (int) GENERATION_MASK;
+	}
+
+	/**
+	 * Empties the table
+	 */
+	public void clear() {
+		for (int i = 0; i < this.slots.length(); i++) {
+			this.slots.lazySet(i, 0L);
+		}
+	}
+
+	/**
+	 * Looks up the given key
+	 *
+	 * @param key
+	 * @return the packed data word for the key, or 0 if the key is not in the
+	 *         table
+	 */
+	public long probe(long key) {
+		int index = ((int) key & this.mask) << 1;
+		long entry = this.slots.get(index + 1);
+		if (entry != 0 && (this.slots.get(index) ^ entry) == key) {
+			return entry;
+		}
+		return 0;
+	}
+
+	/**
+	 * Stores a search result, replacing the entry in the key's slot if it is
+	 * for the same key, is from an earlier search or was searched less deeply
+	 *
+	 * @param key
+	 * @param depth
+	 *            - the number of moves to go the score was searched to
+	 * @param bound
+	 *            - EXACT, LOWER_BOUND or UPPER_BOUND
+	 * @param score
+	 * @param move
+	 *            - the best move found, or NO_MOVE
+	 */
+	public void store(long key, int depth, int bound, int score, int move) {
+		int index = ((int) key & this.mask) << 1;
+		int generation = this.generation;
+		long entry = this.slots.get(index + 1);
+		if (entry != 0 && (this.slots.get(index) ^ entry) != key && getGeneration(entry) == generation
+				&& getDepth(entry) > depth) {
+			// keep the deeper entry from this search
+			return;
+		}
+		long newEntry = (score & 0xFFFFFFFFL) | ((long) depth << DEPTH_SHIFT) | ((long) bound << BOUND_SHIFT)
+				| ((long) move << MOVE_SHIFT) | ((long) generation << GENERATION_SHIFT);
+		// lazySet: the slot may be read a little late by other threads, but
+		// every thread sees either the old or the new value of each word
+		this.slots.lazySet(index, key ^ newEntry);
+		this.slots.lazySet(index + 1, newEntry);
+	}
+
+	/**
+	 * Returns the number of entries in the table
+	 *
+	 * @return
+	 */
+	public int size() {
+		return this.mask + 1;
+	}
+
+	// =========================================================================
+	// Decoding entries returned by probe
+	// =========================================================================
+
+	public static int getScore(long entry) {
+		return (int) entry;
+	}
+
+	public static int getDepth(long entry) {
+		return (int) ((entry >>> DEPTH_SHIFT) & DEPTH_MASK);
+	}
+
+	public static int getBound(long entry) {
+		return (int) ((entry >>> BOUND_SHIFT) & BOUND_MASK);
+	}
+
+	public static int getMove(long entry) {
+		return (int) ((entry >>> MOVE_SHIFT) & MOVE_MASK);
+	}
+
+	private static int getGeneration(long entry) {
+		return (int) ((entry >>> GENERATION_SHIFT) & GENERATION_MASK);
+	}
+
+}
@@ -0,0 +1,116 @@
+package student_player.mytools;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import bohnenspiel.BohnenspielBoardState;
+import bohnenspiel.BohnenspielMove;
+
+/**
+ * Plays games in which player 0 moves with OptiMinimax, reusing its tree from
+ * one move to the next, and player 1 replies with AlphaBetaMinimax. At each of
+ * player 0's moves, the same position is also searched to the same depth by a
+ * fresh AlphaBetaMinimax, with and without move ordering, and the time and
+ * nodes taken by each are added up.
+ *
+ * From the root directory of the project, run
+ *
+ * <pre>
+ *     java -Xmx1g -cp bin student_player.mytools.TreeReuseBenchmark [depth] [games]
+ * </pre>
+ *
+ * @author kstricks
+ *
+ */
+public class TreeReuseBenchmark {
+
+	private static final int DEFAULT_DEPTH = 10;
+	private static final int DEFAULT_GAMES = 4;
+	// random moves at the start of each game, so the games differ
+	private static final int RANDOM_MOVES = 4;
+	private static final long SEED = 424;
+	// OptiMinimax only scores by score difference
+	private static final int UTILITY_FUNCTION = 0;
+	// player 1 searches a little less deeply, so that it does not always play
+	// the reply player 0 expected
+	private static final int REPLY_DEPTH_OFFSET = 2;
+
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+		int numGames = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_GAMES;
+		Random random = new Random(SEED);
+
+		long[] nanos = new long[3];
+		long[] nodes = new long[3];
+		long reused = 0;
+		int searches = 0;
+		int agreements = 0;
+		for (int game = 0; game < numGames; game++) {
+			BohnenspielBoardState boardState = new BohnenspielBoardState();
+			for (int i = 0; i < RANDOM_MOVES && !boardState.gameOver(); i++) {
+				ArrayList<BohnenspielMove> moves = boardState.getLegalMoves();
+				boardState.move(moves.get(random.nextInt(moves.size())));
+			}
+
+			OptiMinimax omm = new OptiMinimax();
+			omm.setPlayer(0);
+			AlphaBetaMinimax opponent = new AlphaBetaMinimax(1, UTILITY_FUNCTION);
+			while (!boardState.gameOver()) {
+				BohnenspielMove move;
+				if (boardState.getTurnPlayer() == 0) {
+					long start = System.nanoTime();
+					MinimaxResponse reuse = omm.optiMinimaxDecision((BohnenspielBoardState) boardState.clone(), depth);
+					nanos[0] += System.nanoTime() - start;
+					nodes[0] += reuse.getNodes();
+					reused += omm.getReusedNodes();
+
+					start = System.nanoTime();
+					MinimaxResponse plain = new AlphaBetaMinimax(0, UTILITY_FUNCTION)
+							.minimaxDecision((BohnenspielBoardState) boardState.clone(), depth);
+					nanos[1] += System.nanoTime() - start;
+					nodes[1] += plain.getNodes();
+
+					AlphaBetaMinimax ordered = new AlphaBetaMinimax(0, UTILITY_FUNCTION);
+					ordered.setMoveOrdering(new MoveOrdering());
+					start = System.nanoTime();
+					MinimaxResponse orderedResp = ordered.minimaxDecision((BohnenspielBoardState) boardState.clone(),
+							depth);
+					nanos[2] += System.nanoTime() - start;
+					nodes[2] += orderedResp.getNodes();
+
+					searches++;
+					if (sameMove(reuse.getMove(), plain.getMove())) {
+						agreements++;
+					}
+					move = reuse.getMove();
+				} else {
+					move = opponent.minimaxDecision((BohnenspielBoardState) boardState.clone(),
+							Math.max(1, depth - REPLY_DEPTH_OFFSET)).getMove();
+				}
+				if (move == null) {
+					// every move loses; play anything legal
+					move = (BohnenspielMove) boardState.getRandomMove();
+				}
+				boardState.move(move);
+			}
+			System.out.println("game " + game + ": winner " + boardState.getWinner() + ", " + boardState.getScore(0)
+					+ "-" + boardState.getScore(1));
+		}
+
+		System.out.println(searches + " searches to depth " + depth + ", reuse chose the same move as plain "
+				+ agreements + " times, " + reused / Math.max(1, searches) + " nodes reused per search");
+		String[] names = { "OptiMinimax (reuse)", "AlphaBetaMinimax", "AlphaBetaMinimax + ordering" };
+		System.out.println(String.format("%-28s %10s %14s", "search", "ms", "nodes"));
+		for (int i = 0; i < names.length; i++) {
+			System.out.println(String.format("%-28s %10d %14d", names[i], nanos[i] / 1000000, nodes[i]));
+		}
+	}
+
+	private static boolean sameMove(BohnenspielMove a, BohnenspielMove b) {
+		if (a == null || b == null) {
+			return a == b;
+		}
+		return a.getMoveType() == b.getMoveType() && a.getPit() == b.getPit();
+	}
+
+}